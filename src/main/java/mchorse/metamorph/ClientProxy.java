@@ -1,19 +1,24 @@
 package mchorse.metamorph;
 
 import java.lang.reflect.Field;
+import java.util.Arrays;
 import java.util.Map;
 
 import mchorse.metamorph.api.MorphManager;
+import mchorse.metamorph.client.AcquiredCache;
 import mchorse.metamorph.client.KeyboardHandler;
 import mchorse.metamorph.client.RenderingHandler;
+import mchorse.metamorph.client.WorldHandler;
 import mchorse.metamorph.client.gui.elements.GuiOverlay;
 import mchorse.metamorph.client.gui.elements.GuiSurvivalMorphs;
+import mchorse.metamorph.client.model.parsing.ModelPipeline;
 import mchorse.metamorph.client.render.RenderCustomModel;
 import mchorse.metamorph.client.render.RenderMorph;
 import mchorse.metamorph.client.render.RenderSubPlayer;
 import mchorse.metamorph.entity.EntityMorph;
 import net.minecraft.client.Minecraft;
 import net.minecraft.client.renderer.entity.RenderManager;
+import net.minecraft.world.World;
 import net.minecraftforge.common.MinecraftForge;
 import net.minecraftforge.fml.client.registry.RenderingRegistry;
 import net.minecraftforge.fml.common.event.FMLPreInitializationEvent;
@@ -50,6 +55,11 @@ public class ClientProxy extends CommonProxy
      */
     public static KeyboardHandler keys;
 
+    /**
+     * Cache of acquired morphs on the disk 
+     */
+    public static AcquiredCache acquiredCache = new AcquiredCache();
+
     @Override
     public void preLoad(FMLPreInitializationEvent event)
     {
@@ -73,9 +83,31 @@ public class ClientProxy extends CommonProxy
         /* Register client event handlers */
         MinecraftForge.EVENT_BUS.register(new RenderingHandler(overlay, morphOverlay));
         MinecraftForge.EVENT_BUS.register(keys = new KeyboardHandler(overlay));
+        MinecraftForge.EVENT_BUS.register(acquiredCache);
+        MinecraftForge.EVENT_BUS.register(new WorldHandler());
 
         /* Register client morph manager */
         MorphManager.INSTANCE.registerClient();
+
+        /* Bake custom models that are known to be used */
+        ModelPipeline.load(MorphManager.INSTANCE.models, Arrays.asList(this.config.model_warmup));
+    }
+
+    /**
+     * Client world is used when called from the client thread, so morphs 
+     * created for the GUI wouldn't touch the integrated server's world
+     */
+    @Override
+    public World getWorld()
+    {
+        Minecraft mc = Minecraft.getMinecraft();
+
+        if (mc.isCallingFromMinecraftThread() && mc.theWorld != null)
+        {
+            return mc.theWorld;
+        }
+
+        return super.getWorld();
     }
 
     /**
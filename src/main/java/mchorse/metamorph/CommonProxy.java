@@ -1,12 +1,15 @@
 package mchorse.metamorph;
 
 import java.io.File;
+import java.util.Arrays;
 
+import mchorse.metamorph.api.MorphCache;
 import mchorse.metamorph.api.MorphHandler;
 import mchorse.metamorph.api.MorphManager;
 import mchorse.metamorph.api.MorphUtils;
 import mchorse.metamorph.api.models.ModelManager;
 import mchorse.metamorph.capabilities.CapabilityHandler;
+import mchorse.metamorph.capabilities.morphing.IMorphStore;
 import mchorse.metamorph.capabilities.morphing.IMorphing;
 import mchorse.metamorph.capabilities.morphing.Morphing;
 import mchorse.metamorph.capabilities.morphing.MorphingStorage;
@@ -15,9 +18,12 @@ import mchorse.metamorph.entity.EntityMorph;
 import mchorse.metamorph.network.Dispatcher;
 import mchorse.vanilla_pack.MobMorphFactory;
 import mchorse.vanilla_pack.VanillaMorphFactory;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.world.World;
 import net.minecraftforge.common.MinecraftForge;
 import net.minecraftforge.common.capabilities.CapabilityManager;
 import net.minecraftforge.common.config.Configuration;
+import net.minecraftforge.fml.common.FMLCommonHandler;
 import net.minecraftforge.fml.common.event.FMLPreInitializationEvent;
 import net.minecraftforge.fml.common.registry.EntityRegistry;
 
@@ -50,6 +56,17 @@ public class CommonProxy
      */
     public File morphs;
 
+    /**
+     * On-disk morph catalog cache 
+     */
+    public MorphCache cache;
+
+    /**
+     * Morph store of running server, it's null when the server isn't 
+     * running 
+     */
+    public IMorphStore store;
+
     public void preLoad(FMLPreInitializationEvent event)
     {
         /* Network messages */
@@ -57,8 +74,8 @@ public class CommonProxy
 
         /* Attaching model manager and morph factories to the morph manager */
         MorphManager.INSTANCE.models = this.models;
-        MorphManager.INSTANCE.factories.add(new MobMorphFactory());
-        MorphManager.INSTANCE.factories.add(new VanillaMorphFactory());
+        MorphManager.INSTANCE.addFactory(new MobMorphFactory());
+        MorphManager.INSTANCE.addFactory(new VanillaMorphFactory());
 
         /* Configuration */
         File config = new File(event.getModConfigurationDirectory(), "metamorph/config.cfg");
@@ -67,6 +84,7 @@ public class CommonProxy
         this.forge = new Configuration(config);
         this.config = new MetamorphConfig(this.forge);
         this.morphs = morphs;
+        this.cache = new MorphCache(new File(event.getModConfigurationDirectory(), "metamorph/cache.dat"), morphs);
 
         /* Entities */
         EntityRegistry.registerModEntity(EntityMorph.class, "Morph", 0, Metamorph.instance, 64, 3, false);
@@ -91,6 +109,8 @@ public class CommonProxy
 
         /* Register morph factories */
         MorphManager.INSTANCE.register();
+        MorphManager.INSTANCE.snapshotSettings();
+        MorphManager.INSTANCE.models.warmUp(Arrays.asList(this.config.model_warmup));
 
         if (morphs.exists())
         {
@@ -101,4 +121,38 @@ public class CommonProxy
             MorphUtils.generateEmptyMorphs(morphs);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Post load stuff
+     * 
+     * Load the morph catalog cache, when all mods have registered their 
+     * entities. If it's outdated, it will be rebuilt on server start.
+     */
+    public void postLoad()
+    {
+        this.cache.load(MorphManager.INSTANCE);
+    }
+
+    /**
+     * Whether players' morphing data should be saved into the morph store 
+     * instead of player files 
+     */
+    public boolean isMorphStoreEnabled()
+    {
+        return this.config.morph_store && this.store != null;
+    }
+
+    /**
+     * Get a world which can be used for constructing entities on current 
+     * thread (i.e. for generating entity data of morphs)
+     * 
+     * On the server it's the overworld of running server, or null if the 
+     * server isn't running.
+     */
+    public World getWorld()
+    {
+        MinecraftServer server = FMLCommonHandler.instance().getMinecraftServerInstance();
+
+        return server == null ? null : server.worldServerForDimension(0);
+    }
+}
@@ -1,13 +1,24 @@
 package mchorse.metamorph;
 
+import java.io.File;
+
 import org.apache.logging.log4j.Level;
 import org.apache.logging.log4j.Logger;
 
+import mchorse.metamorph.api.LoadProfiler;
+import mchorse.metamorph.api.MorphManager;
+import mchorse.metamorph.capabilities.morphing.FileMorphStore;
+import mchorse.metamorph.commands.CommandMetamorph;
+import net.minecraftforge.common.DimensionManager;
+import net.minecraftforge.fml.common.Loader;
 import net.minecraftforge.fml.common.Mod;
 import net.minecraftforge.fml.common.Mod.EventHandler;
 import net.minecraftforge.fml.common.SidedProxy;
 import net.minecraftforge.fml.common.event.FMLInitializationEvent;
+import net.minecraftforge.fml.common.event.FMLPostInitializationEvent;
 import net.minecraftforge.fml.common.event.FMLPreInitializationEvent;
+import net.minecraftforge.fml.common.event.FMLServerStartingEvent;
+import net.minecraftforge.fml.common.event.FMLServerStoppedEvent;
 
 /**
  * Metamorph mod
@@ -50,13 +61,64 @@ public class Metamorph
     {
         LOGGER = event.getModLog();
 
+        LoadProfiler.Section section = LoadProfiler.INSTANCE.start("phase", "preLoad");
+
         proxy.preLoad(event);
+        section.stop();
     }
 
     @EventHandler
     public void load(FMLInitializationEvent event)
     {
+        LoadProfiler.Section section = LoadProfiler.INSTANCE.start("phase", "load");
+
         proxy.load();
+        section.stop();
+    }
+
+    @EventHandler
+    public void postLoad(FMLPostInitializationEvent event)
+    {
+        LoadProfiler.Section section = LoadProfiler.INSTANCE.start("phase", "postLoad");
+
+        proxy.postLoad();
+        section.stop();
+
+        /* Report how long did it take to load Metamorph */
+        LoadProfiler.INSTANCE.report(LOGGER, new File(Loader.instance().getConfigDir(), "metamorph/profile.json"));
+    }
+
+    @EventHandler
+    public void serverStarting(FMLServerStartingEvent event)
+    {
+        /* Rebuild morph catalog once per server start, so server code 
+         * could query it cheaply */
+        MorphManager.INSTANCE.invalidateMorphs();
+        MorphManager.INSTANCE.getCatalog();
+
+        /* Rebuild the cache while there's a world to construct entities in */
+        if (!proxy.cache.isLoaded())
+        {
+            proxy.cache.save(MorphManager.INSTANCE);
+        }
+
+        event.registerServerCommand(new CommandMetamorph());
+
+        /* Morph store is created always, so the data saved in it could be 
+         * loaded even when it's disabled in the config */
+        proxy.store = new FileMorphStore(new File(DimensionManager.getCurrentSaveRootDirectory(), "metamorph/players"));
+    }
+
+    @EventHandler
+    public void serverStopped(FMLServerStoppedEvent event)
+    {
+        /* Players are saved before server stops, wait until their data is 
+         * written */
+        if (proxy.store != null)
+        {
+            proxy.store.close();
+            proxy.store = null;
+        }
     }
 
     /* Logging */
@@ -0,0 +1,416 @@
+package mchorse.metamorph.api;
+
+import java.util.Arrays;
+
+import net.minecraft.nbt.NBTBase;
+import net.minecraft.nbt.NBTPrimitive;
+import net.minecraft.nbt.NBTTagByte;
+import net.minecraft.nbt.NBTTagByteArray;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.nbt.NBTTagDouble;
+import net.minecraft.nbt.NBTTagFloat;
+import net.minecraft.nbt.NBTTagInt;
+import net.minecraft.nbt.NBTTagIntArray;
+import net.minecraft.nbt.NBTTagList;
+import net.minecraft.nbt.NBTTagLong;
+import net.minecraft.nbt.NBTTagShort;
+import net.minecraft.nbt.NBTTagString;
+
+/**
+ * Entity data
+ *
+ * Packed, immutable form of stripped entity {@link NBTTagCompound}. Instead
+ * of a hash map of boxed tags, it stores alphabetically sorted (and
+ * interned) keys, tag types and primitive values in flat arrays. Strings,
+ * arrays, lists and nested compounds (which are packed as well) are stored
+ * in a separate object array, which is allocated only if there are any.
+ *
+ * Entity data is built once the data is stripped (see
+ * {@link EntityUtils#packData(NBTTagCompound)}), and converted back to NBT
+ * only when it's needed (i.e. when the entity is constructed or the morph
+ * is serialized).
+ */
+public final class EntityData
+{
+    private static final String[] NO_KEYS = new String[0];
+    private static final byte[] NO_TYPES = new byte[0];
+    private static final long[] NO_VALUES = new long[0];
+
+    /**
+     * Sorted keys
+     */
+    private final String[] keys;
+
+    /**
+     * NBT type IDs of values
+     */
+    private final byte[] types;
+
+    /**
+     * Primitive values (floats and doubles are stored as raw bits)
+     */
+    private final long[] values;
+
+    /**
+     * Non-primitive values, or null if there are none
+     */
+    private final Object[] objects;
+
+    /**
+     * Cached hash code
+     */
+    private int hash;
+
+    /**
+     * Pack given NBT compound
+     */
+    public static EntityData fromNBT(NBTTagCompound tag)
+    {
+        String[] keys = tag.getKeySet().toArray(NO_KEYS);
+
+        Arrays.sort(keys);
+
+        int count = keys.length;
+        byte[] types = count == 0 ? NO_TYPES : new byte[count];
+        long[] values = count == 0 ? NO_VALUES : new long[count];
+        Object[] objects = null;
+
+        for (int i = 0; i < count; i++)
+        {
+            NBTBase value = tag.getTag(keys[i]);
+            Object object = packObject(value);
+
+            keys[i] = keys[i].intern();
+            types[i] = value.getId();
+
+            if (object == null)
+            {
+                values[i] = packPrimitive(value);
+            }
+            else
+            {
+                if (objects == null)
+                {
+                    objects = new Object[count];
+                }
+
+                objects[i] = object;
+            }
+        }
+
+        return new EntityData(keys, types, values, objects);
+    }
+
+    private EntityData(String[] keys, byte[] types, long[] values, Object[] objects)
+    {
+        this.keys = keys;
+        this.types = types;
+        this.values = values;
+        this.objects = objects;
+    }
+
+    /**
+     * Count of tags
+     */
+    public int size()
+    {
+        return this.keys.length;
+    }
+
+    /**
+     * Whether there's a tag with given key
+     */
+    public boolean hasKey(String key)
+    {
+        return Arrays.binarySearch(this.keys, key) >= 0;
+    }
+
+    /**
+     * Get an integer value by given key, or 0 if there's no such numeric tag
+     */
+    public int getInteger(String key)
+    {
+        int index = Arrays.binarySearch(this.keys, key);
+
+        if (index < 0 || this.types[index] > 6)
+        {
+            return 0;
+        }
+
+        return ((NBTPrimitive) this.createTag(index)).getInt();
+    }
+
+    /**
+     * Convert back to (new, mutable) NBT compound
+     */
+    public NBTTagCompound toNBT()
+    {
+        NBTTagCompound tag = new NBTTagCompound();
+
+        for (int i = 0; i < this.keys.length; i++)
+        {
+            tag.setTag(this.keys[i], this.createTag(i));
+        }
+
+        return tag;
+    }
+
+    /**
+     * Compare with other entity data for morph acquiring, the same way as
+     * {@link EntityUtils#compareData(NBTTagCompound, NBTTagCompound)} does
+     * (only strings and primitives are compared)
+     */
+    public boolean matches(EntityData data)
+    {
+        if (data == this)
+        {
+            return true;
+        }
+
+        if (data == null || !Arrays.equals(this.keys, data.keys))
+        {
+            return false;
+        }
+
+        for (int i = 0; i < this.keys.length; i++)
+        {
+            byte type = this.types[i];
+
+            /* Lists, arrays and compounds aren't concern of mine */
+            if (type == 7 || type > 8)
+            {
+                continue;
+            }
+
+            if (type != data.types[i])
+            {
+                return false;
+            }
+
+            if (type == 8 ? !this.objects[i].equals(data.objects[i]) : this.values[i] != data.values[i])
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    @Override
+    public boolean equals(Object obj)
+    {
+        if (obj == this)
+        {
+            return true;
+        }
+
+        if (obj instanceof EntityData)
+        {
+            EntityData data = (EntityData) obj;
+
+            return this.hashCode() == data.hashCode() && Arrays.equals(this.keys, data.keys) && Arrays.equals(this.types, data.types) && Arrays.equals(this.values, data.values) && Arrays.deepEquals(this.objects, data.objects);
+        }
+
+        return false;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        if (this.hash == 0)
+        {
+            int hash = Arrays.hashCode(this.keys);
+
+            hash = hash * 31 + Arrays.hashCode(this.types);
+            hash = hash * 31 + Arrays.hashCode(this.values);
+            hash = hash * 31 + Arrays.deepHashCode(this.objects);
+
+            this.hash = hash == 0 ? 1 : hash;
+        }
+
+        return this.hash;
+    }
+
+    @Override
+    public String toString()
+    {
+        return this.toNBT().toString();
+    }
+
+    /**
+     * Create NBT tag of value at given index
+     */
+    private NBTBase createTag(int index)
+    {
+        return this.objects == null || this.objects[index] == null ? createPrimitive(this.types[index], this.values[index]) : createObject(this.types[index], this.objects[index]);
+    }
+
+    /**
+     * Pack a primitive tag into long
+     */
+    private static long packPrimitive(NBTBase tag)
+    {
+        if (tag instanceof NBTTagFloat)
+        {
+            return Float.floatToRawIntBits(((NBTTagFloat) tag).getFloat());
+        }
+        else if (tag instanceof NBTTagDouble)
+        {
+            return Double.doubleToRawLongBits(((NBTTagDouble) tag).getDouble());
+        }
+
+        return ((NBTPrimitive) tag).getLong();
+    }
+
+    /**
+     * Pack a non-primitive tag, or return null if it's a primitive
+     */
+    private static Object packObject(NBTBase tag)
+    {
+        switch (tag.getId())
+        {
+            case 7:
+                return ((NBTTagByteArray) tag).getByteArray().clone();
+            case 8:
+                return ((NBTTagString) tag).getString();
+            case 9:
+                return ListData.fromNBT((NBTTagList) tag);
+            case 10:
+                return fromNBT((NBTTagCompound) tag);
+            case 11:
+                return ((NBTTagIntArray) tag).getIntArray().clone();
+        }
+
+        return tag instanceof NBTPrimitive ? null : tag.copy();
+    }
+
+    /**
+     * Create a primitive tag out of packed value
+     */
+    private static NBTBase createPrimitive(byte type, long value)
+    {
+        switch (type)
+        {
+            case 1:
+                return new NBTTagByte((byte) value);
+            case 2:
+                return new NBTTagShort((short) value);
+            case 3:
+                return new NBTTagInt((int) value);
+            case 4:
+                return new NBTTagLong(value);
+            case 5:
+                return new NBTTagFloat(Float.intBitsToFloat((int) value));
+            default:
+                return new NBTTagDouble(Double.longBitsToDouble(value));
+        }
+    }
+
+    /**
+     * Create a non-primitive tag out of packed object
+     */
+    private static NBTBase createObject(byte type, Object object)
+    {
+        switch (type)
+        {
+            case 7:
+                return new NBTTagByteArray(((byte[]) object).clone());
+            case 8:
+                return new NBTTagString((String) object);
+            case 9:
+                return ((ListData) object).toNBT();
+            case 10:
+                return ((EntityData) object).toNBT();
+            case 11:
+                return new NBTTagIntArray(((int[]) object).clone());
+        }
+
+        return ((NBTBase) object).copy();
+    }
+
+    /**
+     * Packed NBT list
+     *
+     * Elements of a list have the same type, so only one type is stored,
+     * and either primitive values or packed objects.
+     */
+    private static final class ListData
+    {
+        private final byte type;
+        private final long[] values;
+        private final Object[] objects;
+
+        public static ListData fromNBT(NBTTagList list)
+        {
+            int count = list.tagCount();
+            long[] values = null;
+            Object[] objects = null;
+
+            for (int i = 0; i < count; i++)
+            {
+                NBTBase value = list.get(i);
+                Object object = packObject(value);
+
+                if (object == null)
+                {
+                    if (values == null)
+                    {
+                        values = new long[count];
+                    }
+
+                    values[i] = packPrimitive(value);
+                }
+                else
+                {
+                    if (objects == null)
+                    {
+                        objects = new Object[count];
+                    }
+
+                    objects[i] = object;
+                }
+            }
+
+            return new ListData((byte) list.getTagType(), values == null ? NO_VALUES : values, objects);
+        }
+
+        private ListData(byte type, long[] values, Object[] objects)
+        {
+            this.type = type;
+            this.values = values;
+            this.objects = objects;
+        }
+
+        public NBTTagList toNBT()
+        {
+            NBTTagList list = new NBTTagList();
+            int count = this.objects == null ? this.values.length : this.objects.length;
+
+            for (int i = 0; i < count; i++)
+            {
+                list.appendTag(this.objects == null ? createPrimitive(this.type, this.values[i]) : createObject(this.type, this.objects[i]));
+            }
+
+            return list;
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            if (obj instanceof ListData)
+            {
+                ListData list = (ListData) obj;
+
+                return this.type == list.type && Arrays.equals(this.values, list.values) && Arrays.deepEquals(this.objects, list.objects);
+            }
+
+            return false;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return (this.type * 31 + Arrays.hashCode(this.values)) * 31 + Arrays.deepHashCode(this.objects);
+        }
+    }
+}
@@ -1,7 +1,10 @@
 package mchorse.metamorph.api;
 
+import java.util.Collections;
 import java.util.List;
 
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
 import com.google.common.collect.Lists;
 
 import mchorse.metamorph.api.models.IMorphProvider;
@@ -30,6 +33,39 @@ public class EntityUtils
      */
     private static List<String> removeAttributes = Lists.newArrayList("generic.followRange");
 
+    /**
+     * Pool of canonical entity data. Weak, so data which isn't used by any 
+     * morph anymore gets garbage collected 
+     */
+    private static final Interner<NBTTagCompound> DATA = Interners.newWeakInterner();
+
+    /**
+     * Pool of canonical packed entity data 
+     */
+    private static final Interner<EntityData> PACKED = Interners.newWeakInterner();
+
+    /**
+     * Get canonical instance of given entity data
+     * 
+     * Equal entity data (i.e. default data of the same mob acquired by 
+     * hundreds of players) is stored only once. Interned data is shared, so 
+     * it must not be modified, copy it instead, modify the copy and intern 
+     * it again.
+     */
+    public static NBTTagCompound internData(NBTTagCompound tag)
+    {
+        return tag == null ? null : DATA.intern(tag);
+    }
+
+    /**
+     * Pack given (stripped) entity data into its compact immutable form, 
+     * and get its canonical instance (see {@link EntityData})
+     */
+    public static EntityData packData(NBTTagCompound tag)
+    {
+        return tag == null ? null : PACKED.intern(EntityData.fromNBT(tag));
+    }
+
     /**
      * Strip some common {@link Entity} related tags, so there won't be 
      * interference with comparing two tags on  
@@ -144,6 +180,45 @@ public class EntityUtils
         return true;
     }
 
+    /**
+     * Compute a canonical fingerprint of given {@link NBTTagCompound}
+     * 
+     * The fingerprint is built out of alphabetically sorted keys. Strings and 
+     * primitives also contribute their values (with their type suffix), while 
+     * lists and compounds contribute only their keys. Thus, two tags which 
+     * are equal according to {@link #compareData(NBTTagCompound, NBTTagCompound)} 
+     * will always have the same fingerprint, so it can be safely used as a 
+     * hash key for morph lookups.
+     */
+    public static String fingerprintData(NBTTagCompound tag)
+    {
+        if (tag == null)
+        {
+            return "";
+        }
+
+        List<String> keys = Lists.newArrayList(tag.getKeySet());
+        StringBuilder builder = new StringBuilder();
+
+        Collections.sort(keys);
+
+        for (String key : keys)
+        {
+            NBTBase value = tag.getTag(key);
+
+            builder.append(key);
+
+            if (value instanceof NBTPrimitive || value instanceof NBTTagString)
+            {
+                builder.append('=').append(value.toString());
+            }
+
+            builder.append(';');
+        }
+
+        return builder.toString();
+    }
+
     /**
      * Get slot for given index of {@link Entity#getEquipmentAndArmor()}. I 
      * assume that it would be the same all the time, across all of the 
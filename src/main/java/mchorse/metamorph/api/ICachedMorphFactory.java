@@ -0,0 +1,26 @@
+package mchorse.metamorph.api;
+
+import net.minecraft.nbt.NBTTagCompound;
+
+/**
+ * Cached morph factory
+ *
+ * This is an optional extension of {@link IMorphFactory} for factories
+ * which generate expensive data (i.e. by constructing entities) that can be
+ * stored in the on-disk morph cache (see {@link MorphCache}) and restored on
+ * next start instead of generating it again.
+ */
+public interface ICachedMorphFactory extends IMorphFactory
+{
+    /**
+     * Write factory's data into the cache. Generate all of the data that
+     * should be cached over here, since it's called only when the cache is
+     * outdated.
+     */
+    public void writeCache(NBTTagCompound tag);
+
+    /**
+     * Read factory's data from the cache
+     */
+    public void readCache(NBTTagCompound tag);
+}
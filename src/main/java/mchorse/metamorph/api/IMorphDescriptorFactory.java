@@ -0,0 +1,36 @@
+package mchorse.metamorph.api;
+
+import java.util.List;
+
+import mchorse.metamorph.api.morphs.AbstractMorph;
+
+/**
+ * Morph descriptor factory
+ * 
+ * This is an optional extension of {@link IMorphFactory} for factories which 
+ * can list their morphs as lightweight {@link MorphDescriptor}s, instead of 
+ * creating all of the morphs at once in 
+ * {@link IMorphFactory#getMorphs(MorphList)}.
+ * 
+ * Factories which implement this interface may implement 
+ * {@link IMorphFactory#getMorphs(MorphList)} with 
+ * {@link MorphList#addDescriptors(List)}.
+ */
+public interface IMorphDescriptorFactory extends IMorphFactory
+{
+    /**
+     * Get descriptors of all available morphs for this morphing factory
+     * 
+     * Don't create morphs or construct entities over here, only describe
+     * them. This method may be called off the main thread (for example,
+     * by creative morph menu's category compiler).
+     */
+    public void getDescriptors(List<MorphDescriptor> descriptors);
+
+    /**
+     * Create a morph out of a descriptor that was provided by this factory. 
+     * Return null if the morph can't be created right now, the descriptor 
+     * doesn't cache null and will ask again on next call
+     */
+    public AbstractMorph getMorphFromDescriptor(MorphDescriptor descriptor);
+}
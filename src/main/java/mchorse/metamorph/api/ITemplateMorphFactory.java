@@ -0,0 +1,25 @@
+package mchorse.metamorph.api;
+
+import net.minecraft.nbt.NBTTagCompound;
+
+/**
+ * Template morph factory
+ *
+ * This is an optional extension of {@link IMorphFactory} for factories
+ * which morphs carry a lot of default data (i.e. entity morphs). Acquired
+ * morphs of such factories are saved in player's data only as a difference
+ * against factory's template (see
+ * {@link mchorse.metamorph.capabilities.morphing.MorphingCodec}).
+ */
+public interface ITemplateMorphFactory extends IMorphFactory
+{
+    /**
+     * Get default NBT of a morph with given name, i.e. what
+     * {@link mchorse.metamorph.api.morphs.AbstractMorph#toNBT(NBTTagCompound)}
+     * writes for a morph with default data. Returned tag is only read, so
+     * it may be shared.
+     *
+     * @return template tag, or null if there's no template for given name
+     */
+    public NBTTagCompound getTemplateNBT(String name);
+}
@@ -0,0 +1,272 @@
+package mchorse.metamorph.api;
+
+import java.io.File;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.Logger;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+/**
+ * Load profiler
+ *
+ * This class is responsible for recording wall time and allocated memory of
+ * loading phases, factories, models and settings files. Recorded sections
+ * are summarized in the log and written into a JSON report, so slow
+ * factories (including third-party ones) could be blamed.
+ *
+ * Usage:
+ *
+ * <pre>
+ * LoadProfiler.Section section = LoadProfiler.INSTANCE.start("factory", name);
+ *
+ * ...
+ * section.stop();
+ * </pre>
+ *
+ * Sections which were abandoned by an exception are simply not recorded.
+ * Sections may be recorded from any thread, allocation is measured for the
+ * thread which started the section (if JVM supports it, otherwise it's -1).
+ *
+ * Only the loading is profiled, once the report is written, recorded
+ * sections are dropped and new sections are no longer recorded (catalog
+ * rebuilds and lazy model loads would otherwise pile up forever).
+ */
+public class LoadProfiler
+{
+    /**
+     * Global profiler instance
+     */
+    public static final LoadProfiler INSTANCE = new LoadProfiler();
+
+    /**
+     * Recorded sections
+     */
+    private List<Section> sections = Collections.synchronizedList(new ArrayList<Section>());
+
+    /**
+     * Whether the report was written, and sections are no longer recorded
+     */
+    private volatile boolean finished;
+
+    /**
+     * Start a section with given category and name
+     */
+    public Section start(String category, String name)
+    {
+        return new Section(this, category, name);
+    }
+
+    /**
+     * Get a copy of recorded sections
+     */
+    public List<Section> getSections()
+    {
+        synchronized (this.sections)
+        {
+            return new ArrayList<Section>(this.sections);
+        }
+    }
+
+    /**
+     * Log out summary of recorded sections (sorted by category, and then by
+     * time, slowest first) and write machine-readable report into given
+     * file. After that, recorded sections are dropped and the profiler 
+     * stops recording
+     */
+    public void report(Logger logger, File file)
+    {
+        List<Section> sections = this.getSections();
+
+        this.finished = true;
+        this.sections.clear();
+        Map<String, long[]> totals = new LinkedHashMap<String, long[]>();
+
+        Collections.sort(sections, new Comparator<Section>()
+        {
+            @Override
+            public int compare(Section a, Section b)
+            {
+                int category = a.category.compareTo(b.category);
+
+                return category != 0 ? category : (a.time == b.time ? 0 : (a.time < b.time ? 1 : -1));
+            }
+        });
+
+        logger.log(Level.INFO, "Metamorph load profile (" + sections.size() + " sections):");
+
+        for (Section section : sections)
+        {
+            long[] total = totals.get(section.category);
+
+            if (total == null)
+            {
+                totals.put(section.category, total = new long[2]);
+            }
+
+            total[0] += section.time;
+            total[1] += Math.max(section.allocated, 0);
+
+            logger.log(Level.INFO, String.format("  [%s] %s: %.2f ms, %s", section.category, section.name, section.time / 1000000.0, formatBytes(section.allocated)));
+        }
+
+        for (Map.Entry<String, long[]> entry : totals.entrySet())
+        {
+            logger.log(Level.INFO, String.format("  Total [%s]: %.2f ms, %s", entry.getKey(), entry.getValue()[0] / 1000000.0, formatBytes(entry.getValue()[1])));
+        }
+
+        this.write(file, sections, totals);
+    }
+
+    /**
+     * Write JSON report
+     */
+    private void write(File file, List<Section> sections, Map<String, long[]> totals)
+    {
+        Map<String, Object> report = new LinkedHashMap<String, Object>();
+        Map<String, Object> categories = new LinkedHashMap<String, Object>();
+        List<Object> entries = new ArrayList<Object>();
+
+        for (Map.Entry<String, long[]> entry : totals.entrySet())
+        {
+            Map<String, Object> total = new LinkedHashMap<String, Object>();
+
+            total.put("time_ns", entry.getValue()[0]);
+            total.put("allocated_bytes", entry.getValue()[1]);
+            categories.put(entry.getKey(), total);
+        }
+
+        for (Section section : sections)
+        {
+            Map<String, Object> object = new LinkedHashMap<String, Object>();
+
+            object.put("category", section.category);
+            object.put("name", section.name);
+            object.put("thread", section.thread);
+            object.put("time_ns", section.time);
+            object.put("allocated_bytes", section.allocated);
+            entries.add(object);
+        }
+
+        report.put("timestamp", System.currentTimeMillis());
+        report.put("categories", categories);
+        report.put("sections", entries);
+
+        try
+        {
+            Gson gson = new GsonBuilder().setPrettyPrinting().create();
+
+            file.getParentFile().mkdirs();
+
+            PrintWriter writer = new PrintWriter(file, "UTF-8");
+
+            writer.print(gson.toJson(report));
+            writer.close();
+        }
+        catch (Exception e)
+        {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Format bytes in human-readable way
+     */
+    private static String formatBytes(long bytes)
+    {
+        if (bytes < 0)
+        {
+            return "n/a";
+        }
+
+        return bytes < 1024 * 1024 ? String.format("%.1f KiB", bytes / 1024.0) : String.format("%.2f MiB", bytes / (1024.0 * 1024.0));
+    }
+
+    /**
+     * Get amount of bytes allocated by current thread, or -1 if JVM doesn't
+     * support it
+     */
+    @SuppressWarnings("restriction")
+    private static long getAllocatedBytes()
+    {
+        try
+        {
+            ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+
+            if (bean instanceof com.sun.management.ThreadMXBean)
+            {
+                return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        catch (Throwable e)
+        {}
+
+        return -1;
+    }
+
+    /**
+     * Profiler section
+     *
+     * Represents a single measured piece of work. It's recorded in the
+     * profiler when it's stopped.
+     */
+    public static class Section
+    {
+        private LoadProfiler profiler;
+
+        public final String category;
+        public final String name;
+        public final String thread;
+
+        /**
+         * Wall time in nanoseconds
+         */
+        public long time;
+
+        /**
+         * Allocated bytes, or -1 if unknown
+         */
+        public long allocated;
+
+        private boolean stopped;
+
+        private Section(LoadProfiler profiler, String category, String name)
+        {
+            this.profiler = profiler;
+            this.category = category;
+            this.name = name;
+            this.thread = Thread.currentThread().getName();
+            this.allocated = getAllocatedBytes();
+            this.time = System.nanoTime();
+        }
+
+        /**
+         * Stop this section and record it
+         */
+        public void stop()
+        {
+            if (this.stopped || this.profiler.finished)
+            {
+                return;
+            }
+
+            long allocated = getAllocatedBytes();
+
+            this.time = System.nanoTime() - this.time;
+            this.allocated = this.allocated < 0 || allocated < 0 ? -1 : allocated - this.allocated;
+            this.stopped = true;
+
+            this.profiler.sections.add(this);
+        }
+    }
+}
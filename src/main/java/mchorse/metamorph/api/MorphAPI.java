@@ -8,7 +8,6 @@ import mchorse.metamorph.capabilities.morphing.Morphing;
 import mchorse.metamorph.network.Dispatcher;
 import mchorse.metamorph.network.common.PacketAcquireMorph;
 import mchorse.metamorph.network.common.PacketMorph;
-import mchorse.metamorph.network.common.PacketMorphPlayer;
 import net.minecraft.entity.player.EntityPlayer;
 import net.minecraft.entity.player.EntityPlayerMP;
 import net.minecraftforge.common.MinecraftForge;
@@ -61,7 +60,7 @@ public class MorphAPI
         if (!player.worldObj.isRemote && morphed)
         {
             Dispatcher.sendTo(new PacketMorph(morph), (EntityPlayerMP) player);
-            Dispatcher.updateTrackers(player, new PacketMorphPlayer(player.getEntityId(), morph));
+            Dispatcher.updateTrackers(player, morph);
         }
 
         return morphed;
@@ -87,11 +86,12 @@ public class MorphAPI
             return false;
         }
 
-        boolean acquired = Morphing.get(player).acquireMorph(event.morph);
+        IMorphing morphing = Morphing.get(player);
+        boolean acquired = morphing.acquireMorph(event.morph);
 
         if (!player.worldObj.isRemote && acquired)
         {
-            Dispatcher.sendTo(new PacketAcquireMorph(event.morph), (EntityPlayerMP) player);
+            Dispatcher.sendTo(new PacketAcquireMorph(event.morph, morphing.getMorphId(event.morph)), (EntityPlayerMP) player);
         }
 
         return acquired;
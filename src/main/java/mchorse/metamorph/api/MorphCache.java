@@ -0,0 +1,321 @@
+package mchorse.metamorph.api;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.io.Files;
+
+import mchorse.metamorph.Metamorph;
+import net.minecraft.entity.Entity;
+import net.minecraft.entity.EntityList;
+import net.minecraft.nbt.CompressedStreamTools;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.nbt.NBTTagList;
+import net.minecraftforge.fml.common.Loader;
+import net.minecraftforge.fml.common.ModContainer;
+
+/**
+ * Morph cache
+ *
+ * This class is responsible for storing compiled morph catalog on the disk.
+ * It stores descriptors of {@link IMorphDescriptorFactory}s and the data of
+ * {@link ICachedMorphFactory}s (i.e. stripped entity data),
+ * so next time the game starts, the catalog is loaded straight into
+ * {@link MorphManager} without instantiating every entity.
+ *
+ * The cache is keyed by the hash of the entity registry, morph settings
+ * file and versions of all loaded mods. If the key doesn't match, the cache
+ * is ignored, and it will be rebuilt and saved on server start.
+ */
+public class MorphCache
+{
+    /**
+     * Version of cache's format. Increment it every time the format or the
+     * data that factories store changes
+     */
+    public static final int VERSION = 2;
+
+    /**
+     * Cache file
+     */
+    public File file;
+
+    /**
+     * Morph settings file which is hashed into the key
+     */
+    public File settings;
+
+    /**
+     * Key of current game setup
+     */
+    private String key;
+
+    /**
+     * Whether the cache is up to date
+     */
+    private boolean loaded;
+
+    public MorphCache(File file, File settings)
+    {
+        this.file = file;
+        this.settings = settings;
+    }
+
+    /**
+     * Whether the cache was loaded (or saved), i.e. it's up to date
+     */
+    public boolean isLoaded()
+    {
+        return this.loaded;
+    }
+
+    /**
+     * Get the key of current game setup
+     *
+     * The key is SHA-1 hash of cache's format version, entity registry
+     * (names and classes), morph settings file and all loaded mods and their
+     * versions.
+     */
+    public String getKey()
+    {
+        if (this.key != null)
+        {
+            return this.key;
+        }
+
+        try
+        {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            List<String> entries = new ArrayList<String>();
+
+            for (Map.Entry<String, Class<? extends Entity>> entry : EntityList.NAME_TO_CLASS.entrySet())
+            {
+                entries.add(entry.getKey() + "=" + entry.getValue().getName());
+            }
+
+            for (ModContainer mod : Loader.instance().getActiveModList())
+            {
+                entries.add(mod.getModId() + "@" + mod.getVersion());
+            }
+
+            Collections.sort(entries);
+            entries.add(0, String.valueOf(VERSION));
+
+            for (String entry : entries)
+            {
+                digest.update(entry.getBytes("UTF-8"));
+                digest.update((byte) 0);
+            }
+
+            if (this.settings != null && this.settings.exists())
+            {
+                digest.update(Files.toByteArray(this.settings));
+            }
+
+            StringBuilder builder = new StringBuilder();
+
+            for (byte b : digest.digest())
+            {
+                builder.append(String.format("%02x", b));
+            }
+
+            this.key = builder.toString();
+        }
+        catch (Exception e)
+        {
+            e.printStackTrace();
+
+            this.key = "";
+        }
+
+        return this.key;
+    }
+
+    /**
+     * Load the cache into given morph manager
+     *
+     * @return true if the cache exists and is up to date
+     */
+    public boolean load(MorphManager manager)
+    {
+        if (!this.file.exists())
+        {
+            return false;
+        }
+
+        LoadProfiler.Section section = LoadProfiler.INSTANCE.start("cache", "load");
+
+        try
+        {
+            InputStream input = new FileInputStream(this.file);
+            NBTTagCompound tag;
+
+            try
+            {
+                tag = CompressedStreamTools.readCompressed(input);
+            }
+            finally
+            {
+                input.close();
+            }
+
+            if (!tag.getString("Key").equals(this.getKey()))
+            {
+                Metamorph.log("Morph cache is outdated, it will be rebuilt!");
+                section.stop();
+
+                return false;
+            }
+
+            NBTTagCompound factories = tag.getCompoundTag("Factories");
+
+            for (IMorphFactory factory : manager.factories)
+            {
+                String name = factory.getClass().getName();
+
+                if (!factories.hasKey(name, 10))
+                {
+                    continue;
+                }
+
+                this.readFactory(manager, factory, factories.getCompoundTag(name));
+            }
+
+            this.loaded = true;
+        }
+        catch (Exception e)
+        {
+            e.printStackTrace();
+        }
+
+        section.stop();
+
+        return this.loaded;
+    }
+
+    /**
+     * Read factory's cached descriptors and data
+     */
+    private void readFactory(MorphManager manager, IMorphFactory factory, NBTTagCompound tag)
+    {
+        if (factory instanceof IMorphDescriptorFactory && tag.hasKey("Descriptors", 9))
+        {
+            NBTTagList list = tag.getTagList("Descriptors", 10);
+            List<MorphDescriptor> descriptors = new ArrayList<MorphDescriptor>(list.tagCount());
+
+            for (int i = 0, c = list.tagCount(); i < c; i++)
+            {
+                NBTTagCompound entry = list.getCompoundTagAt(i);
+                NBTTagCompound morph = entry.getCompoundTag("Tag");
+
+                descriptors.add(new MorphDescriptor(factory, morph.getString("Name"), entry.getString("Category"), entry.getString("Variant"), morph));
+            }
+
+            manager.setCachedDescriptors(factory, descriptors);
+        }
+
+        if (factory instanceof ICachedMorphFactory && tag.hasKey("Data", 10))
+        {
+            ((ICachedMorphFactory) factory).readCache(tag.getCompoundTag("Data"));
+        }
+    }
+
+    /**
+     * Save the catalog of given morph manager into the cache
+     *
+     * Call it when there's a world to generate factories' data in (i.e. on
+     * server start).
+     */
+    public void save(MorphManager manager)
+    {
+        LoadProfiler.Section section = LoadProfiler.INSTANCE.start("cache", "save");
+        NBTTagCompound tag = new NBTTagCompound();
+        NBTTagCompound factories = new NBTTagCompound();
+
+        for (IMorphFactory factory : manager.factories)
+        {
+            NBTTagCompound data = this.writeFactory(manager, factory);
+
+            if (data != null)
+            {
+                factories.setTag(factory.getClass().getName(), data);
+            }
+        }
+
+        tag.setString("Key", this.getKey());
+        tag.setTag("Factories", factories);
+
+        try
+        {
+            this.file.getParentFile().mkdirs();
+
+            OutputStream output = new FileOutputStream(this.file);
+
+            try
+            {
+                CompressedStreamTools.writeCompressed(tag, output);
+            }
+            finally
+            {
+                output.close();
+            }
+
+            this.loaded = true;
+        }
+        catch (Exception e)
+        {
+            e.printStackTrace();
+        }
+
+        section.stop();
+    }
+
+    /**
+     * Write factory's descriptors and data
+     *
+     * @return factory's cache tag, or null if the factory has nothing to
+     *         cache
+     */
+    private NBTTagCompound writeFactory(MorphManager manager, IMorphFactory factory)
+    {
+        NBTTagCompound tag = new NBTTagCompound();
+
+        if (factory instanceof IMorphDescriptorFactory)
+        {
+            List<MorphDescriptor> descriptors = new ArrayList<MorphDescriptor>();
+            NBTTagList list = new NBTTagList();
+
+            ((IMorphDescriptorFactory) factory).getDescriptors(descriptors);
+
+            for (MorphDescriptor descriptor : descriptors)
+            {
+                NBTTagCompound entry = new NBTTagCompound();
+
+                entry.setString("Category", descriptor.category);
+                entry.setString("Variant", descriptor.variant);
+                entry.setTag("Tag", descriptor.tag.copy());
+                list.appendTag(entry);
+            }
+
+            tag.setTag("Descriptors", list);
+        }
+
+        if (factory instanceof ICachedMorphFactory)
+        {
+            NBTTagCompound data = new NBTTagCompound();
+
+            ((ICachedMorphFactory) factory).writeCache(data);
+            tag.setTag("Data", data);
+        }
+
+        return tag.hasNoTags() ? null : tag;
+    }
+}
@@ -0,0 +1,137 @@
+package mchorse.metamorph.api;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Morph catalog
+ *
+ * This class is a read-only, indexed snapshot of all morph descriptors that
+ * factories provide (see {@link MorphManager#getCatalog()}). It doesn't
+ * depend on any side, so it can be used for listing and validating morphs
+ * by server code, commands and third-party plugins.
+ *
+ * Catalog is built once per server start, so querying it is cheap.
+ */
+public class MorphCatalog
+{
+    /**
+     * All descriptors in this catalog
+     */
+    private List<MorphDescriptor> descriptors;
+
+    /**
+     * Descriptors indexed by morph name
+     */
+    private Map<String, List<MorphDescriptor>> names = new LinkedHashMap<String, List<MorphDescriptor>>();
+
+    /**
+     * Descriptors indexed by category
+     */
+    private Map<String, List<MorphDescriptor>> categories = new LinkedHashMap<String, List<MorphDescriptor>>();
+
+    public MorphCatalog(List<MorphDescriptor> descriptors)
+    {
+        this.descriptors = descriptors;
+
+        for (MorphDescriptor descriptor : descriptors)
+        {
+            add(this.names, descriptor.name, descriptor);
+            add(this.categories, descriptor.category, descriptor);
+        }
+
+        seal(this.names);
+        seal(this.categories);
+    }
+
+    private static void add(Map<String, List<MorphDescriptor>> map, String key, MorphDescriptor descriptor)
+    {
+        List<MorphDescriptor> list = map.get(key);
+
+        if (list == null)
+        {
+            list = new ArrayList<MorphDescriptor>();
+            map.put(key, list);
+        }
+
+        list.add(descriptor);
+    }
+
+    private static void seal(Map<String, List<MorphDescriptor>> map)
+    {
+        for (Map.Entry<String, List<MorphDescriptor>> entry : map.entrySet())
+        {
+            entry.setValue(Collections.unmodifiableList(entry.getValue()));
+        }
+    }
+
+    /**
+     * Get all descriptors in this catalog
+     */
+    public List<MorphDescriptor> getDescriptors()
+    {
+        return this.descriptors;
+    }
+
+    /**
+     * Get descriptors of all variants of a morph by given name
+     *
+     * @return read-only list of descriptors, empty if there's no such morph
+     *         in the catalog
+     */
+    public List<MorphDescriptor> getDescriptors(String name)
+    {
+        List<MorphDescriptor> list = this.names.get(name);
+
+        return list == null ? Collections.<MorphDescriptor> emptyList() : list;
+    }
+
+    /**
+     * Get descriptors of all morphs in given category
+     *
+     * @return read-only list of descriptors, empty if there's no such
+     *         category
+     */
+    public List<MorphDescriptor> getCategory(String category)
+    {
+        List<MorphDescriptor> list = this.categories.get(category);
+
+        return list == null ? Collections.<MorphDescriptor> emptyList() : list;
+    }
+
+    /**
+     * Get names of all morphs in this catalog
+     */
+    public Set<String> getNames()
+    {
+        return Collections.unmodifiableSet(this.names.keySet());
+    }
+
+    /**
+     * Get all categories of this catalog
+     */
+    public Set<String> getCategories()
+    {
+        return Collections.unmodifiableSet(this.categories.keySet());
+    }
+
+    /**
+     * Whether this catalog lists a morph by given name
+     */
+    public boolean contains(String name)
+    {
+        return this.names.containsKey(name);
+    }
+
+    /**
+     * Get count of descriptors in this catalog
+     */
+    public int size()
+    {
+        return this.descriptors.size();
+    }
+}
@@ -0,0 +1,87 @@
+package mchorse.metamorph.api;
+
+import mchorse.metamorph.api.morphs.AbstractMorph;
+import net.minecraft.nbt.NBTTagCompound;
+
+/**
+ * Morph descriptor
+ * 
+ * This class is a lightweight catalog entry of a morph. It contains only the 
+ * information needed to list a morph (name, category, variant and raw NBT), 
+ * and it turns into a real {@link AbstractMorph} only when 
+ * {@link #getMorph()} is called, i.e. when the morph is about to be rendered 
+ * or selected.
+ */
+public class MorphDescriptor
+{
+    /**
+     * Factory which described this morph 
+     */
+    public IMorphFactory factory;
+
+    /* Meta information */
+    public String name;
+    public String category;
+    public String variant;
+
+    /**
+     * Raw morph NBT. It contains at least "Name" tag, the rest depends on 
+     * the factory. Don't modify it.
+     */
+    public NBTTagCompound tag;
+
+    /**
+     * Created morph. Volatile, since on the integrated server descriptors 
+     * are shared between client and server threads
+     */
+    private volatile AbstractMorph morph;
+
+    public MorphDescriptor(IMorphFactory factory, String name, String category, String variant, NBTTagCompound tag)
+    {
+        this.factory = factory;
+        this.name = name;
+        this.category = category;
+        this.variant = variant;
+        this.tag = tag;
+    }
+
+    /**
+     * Create a descriptor for an already created morph. Used for factories 
+     * which don't implement {@link IMorphDescriptorFactory}. 
+     */
+    public MorphDescriptor(IMorphFactory factory, String category, String variant, AbstractMorph morph)
+    {
+        this(factory, morph.name, category, variant, null);
+
+        this.morph = morph;
+    }
+
+    /**
+     * Whether this descriptor already has created its morph 
+     */
+    public boolean isCreated()
+    {
+        return this.morph != null;
+    }
+
+    /**
+     * Get the morph of this descriptor
+     * 
+     * The morph is created by the factory upon first call, and it's reused 
+     * later on. If the factory couldn't create it (null), nothing is cached 
+     * and it will be created on next call. 
+     * 
+     * Call it only on the main (client or server) thread, since creating a 
+     * morph might require constructing an entity in the world of current 
+     * side.
+     */
+    public AbstractMorph getMorph()
+    {
+        if (this.morph == null && this.factory instanceof IMorphDescriptorFactory)
+        {
+            this.morph = ((IMorphDescriptorFactory) this.factory).getMorphFromDescriptor(this);
+        }
+
+        return this.morph;
+    }
+}
@@ -1,6 +1,7 @@
 package mchorse.metamorph.api;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -82,6 +83,25 @@ public class MorphList
         }
     }
 
+    /**
+     * Add morphs out of given descriptors to this morph list
+     * 
+     * This method creates morphs of all given descriptors, and adds them as 
+     * variants. 
+     */
+    public void addDescriptors(List<MorphDescriptor> descriptors)
+    {
+        for (MorphDescriptor descriptor : descriptors)
+        {
+            AbstractMorph morph = descriptor.getMorph();
+
+            if (morph != null)
+            {
+                this.addMorphVariant(descriptor.name, descriptor.category, descriptor.variant, morph);
+            }
+        }
+    }
+
     /**
      * Remove a morph variant from the morph list 
      */
@@ -99,6 +119,28 @@ public class MorphList
         }
     }
 
+    /**
+     * Create a read-only copy of this morph list
+     * 
+     * Any attempt to add or remove morphs from returned list will result in 
+     * {@link UnsupportedOperationException}. Cells are shared with this list.
+     */
+    public MorphList toImmutable()
+    {
+        Map<String, List<MorphCell>> morphs = new HashMap<String, List<MorphCell>>();
+
+        for (Map.Entry<String, List<MorphCell>> entry : this.morphs.entrySet())
+        {
+            morphs.put(entry.getKey(), Collections.unmodifiableList(new ArrayList<MorphCell>(entry.getValue())));
+        }
+
+        MorphList list = new MorphList();
+
+        list.morphs = Collections.unmodifiableMap(morphs);
+
+        return list;
+    }
+
     /**
      * Morph cell
      * 
@@ -1,18 +1,26 @@
 package mchorse.metamorph.api;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import mchorse.metamorph.api.abilities.IAbility;
 import mchorse.metamorph.api.abilities.IAction;
 import mchorse.metamorph.api.abilities.IAttackAbility;
 import mchorse.metamorph.api.models.ModelManager;
 import mchorse.metamorph.api.morphs.AbstractMorph;
+import mchorse.metamorph.capabilities.morphing.IMorphing;
+import mchorse.metamorph.capabilities.morphing.Morphing;
 import net.minecraft.client.resources.I18n;
 import net.minecraft.entity.Entity;
 import net.minecraft.entity.EntityList;
+import net.minecraft.entity.player.EntityPlayer;
 import net.minecraft.nbt.NBTTagCompound;
 import net.minecraftforge.fml.relauncher.Side;
 import net.minecraftforge.fml.relauncher.SideOnly;
@@ -45,15 +53,82 @@ public class MorphManager
     public Map<String, IAttackAbility> attacks = new HashMap<String, IAttackAbility>();
 
     /**
-     * Settings for morphs 
+     * Settings for morphs. It's concurrent map, since settings are read 
+     * while decoding morphs on network threads, and they can be reloaded 
+     * on the server thread
      */
-    public Map<String, MorphSettings> settings = new HashMap<String, MorphSettings>();
+    public Map<String, MorphSettings> settings = new ConcurrentHashMap<String, MorphSettings>();
 
     /**
-     * Registered morph factories
+     * Snapshot of morph settings provided by factories (i.e. without 
+     * user's settings), see {@link #snapshotSettings()}
+     */
+    private Map<String, MorphSettings> defaults = new HashMap<String, MorphSettings>();
+
+    /**
+     * Registered morph factories. Use {@link #addFactory(IMorphFactory)} to 
+     * add a new factory, so the resolution table would be invalidated.
      */
     public List<IMorphFactory> factories = new ArrayList<IMorphFactory>();
 
+    /**
+     * Resolution table of morph names to the factories which provide them. 
+     * It's filled on demand and shared between server, client and network 
+     * threads, hence concurrent map.
+     */
+    private Map<String, IMorphFactory> resolved = new ConcurrentHashMap<String, IMorphFactory>();
+
+    /**
+     * Morph names that no factory provides (negative results of the 
+     * resolution table) 
+     */
+    private Set<String> unresolved = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    /**
+     * Prototype registry. Every morph name has one fully configured (with 
+     * applied {@link MorphSettings}) template morph, and decoded morphs are 
+     * cloned from it, sharing abilities, attack and action by reference.
+     */
+    private Map<String, AbstractMorph> prototypes = new ConcurrentHashMap<String, AbstractMorph>();
+
+    /**
+     * Cached morph catalog (all morphs that factories provide). It's 
+     * rebuilt only when factories or settings change.
+     */
+    private MorphList morphs;
+
+    /**
+     * Cached descriptors of all morphs that factories provide. Volatile, 
+     * since descriptors may be collected on a background thread (see 
+     * {@link #canCollectAsync()}).
+     */
+    private volatile List<MorphDescriptor> descriptors;
+
+    /**
+     * Descriptors loaded from the on-disk morph cache (see 
+     * {@link MorphCache}) per factory. They're used instead of asking 
+     * factories to describe their morphs, until factories change
+     */
+    private Map<IMorphFactory, List<MorphDescriptor>> cached = new ConcurrentHashMap<IMorphFactory, List<MorphDescriptor>>();
+
+    /**
+     * Cached indexed morph catalog, see {@link #getCatalog()} 
+     */
+    private volatile MorphCatalog catalog;
+
+    /**
+     * Catalog version, it's incremented every time the cached morph 
+     * catalog is reset. Used to find out whether data compiled out of the 
+     * catalog is outdated.
+     */
+    private volatile int catalogVersion;
+
+    /**
+     * Count of factories at the moment when resolution table was reset. Used 
+     * to catch factories that were added directly to {@link #factories}.
+     */
+    private int resolvedFactories;
+
     /**
      * Model manager
      */
@@ -65,6 +140,246 @@ public class MorphManager
     private MorphManager()
     {}
 
+    /**
+     * Add a morph factory
+     * 
+     * Factories that were added later have higher priority when resolving 
+     * morphs by name.
+     */
+    public void addFactory(IMorphFactory factory)
+    {
+        this.factories.add(factory);
+        this.invalidateFactories();
+    }
+
+    /**
+     * Reset the morph name resolution table
+     * 
+     * Call this method when a factory starts (or stops) providing some 
+     * morphs after it was registered.
+     */
+    public void invalidateFactories()
+    {
+        this.resolved.clear();
+        this.unresolved.clear();
+        this.resolvedFactories = this.factories.size();
+        this.cached.clear();
+        this.invalidateSettings();
+    }
+
+    /**
+     * Reset all morph prototypes and cached morph catalog
+     * 
+     * Call this method when {@link #settings} were changed, so morphs would 
+     * be decoded with new settings.
+     */
+    public void invalidateSettings()
+    {
+        this.prototypes.clear();
+        this.invalidateMorphs();
+    }
+
+    /**
+     * Remember current morph settings as default settings
+     * 
+     * Call it after factories were registered, but before user's settings 
+     * were loaded, so user settings could be reloaded later (see 
+     * {@link MorphUtils#reloadMorphSettings(MorphManager, java.io.File)}).
+     */
+    public void snapshotSettings()
+    {
+        this.defaults.clear();
+
+        for (Map.Entry<String, MorphSettings> entry : this.settings.entrySet())
+        {
+            this.defaults.put(entry.getKey(), entry.getValue().copy());
+        }
+    }
+
+    /**
+     * Get default morph settings, see {@link #snapshotSettings()}. Don't 
+     * modify returned settings. 
+     */
+    public Map<String, MorphSettings> getDefaultSettings()
+    {
+        return Collections.unmodifiableMap(this.defaults);
+    }
+
+    /**
+     * Update morph settings incrementally
+     * 
+     * Given settings are compared against current settings, and only 
+     * changed (added, removed or modified) settings are replaced. 
+     * Prototypes of changed morphs are reset, and already created catalog 
+     * morphs are reconfigured in place, so nothing else gets rebuilt.
+     * 
+     * @return names of morphs which settings were changed
+     */
+    public Set<String> updateSettings(Map<String, MorphSettings> settings)
+    {
+        Set<String> changed = new HashSet<String>();
+
+        for (Map.Entry<String, MorphSettings> entry : settings.entrySet())
+        {
+            if (!entry.getValue().equals(this.settings.get(entry.getKey())))
+            {
+                changed.add(entry.getKey());
+            }
+        }
+
+        for (String name : this.settings.keySet())
+        {
+            if (!settings.containsKey(name))
+            {
+                changed.add(name);
+            }
+        }
+
+        for (String name : changed)
+        {
+            MorphSettings setting = settings.get(name);
+
+            if (setting == null)
+            {
+                this.settings.remove(name);
+            }
+            else
+            {
+                this.settings.put(name, setting);
+            }
+
+            this.prototypes.remove(name);
+        }
+
+        List<MorphDescriptor> descriptors = this.descriptors;
+
+        if (descriptors != null && !changed.isEmpty())
+        {
+            for (MorphDescriptor descriptor : descriptors)
+            {
+                if (descriptor.isCreated() && changed.contains(descriptor.name))
+                {
+                    this.reconfigure(descriptor.getMorph());
+                }
+            }
+        }
+
+        return changed;
+    }
+
+    /**
+     * Reconfigure player's current and acquired morphs which names are in 
+     * given set (usually result of {@link #updateSettings(Map)})
+     * 
+     * Abilities which were removed from current morph are notified about 
+     * demorphing, and new abilities are notified about morphing. Health and 
+     * speed are picked up by the morph update loop.
+     * 
+     * @return true if player's current morph was reconfigured
+     */
+    public boolean applySettings(EntityPlayer player, Set<String> names)
+    {
+        IMorphing morphing = Morphing.get(player);
+
+        if (morphing == null)
+        {
+            return false;
+        }
+
+        /* Acquired morphs which weren't created yet will pick up new 
+         * settings from prototypes when they're created */
+        List<AbstractMorph> acquired = morphing instanceof Morphing ? ((Morphing) morphing).getLoadedMorphs() : morphing.getAcquiredMorphs();
+
+        for (AbstractMorph morph : acquired)
+        {
+            if (morph != null && names.contains(morph.name))
+            {
+                this.reconfigure(morph);
+            }
+        }
+
+        AbstractMorph current = morphing.getCurrentMorph();
+
+        if (current == null || !names.contains(current.name))
+        {
+            return false;
+        }
+
+        List<IAbility> previous = Arrays.asList(current.abilities);
+
+        this.reconfigure(current);
+
+        List<IAbility> next = Arrays.asList(current.abilities);
+
+        for (IAbility ability : previous)
+        {
+            if (!next.contains(ability))
+            {
+                ability.onDemorph(player);
+            }
+        }
+
+        for (IAbility ability : next)
+        {
+            if (!previous.contains(ability))
+            {
+                ability.onMorph(player);
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Reset cached morph catalog, so it would be rebuilt next time 
+     * {@link #getMorphs()} is called 
+     */
+    public void invalidateMorphs()
+    {
+        this.morphs = null;
+        this.descriptors = null;
+        this.catalog = null;
+        this.catalogVersion++;
+    }
+
+    /**
+     * Get catalog version, see {@link #invalidateMorphs()} 
+     */
+    public int getCatalogVersion()
+    {
+        return this.catalogVersion;
+    }
+
+    /**
+     * Whether descriptors can be collected off the main thread
+     * 
+     * It's possible only when every factory implements 
+     * {@link IMorphDescriptorFactory}, since legacy factories create their 
+     * morphs (and entities) while listing them. 
+     */
+    public boolean canCollectAsync()
+    {
+        for (IMorphFactory factory : this.factories)
+        {
+            if (!(factory instanceof IMorphDescriptorFactory))
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Set cached descriptors of given factory, so the factory won't be 
+     * asked to describe its morphs (see {@link MorphCache}) 
+     */
+    public void setCachedDescriptors(IMorphFactory factory, List<MorphDescriptor> descriptors)
+    {
+        this.cached.put(factory, descriptors);
+        this.invalidateMorphs();
+    }
+
     /**
      * Register all morph factories 
      */
@@ -72,8 +387,15 @@ public class MorphManager
     {
         for (int i = this.factories.size() - 1; i >= 0; i--)
         {
-            this.factories.get(i).register(this);
+            IMorphFactory factory = this.factories.get(i);
+            LoadProfiler.Section section = LoadProfiler.INSTANCE.start("factory", factory.getClass().getName() + ".register");
+
+            factory.register(this);
+            section.stop();
         }
+
+        /* Factories usually fill their morphs during registration */
+        this.invalidateFactories();
     }
 
     /**
@@ -84,67 +406,309 @@ public class MorphManager
     {
         for (int i = this.factories.size() - 1; i >= 0; i--)
         {
-            this.factories.get(i).registerClient(this);
+            IMorphFactory factory = this.factories.get(i);
+            LoadProfiler.Section section = LoadProfiler.INSTANCE.start("factory", factory.getClass().getName() + ".registerClient");
+
+            factory.registerClient(this);
+            section.stop();
         }
+
+        /* Client registration may assign renderers to catalog morphs */
+        this.invalidateMorphs();
     }
 
     /**
-     * Checks if manager has given morph by ID and NBT tag compound
+     * Get factory which provides a morph by given name
+     * 
+     * This method iterates over all {@link IMorphFactory}s (in reverse order) 
+     * only once per name, the result (including absence of the factory) is 
+     * stored in the resolution table.
      * 
-     * This meethod iterates over all {@link IMorphFactory}s and if any of them 
-     * returns true, then there's a morph, otherwise false.
+     * @return a factory which provides a morph, or null if there's no such 
+     *         factory
      */
-    public boolean hasMorph(String name)
+    public IMorphFactory getFactory(String name)
     {
+        if (this.resolvedFactories != this.factories.size())
+        {
+            this.invalidateFactories();
+        }
+
+        IMorphFactory factory = this.resolved.get(name);
+
+        if (factory != null || this.unresolved.contains(name))
+        {
+            return factory;
+        }
+
         for (int i = this.factories.size() - 1; i >= 0; i--)
         {
             if (this.factories.get(i).hasMorph(name))
             {
-                return true;
+                factory = this.factories.get(i);
+                break;
             }
         }
 
-        return false;
+        if (factory != null)
+        {
+            this.resolved.put(name, factory);
+        }
+        else
+        {
+            this.unresolved.add(name);
+        }
+
+        return factory;
+    }
+
+    /**
+     * Checks if manager has given morph by ID and NBT tag compound
+     * 
+     * This method looks up {@link IMorphFactory} in the resolution table, see 
+     * {@link #getFactory(String)}.
+     */
+    public boolean hasMorph(String name)
+    {
+        return this.getFactory(name) != null;
+    }
+
+    /**
+     * Get a prototype morph by given name
+     * 
+     * Prototype is created once by morph's factory out of NBT tag with only 
+     * the name, and configured with morph's settings. Don't modify returned 
+     * prototype, {@link AbstractMorph#clone()} it instead.
+     * 
+     * @return a configured prototype morph, or null if there's no such morph 
+     *         or its factory can't create a morph without additional data
+     */
+    public AbstractMorph getPrototype(String name)
+    {
+        AbstractMorph prototype = this.prototypes.get(name);
+
+        if (prototype != null)
+        {
+            return prototype;
+        }
+
+        IMorphFactory factory = this.getFactory(name);
+
+        if (factory == null)
+        {
+            return null;
+        }
+
+        NBTTagCompound tag = new NBTTagCompound();
+
+        tag.setString("Name", name);
+        prototype = factory.getMorphFromNBT(tag);
+
+        if (prototype != null)
+        {
+            this.applySettings(prototype);
+            this.prototypes.put(name, prototype);
+        }
+
+        return prototype;
     }
 
     /**
      * Get an abstract morph from NBT
      * 
-     * This method iterates over all {@link IMorphFactory}s, returns a morph 
-     * from the first morph factory that does have a morph.
+     * This method clones the morph's prototype (see 
+     * {@link #getPrototype(String)}), reads given NBT into the clone and 
+     * applies morph settings on it. If there's no prototype for the morph, 
+     * the morph is created by the factory that provides a morph by NBT's 
+     * name (see {@link #getFactory(String)}).
      */
     public AbstractMorph morphFromNBT(NBTTagCompound tag)
     {
         String name = tag.getString("Name");
+        AbstractMorph prototype = this.getPrototype(name);
 
-        for (int i = this.factories.size() - 1; i >= 0; i--)
+        if (prototype != null)
         {
-            if (this.factories.get(i).hasMorph(name))
+            AbstractMorph morph = prototype.clone();
+
+            /* Settings are applied again, since clone() of addon morphs 
+             * might not copy them */
+            morph.fromNBT(tag);
+            this.applySettings(morph);
+
+            return morph;
+        }
+
+        IMorphFactory factory = this.getFactory(name);
+
+        if (factory == null)
+        {
+            return null;
+        }
+
+        AbstractMorph morph = factory.getMorphFromNBT(tag);
+
+        if (morph != null)
+        {
+            this.applySettings(morph);
+        }
+
+        return morph;
+    }
+
+    /**
+     * Apply morph settings (if there are any) on given morph 
+     */
+    private void applySettings(AbstractMorph morph)
+    {
+        MorphSettings settings = this.settings.get(morph.name);
+
+        if (settings != null)
+        {
+            settings.apply(morph);
+        }
+    }
+
+    /**
+     * Reconfigure an already created morph with current settings
+     * 
+     * Configuration is copied from morph's prototype, so morphs which 
+     * settings were removed get back factory's configuration.
+     */
+    private void reconfigure(AbstractMorph morph)
+    {
+        AbstractMorph prototype = this.getPrototype(morph.name);
+
+        if (prototype == null)
+        {
+            this.applySettings(morph);
+
+            return;
+        }
+
+        morph.abilities = prototype.abilities;
+        morph.attack = prototype.attack;
+        morph.action = prototype.action;
+        morph.health = prototype.health;
+        morph.speed = prototype.speed;
+        morph.hostile = prototype.hostile;
+    }
+
+    /**
+     * Get descriptors of all morphs that factories provide
+     * 
+     * Descriptors are lightweight, morphs are created only when 
+     * {@link MorphDescriptor#getMorph()} is called, so returned list can be 
+     * iterated or paged (with {@link List#subList(int, int)}) cheaply. 
+     * Factories which don't implement {@link IMorphDescriptorFactory} are 
+     * adapted with already created morphs.
+     * 
+     * Returned list is cached and read-only, see {@link #getMorphs()}.
+     */
+    public List<MorphDescriptor> getDescriptors()
+    {
+        List<MorphDescriptor> descriptors = this.descriptors;
+
+        if (descriptors == null)
+        {
+            descriptors = new ArrayList<MorphDescriptor>();
+
+            for (int i = this.factories.size() - 1; i >= 0; i--)
+            {
+                this.collectDescriptors(this.factories.get(i), descriptors);
+            }
+
+            this.descriptors = descriptors = Collections.unmodifiableList(descriptors);
+        }
+
+        return descriptors;
+    }
+
+    /**
+     * Collect descriptors from given factory 
+     */
+    private void collectDescriptors(IMorphFactory factory, List<MorphDescriptor> descriptors)
+    {
+        LoadProfiler.Section section = LoadProfiler.INSTANCE.start("catalog", factory.getClass().getName());
+
+        if (factory instanceof IMorphDescriptorFactory)
+        {
+            List<MorphDescriptor> described = this.cached.get(factory);
+
+            if (described == null)
             {
-                AbstractMorph morph = this.factories.get(i).getMorphFromNBT(tag);
+                described = new ArrayList<MorphDescriptor>();
+                ((IMorphDescriptorFactory) factory).getDescriptors(described);
+            }
 
-                if (this.settings.containsKey(morph.name))
+            /* Skip morphs that are overridden by factories with higher 
+             * priority, since they would be decoded by those factories */
+            for (MorphDescriptor descriptor : described)
+            {
+                if (this.getFactory(descriptor.name) == factory)
                 {
-                    this.settings.get(morph.name).apply(morph);
+                    descriptors.add(descriptor);
                 }
+            }
+        }
+        else
+        {
+            MorphList morphs = new MorphList();
+
+            factory.getMorphs(morphs);
 
-                return morph;
+            for (List<MorphList.MorphCell> cells : morphs.morphs.values())
+            {
+                for (MorphList.MorphCell cell : cells)
+                {
+                    descriptors.add(new MorphDescriptor(factory, cell.category, cell.variant, cell.morph));
+                }
             }
         }
 
-        return null;
+        section.stop();
+    }
+
+    /**
+     * Get indexed morph catalog
+     * 
+     * Catalog consists only out of descriptors, so it doesn't depend on the 
+     * client world, and can be queried on the server. It's cached and 
+     * rebuilt once per server start (or when factories or settings change).
+     */
+    public MorphCatalog getCatalog()
+    {
+        MorphCatalog catalog = this.catalog;
+
+        if (catalog == null)
+        {
+            this.catalog = catalog = new MorphCatalog(this.getDescriptors());
+        }
+
+        return catalog;
     }
 
     /**
      * Get all morphs that factories provide
+     * 
+     * This method creates morphs of all descriptors (see 
+     * {@link #getDescriptors()}), prefer to use descriptors if you don't 
+     * need all the morphs at once.
+     * 
+     * Returned morph list is cached and read-only, it's built only once, 
+     * and rebuilt only after factories or settings were changed (see 
+     * {@link #invalidateFactories()} and {@link #invalidateSettings()}).
      */
     public MorphList getMorphs()
     {
-        MorphList morphs = new MorphList();
+        MorphList morphs = this.morphs;
 
-        for (int i = this.factories.size() - 1; i >= 0; i--)
+        if (morphs == null)
         {
-            this.factories.get(i).getMorphs(morphs);
+            morphs = new MorphList();
+            morphs.addDescriptors(this.getDescriptors());
+
+            this.morphs = morphs = morphs.toImmutable();
         }
 
         return morphs;
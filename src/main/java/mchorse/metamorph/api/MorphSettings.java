@@ -1,6 +1,7 @@
 package mchorse.metamorph.api;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -118,4 +119,46 @@ public class MorphSettings
         this.hostile = setting.hostile;
         this.customData.putAll(setting.customData);
     }
-}
\ No newline at end of file
+
+    /**
+     * Copy this morph settings 
+     */
+    public MorphSettings copy()
+    {
+        MorphSettings settings = new MorphSettings();
+
+        settings.abilities = this.abilities.clone();
+        settings.attack = this.attack;
+        settings.action = this.action;
+        settings.health = this.health;
+        settings.speed = this.speed;
+        settings.hostile = this.hostile;
+        settings.customData.putAll(this.customData);
+
+        return settings;
+    }
+
+    /**
+     * Check whether given object is the same morph settings. Abilities, 
+     * attacks and actions are compared by reference, since they're shared 
+     * between all morphs. 
+     */
+    @Override
+    public boolean equals(Object obj)
+    {
+        if (obj instanceof MorphSettings)
+        {
+            MorphSettings settings = (MorphSettings) obj;
+
+            return Arrays.equals(this.abilities, settings.abilities) && this.attack == settings.attack && this.action == settings.action && this.health == settings.health && this.speed == settings.speed && this.hostile == settings.hostile && this.customData.equals(settings.customData);
+        }
+
+        return super.equals(obj);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Arrays.hashCode(this.abilities) * 31 + this.health;
+    }
+}
@@ -3,11 +3,14 @@ package mchorse.metamorph.api;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.PrintWriter;
 import java.lang.reflect.Type;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Scanner;
+import java.util.Set;
 
 import com.google.common.reflect.TypeToken;
 import com.google.gson.Gson;
@@ -29,6 +32,16 @@ public class MorphUtils
      * and a server.
      */
     public static void loadMorphSettings(MorphManager manager, InputStream input)
+    {
+        loadMorphSettings(manager.settings, input);
+        manager.invalidateSettings();
+    }
+
+    /**
+     * Load morph settings from given input stream and merge them into 
+     * given map of morph settings 
+     */
+    public static void loadMorphSettings(Map<String, MorphSettings> settings, InputStream input)
     {
         Scanner scanner = new Scanner(input, "UTF-8");
 
@@ -43,19 +56,46 @@ public class MorphUtils
         for (Map.Entry<String, MorphSettings> entry : data.entrySet())
         {
             String key = entry.getKey();
-            MorphSettings settings = entry.getValue();
+            MorphSettings setting = entry.getValue();
 
-            if (manager.settings.containsKey(key))
+            if (settings.containsKey(key))
             {
-                manager.settings.get(key).merge(settings);
+                settings.get(key).merge(setting);
             }
             else
             {
-                manager.settings.put(key, settings);
+                settings.put(key, setting);
             }
         }
     }
 
+    /**
+     * Reload user morph settings from given file
+     * 
+     * User settings are merged onto a copy of default settings (see 
+     * {@link MorphManager#getDefaultSettings()}), and then only changed 
+     * settings are updated in the morph manager (see 
+     * {@link MorphManager#updateSettings(Map)}).
+     * 
+     * @return names of morphs which settings were changed
+     */
+    public static Set<String> reloadMorphSettings(MorphManager manager, File config) throws IOException
+    {
+        Map<String, MorphSettings> settings = new HashMap<String, MorphSettings>();
+
+        for (Map.Entry<String, MorphSettings> entry : manager.getDefaultSettings().entrySet())
+        {
+            settings.put(entry.getKey(), entry.getValue().copy());
+        }
+
+        if (config.exists())
+        {
+            loadMorphSettings(settings, new FileInputStream(config));
+        }
+
+        return manager.updateSettings(settings);
+    }
+
     /**
      * Load morph settings into {@link MorphManager} with given {@link File} and 
      * with a try-catch which logs out an error in case of failure.
@@ -64,6 +104,8 @@ public class MorphUtils
      */
     public static void loadMorphSettings(MorphManager manager, File config)
     {
+        LoadProfiler.Section section = LoadProfiler.INSTANCE.start("settings", config.getPath());
+
         try
         {
             loadMorphSettings(manager, new FileInputStream(config));
@@ -72,6 +114,8 @@ public class MorphUtils
         {
             e.printStackTrace();
         }
+
+        section.stop();
     }
 
     /**
@@ -28,6 +28,12 @@ public class Model
      */
     protected static final List<String> REQUIRED_POSES = Arrays.<String> asList("standing", "sneaking", "sleeping", "flying");
 
+    /**
+     * Shared GSON instance for parsing models (it's thread-safe, so there's 
+     * no need to create a new one for every model)
+     */
+    private static final Gson GSON = new GsonBuilder().registerTypeAdapter(Model.class, new ModelAdapter()).create();
+
     /**
      * Scheme version. Would be used in future versions for extracting and
      * exporting purposes.
@@ -81,8 +87,7 @@ public class Model
      */
     public static Model parse(String json) throws Exception
     {
-        Gson gson = new GsonBuilder().registerTypeAdapter(Model.class, new ModelAdapter()).create();
-        Model data = gson.fromJson(json, Model.class);
+        Model data = GSON.fromJson(json, Model.class);
 
         for (String key : REQUIRED_POSES)
         {
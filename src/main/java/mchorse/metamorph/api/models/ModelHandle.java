@@ -0,0 +1,110 @@
+package mchorse.metamorph.api.models;
+
+import java.io.InputStream;
+
+import mchorse.metamorph.api.LoadProfiler;
+
+/**
+ * Model handle
+ *
+ * This class is a lazy reference to a custom model JSON resource. The model
+ * is parsed only once, upon first {@link #get()} call (i.e. first render or
+ * first size request), and the result is memoized. Handle is safe to use
+ * from both client and server threads.
+ */
+public class ModelHandle
+{
+    /**
+     * Model's name
+     */
+    public final String name;
+
+    /**
+     * Class path to model's JSON resource
+     */
+    public final String path;
+
+    /**
+     * Parsed model
+     */
+    private Model model;
+
+    /**
+     * Whether an attempt to parse the model was made
+     */
+    private boolean loaded;
+
+    public ModelHandle(String name, String path)
+    {
+        this.name = name;
+        this.path = path;
+    }
+
+    /**
+     * Create a handle of already parsed model
+     */
+    public ModelHandle(String name, Model model)
+    {
+        this(name, (String) null);
+
+        this.model = model;
+        this.loaded = true;
+    }
+
+    /**
+     * Whether model's resource exists (it doesn't parse the model)
+     */
+    public boolean exists()
+    {
+        return this.path == null ? this.model != null : this.getClass().getClassLoader().getResource(this.path) != null;
+    }
+
+    /**
+     * Whether this handle has already parsed its model
+     */
+    public synchronized boolean isLoaded()
+    {
+        return this.loaded;
+    }
+
+    /**
+     * Get the model, parsing it upon first call
+     *
+     * @return parsed model, or null if model's resource is missing or it
+     *         couldn't be parsed
+     */
+    public synchronized Model get()
+    {
+        if (this.loaded)
+        {
+            return this.model;
+        }
+
+        this.loaded = true;
+
+        LoadProfiler.Section section = LoadProfiler.INSTANCE.start("model", this.name);
+
+        try
+        {
+            InputStream stream = this.getClass().getClassLoader().getResourceAsStream(this.path);
+
+            if (stream == null)
+            {
+                System.out.println("Model resource '" + this.path + "' for '" + this.name + "' model doesn't exist!");
+            }
+            else
+            {
+                this.model = Model.parse(stream);
+            }
+        }
+        catch (Exception e)
+        {
+            System.out.println("An exception was raised when loading '" + this.name + "' model!");
+            e.printStackTrace();
+        }
+
+        section.stop();
+
+        return this.model;
+    }
+}
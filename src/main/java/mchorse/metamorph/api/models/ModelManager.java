@@ -1,12 +1,24 @@
 package mchorse.metamorph.api.models;
 
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
 /**
  * This class responsible for storing domain custom models and sending models to
  * players who are logged in.
+ *
+ * Models can be registered lazily (see {@link #register(String, String, String)}),
+ * in this case they're parsed only when they're requested for the first time
+ * (see {@link #get(String)}).
  */
 public class ModelManager
 {
@@ -15,6 +27,117 @@ public class ModelManager
      */
     public Map<String, Model> models = new HashMap<String, Model>();
 
+    /**
+     * Model handles, both lazy and already loaded ones
+     */
+    private Map<String, ModelHandle> handles = new ConcurrentHashMap<String, ModelHandle>();
+
+    /**
+     * Register a lazy model handle with name and filename of JSON model
+     * located in given mod's assets. The model isn't parsed until it's
+     * requested.
+     */
+    public ModelHandle register(String name, String filename, String modId)
+    {
+        ModelHandle handle = new ModelHandle(name, "assets/" + modId + "/models/entity/" + filename + ".json");
+
+        this.handles.put(name, handle);
+
+        return handle;
+    }
+
+    /**
+     * Get model handle by given name
+     */
+    public ModelHandle getHandle(String name)
+    {
+        return this.handles.get(name);
+    }
+
+    /**
+     * Get a model by given name, parsing it if it wasn't parsed yet
+     */
+    public Model get(String name)
+    {
+        ModelHandle handle = this.handles.get(name);
+
+        return handle == null ? null : handle.get();
+    }
+
+    /**
+     * Parse models with given names ahead of time, so models of morphs
+     * which are known to be used wouldn't be parsed during the game
+     * 
+     * Models are parsed (JSON deserialization, validation of required 
+     * poses and filling in missing transforms) in parallel on a worker 
+     * pool, and this method waits until all of them are parsed.
+     */
+    public void warmUp(Collection<String> names)
+    {
+        List<Callable<Model>> tasks = new ArrayList<Callable<Model>>();
+
+        for (String name : names)
+        {
+            final ModelHandle handle = this.handles.get(name);
+
+            if (handle != null && !handle.isLoaded())
+            {
+                tasks.add(new Callable<Model>()
+                {
+                    @Override
+                    public Model call() throws Exception
+                    {
+                        return handle.get();
+                    }
+                });
+            }
+        }
+
+        if (tasks.isEmpty())
+        {
+            return;
+        }
+
+        ExecutorService executor = createExecutor(tasks.size());
+
+        try
+        {
+            executor.invokeAll(tasks);
+        }
+        catch (InterruptedException e)
+        {
+            e.printStackTrace();
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Create a worker pool for parsing given count of models. Workers are 
+     * daemon threads, so they wouldn't prevent the game from closing. 
+     */
+    public static ExecutorService createExecutor(int tasks)
+    {
+        int threads = Math.max(1, Math.min(tasks, Runtime.getRuntime().availableProcessors()));
+
+        return Executors.newFixedThreadPool(threads, new ThreadFactory()
+        {
+            private int index;
+
+            @Override
+            public Thread newThread(Runnable runnable)
+            {
+                Thread thread = new Thread(runnable, "Metamorph model parser #" + (++this.index));
+
+                thread.setDaemon(true);
+
+                return thread;
+            }
+        });
+    }
+
     /**
      * Load a custom model with name and lowercase'd filename generated from 
      * name. 
@@ -50,6 +173,9 @@ public class ModelManager
      */
     public void load(String name, InputStream stream) throws Exception
     {
-        this.models.put(name, Model.parse(stream));
+        Model model = Model.parse(stream);
+
+        this.models.put(name, model);
+        this.handles.put(name, new ModelHandle(name, model));
     }
 }
\ No newline at end of file
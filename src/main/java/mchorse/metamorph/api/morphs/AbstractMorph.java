@@ -1,5 +1,6 @@
 package mchorse.metamorph.api.morphs;
 
+import mchorse.metamorph.api.MorphManager;
 import mchorse.metamorph.api.abilities.IAbility;
 import mchorse.metamorph.api.abilities.IAction;
 import mchorse.metamorph.api.abilities.IAttackAbility;
@@ -243,6 +244,13 @@ public abstract class AbstractMorph
      * another {@link CustomMorph} instance, for example, instead of 
      * MyCustomMorph instance.
      * </p>
+     * 
+     * <p>
+     * Clone should also carry over morph's settings (abilities, attack, 
+     * action, health, speed and hostile flag), because 
+     * {@link MorphManager#morphFromNBT(NBTTagCompound)} creates morphs by 
+     * cloning configured prototypes.
+     * </p>
      */
     public abstract AbstractMorph clone();
 
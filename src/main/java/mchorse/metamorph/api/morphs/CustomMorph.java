@@ -1,6 +1,7 @@
 package mchorse.metamorph.api.morphs;
 
 import mchorse.metamorph.api.models.Model;
+import mchorse.metamorph.api.models.ModelHandle;
 import mchorse.metamorph.capabilities.morphing.IMorphing;
 import mchorse.metamorph.client.gui.utils.GuiUtils;
 import mchorse.metamorph.client.model.ModelCustom;
@@ -19,18 +20,48 @@ import net.minecraftforge.fml.relauncher.SideOnly;
  */
 public class CustomMorph extends AbstractMorph
 {
+    /**
+     * Size which is used when morph's model is missing
+     */
+    public static final float[] DEFAULT_SIZE = new float[] {0.6F, 1.8F};
+
     /**
      * Morph's model
      */
     public Model model;
 
+    /**
+     * Lazy handle of morph's model. If it's present, {@link #model} is 
+     * taken from the handle upon first request (see {@link #getModel()})
+     */
+    public ModelHandle handle;
+
+    /**
+     * Get morph's model, parsing it first if needed
+     */
+    public Model getModel()
+    {
+        if (this.model == null && this.handle != null)
+        {
+            this.model = this.handle.get();
+        }
+
+        return this.model;
+    }
+
     /* Rendering */
 
     @Override
     @SideOnly(Side.CLIENT)
     public void renderOnScreen(EntityPlayer player, int x, int y, float scale, float alpha)
     {
-        ModelCustom model = ModelCustom.MODELS.get(this.name);
+        ModelCustom model = ModelCustom.get(this.name);
+
+        if (model == null)
+        {
+            return;
+        }
+
         Model data = model.model;
 
         model.pose = model.model.poses.get("standing");
@@ -99,11 +130,23 @@ public class CustomMorph extends AbstractMorph
     public void updateSize(EntityLivingBase target, IMorphing cap)
     {
         String key = target.isElytraFlying() ? "flying" : (target.isSneaking() ? "sneaking" : "standing");
-        float[] pose = model.poses.get(key).size;
+        float[] pose = this.getSize(key);
 
         this.updateSize(target, pose[0], pose[1]);
     }
 
+    /**
+     * Get size of given pose. If the model couldn't be loaded (or it 
+     * doesn't have such pose), player's size is used
+     */
+    public float[] getSize(String key)
+    {
+        Model model = this.getModel();
+        Model.Pose pose = model == null ? null : model.poses.get(key);
+
+        return pose == null ? DEFAULT_SIZE : pose.size;
+    }
+
     /**
      * Clone this {@link CustomMorph} 
      */
@@ -118,7 +161,12 @@ public class CustomMorph extends AbstractMorph
         morph.attack = this.attack;
         morph.action = this.action;
 
+        morph.health = this.health;
+        morph.speed = this.speed;
+        morph.hostile = this.hostile;
+
         morph.model = this.model;
+        morph.handle = this.handle;
         morph.renderer = this.renderer;
 
         return morph;
@@ -127,12 +175,12 @@ public class CustomMorph extends AbstractMorph
     @Override
     public float getWidth(EntityLivingBase target)
     {
-        return model.poses.get("standing").size[0];
+        return this.getSize("standing")[0];
     }
 
     @Override
     public float getHeight(EntityLivingBase target)
     {
-        return model.poses.get("standing").size[1];
+        return this.getSize("standing")[1];
     }
 }
\ No newline at end of file
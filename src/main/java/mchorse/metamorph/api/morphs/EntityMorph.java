@@ -7,6 +7,7 @@ import java.util.Comparator;
 import java.util.List;
 
 import mchorse.metamorph.Metamorph;
+import mchorse.metamorph.api.EntityData;
 import mchorse.metamorph.api.EntityUtils;
 import mchorse.metamorph.api.models.IHandProvider;
 import mchorse.metamorph.capabilities.morphing.IMorphing;
@@ -50,9 +51,11 @@ public class EntityMorph extends AbstractMorph
     protected EntityLivingBase entity;
 
     /**
-     * Used for constructing an entity during loop 
+     * Used for constructing an entity during loop. It's packed and interned 
+     * (see {@link EntityUtils#packData(NBTTagCompound)}), so it's shared 
+     * with clones and other equal morphs 
      */
-    protected NBTTagCompound entityData;
+    protected EntityData entityData;
 
     /**
      * Did this instance already tried to setup first-person hands 
@@ -261,7 +264,7 @@ public class EntityMorph extends AbstractMorph
 
         if (this.entityData == null)
         {
-            this.entityData = EntityUtils.stripEntityNBT(this.entity.serializeNBT());
+            this.entityData = EntityUtils.packData(EntityUtils.stripEntityNBT(this.entity.serializeNBT()));
         }
     }
 
@@ -412,7 +415,7 @@ public class EntityMorph extends AbstractMorph
     @Override
     protected void updateSize(EntityLivingBase target, float width, float height)
     {
-        boolean isAnimalChild = this.entity instanceof EntityAgeable && this.entityData.getInteger("Age") < 0;
+        boolean isAnimalChild = this.entity instanceof EntityAgeable && this.entityData != null && this.entityData.getInteger("Age") < 0;
 
         /* Because Minecraft is shit at syncing data!
          * 
@@ -438,7 +441,7 @@ public class EntityMorph extends AbstractMorph
     {
         EntityLivingBase created = (EntityLivingBase) EntityList.createEntityByIDFromName(name, world);
 
-        created.deserializeNBT(this.entityData);
+        created.deserializeNBT(this.entityData == null ? new NBTTagCompound() : this.entityData.toNBT());
         created.deathTime = 0;
         created.hurtTime = 0;
         created.limbSwing = 0;
@@ -566,20 +569,39 @@ public class EntityMorph extends AbstractMorph
     }
 
     /**
-     * Set entity data 
+     * Set entity data. Given tag is packed, so it can be modified or reused 
+     * afterwards without affecting this morph 
      */
     public void setEntityData(NBTTagCompound tag)
     {
-        this.entityData = tag;
+        this.entityData = EntityUtils.packData(tag);
+    }
+
+    /**
+     * Set packed entity data 
+     */
+    public void setEntityData(EntityData data)
+    {
+        this.entityData = data;
     }
 
     /**
      * Get entity serialized {@link NBTTagCompound}
      * 
      * This method is going to be used for saving entity state to morph 
-     * capability. 
+     * capability. Returned tag is unpacked out of {@link EntityData}, so 
+     * to change entity data, modify it and set it back with 
+     * {@link #setEntityData(NBTTagCompound)}. 
      */
     public NBTTagCompound getEntityData()
+    {
+        return this.entityData == null ? null : this.entityData.toNBT();
+    }
+
+    /**
+     * Get packed entity data 
+     */
+    public EntityData getPackedData()
     {
         return this.entityData;
     }
@@ -594,7 +616,8 @@ public class EntityMorph extends AbstractMorph
 
         if (obj instanceof EntityMorph)
         {
-            boolean theSame = EntityUtils.compareData(((EntityMorph) obj).entityData, this.entityData);
+            EntityData data = ((EntityMorph) obj).entityData;
+            boolean theSame = data == null ? this.entityData == null : data.matches(this.entityData);
 
             return result && theSame;
         }
@@ -616,7 +639,11 @@ public class EntityMorph extends AbstractMorph
         morph.attack = this.attack;
         morph.action = this.action;
 
-        morph.entityData = this.entityData.copy();
+        morph.health = this.health;
+        morph.speed = this.speed;
+        morph.hostile = this.hostile;
+
+        morph.entityData = this.entityData;
 
         return morph;
     }
@@ -648,7 +675,10 @@ public class EntityMorph extends AbstractMorph
     {
         super.toNBT(tag);
 
-        tag.setTag("EntityData", this.entityData);
+        if (this.entityData != null)
+        {
+            tag.setTag("EntityData", this.entityData.toNBT());
+        }
     }
 
     @Override
@@ -656,6 +686,6 @@ public class EntityMorph extends AbstractMorph
     {
         super.fromNBT(tag);
 
-        this.entityData = tag.getCompoundTag("EntityData");
+        this.entityData = EntityUtils.packData(tag.getCompoundTag("EntityData"));
     }
 }
\ No newline at end of file
@@ -1,13 +1,16 @@
 package mchorse.metamorph.capabilities;
 
 import mchorse.metamorph.Metamorph;
+import mchorse.metamorph.capabilities.morphing.IMorphStore;
 import mchorse.metamorph.capabilities.morphing.IMorphing;
 import mchorse.metamorph.capabilities.morphing.Morphing;
 import mchorse.metamorph.capabilities.morphing.MorphingProvider;
 import mchorse.metamorph.network.Dispatcher;
+import mchorse.metamorph.network.MorphCodec;
 import mchorse.metamorph.network.common.PacketAcquiredMorphs;
 import mchorse.metamorph.network.common.PacketMorph;
-import mchorse.metamorph.network.common.PacketMorphPlayer;
+import mchorse.metamorph.network.common.PacketMorphCodec;
+import mchorse.metamorph.network.common.PacketMorphsHandshake;
 import net.minecraft.entity.Entity;
 import net.minecraft.entity.player.EntityPlayer;
 import net.minecraft.entity.player.EntityPlayerMP;
@@ -18,6 +21,9 @@ import net.minecraftforge.event.entity.player.PlayerEvent;
 import net.minecraftforge.event.entity.player.PlayerEvent.StartTracking;
 import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
 import net.minecraftforge.fml.common.gameevent.PlayerEvent.PlayerLoggedInEvent;
+import net.minecraftforge.fml.common.gameevent.PlayerEvent.PlayerLoggedOutEvent;
+import net.minecraftforge.fml.common.gameevent.TickEvent.Phase;
+import net.minecraftforge.fml.common.gameevent.TickEvent.ServerTickEvent;
 
 /**
  * Capability handler class
@@ -41,7 +47,9 @@ public class CapabilityHandler
     }
 
     /**
-     * When player logs in, sent him his server counter partner's values.
+     * When player logs in, ensure that player was morphed. Acquired morphs 
+     * were already synced (see {@link #onPlayerSpawn(EntityJoinWorldEvent)}), 
+     * since player joins the world before logging in.
      */
     @SubscribeEvent
     public void playerLogsIn(PlayerLoggedInEvent event)
@@ -49,21 +57,64 @@ public class CapabilityHandler
         EntityPlayer player = event.player;
         IMorphing cap = Morphing.get(player);
 
-        if (cap != null)
+        if (cap != null && cap.isMorphed())
         {
-            this.sendAcquiredMorphs(cap, player);
+            cap.getCurrentMorph().morph(player);
+        }
+    }
 
-            /* Ensure that player was morphed */
-            if (cap.isMorphed())
-            {
-                cap.getCurrentMorph().morph(player);
-            }
+    /**
+     * When player logs out, discard morphs queued for it and its morph 
+     * codec session
+     */
+    @SubscribeEvent
+    public void playerLogsOut(PlayerLoggedOutEvent event)
+    {
+        if (event.player instanceof EntityPlayerMP)
+        {
+            Dispatcher.discardMorphs((EntityPlayerMP) event.player);
+            MorphCodec.endSession((EntityPlayerMP) event.player);
+        }
+    }
+
+    /**
+     * When player's data is loaded, load player's morphs from the morph 
+     * store, if player's data refers to it
+     */
+    @SubscribeEvent
+    public void playerLoads(PlayerEvent.LoadFromFile event)
+    {
+        EntityPlayer player = event.getEntityPlayer();
+        IMorphing cap = Morphing.get(player);
+        IMorphStore store = Metamorph.proxy.store;
+
+        if (store != null && cap instanceof Morphing && ((Morphing) cap).isStored())
+        {
+            store.load(player.getUniqueID(), cap);
+        }
+    }
+
+    /**
+     * When player's data is saved, save player's morphs into the morph 
+     * store (only what has changed since the last save is written)
+     */
+    @SubscribeEvent
+    public void playerSaves(PlayerEvent.SaveToFile event)
+    {
+        EntityPlayer player = event.getEntityPlayer();
+        IMorphing cap = Morphing.get(player);
+
+        if (cap != null && Metamorph.proxy.isMorphStoreEnabled())
+        {
+            Metamorph.proxy.store.save(player.getUniqueID(), cap);
         }
     }
 
     /**
      * When player starts tracking another player, server has to send its
-     * morphing values.
+     * morphing values. Morphs are queued and sent in one packet per 
+     * recipient at the end of the tick (see {@link #onServerTick(ServerTickEvent)}), 
+     * and only if the player is morphed.
      */
     @SubscribeEvent
     public void playerStartsTracking(StartTracking event)
@@ -74,7 +125,24 @@ public class CapabilityHandler
             EntityPlayerMP player = (EntityPlayerMP) event.getEntityPlayer();
             IMorphing cap = target.getCapability(MorphingProvider.MORPHING_CAP, null);
 
-            Dispatcher.sendTo(new PacketMorphPlayer(target.getEntityId(), cap.getCurrentMorph()), player);
+            if (cap != null)
+            {
+                Dispatcher.queueMorph(player, target, cap.getCurrentMorph());
+            }
+        }
+    }
+
+    /**
+     * Send morphs of tracked players queued during this tick, and full 
+     * snapshots of acquired morphs which were throttled before
+     */
+    @SubscribeEvent
+    public void onServerTick(ServerTickEvent event)
+    {
+        if (event.phase == Phase.END)
+        {
+            Dispatcher.flushMorphs();
+            Dispatcher.flushResyncs();
         }
     }
 
@@ -118,12 +186,49 @@ public class CapabilityHandler
 
     /**
      * Send acquired morphs (and currently morphed morph) to the given player. 
+     * 
+     * When player joins the server, the morph codec is negotiated first 
+     * (see {@link MorphCodec}), until it's acknowledged morphs are sent 
+     * as NBT.
+     * 
+     * If the client already has (or is about to have) some version of 
+     * acquired morphs, only the delta since that version is sent. 
+     * Otherwise (i.e. on login), the client is asked for a handshake, so 
+     * it could use its cached copy of acquired morphs (see 
+     * {@link PacketMorphsHandshake}).
      */
     private void sendAcquiredMorphs(IMorphing cap, EntityPlayer player)
     {
         EntityPlayerMP mp = (EntityPlayerMP) player;
 
+        if (MorphCodec.getSession(mp) == null)
+        {
+            Dispatcher.sendTo(new PacketMorphCodec(MorphCodec.startSession(mp).codec), mp);
+        }
+
         Dispatcher.sendTo(new PacketMorph(cap.getCurrentMorph()), mp);
-        Dispatcher.sendTo(new PacketAcquiredMorphs(cap.getAcquiredMorphs(), cap.getFavorites()), mp);
+
+        if (!(cap instanceof Morphing))
+        {
+            Dispatcher.sendAcquiredMorphs(new PacketAcquiredMorphs(cap), mp);
+
+            return;
+        }
+
+        Morphing morphing = (Morphing) cap;
+        int synced = morphing.getSynced();
+
+        if (morphing.canSync(synced))
+        {
+            if (Dispatcher.sendAcquiredMorphs(new PacketAcquiredMorphs(morphing, synced), mp))
+            {
+                morphing.setSynced(morphing.getEpoch(), morphing.getVersion());
+            }
+        }
+        else
+        {
+            morphing.requestHandshake();
+            Dispatcher.sendTo(new PacketMorphsHandshake(), mp);
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,634 @@
+package mchorse.metamorph.capabilities.morphing;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import mchorse.metamorph.Metamorph;
+import mchorse.metamorph.api.MorphManager;
+import net.minecraft.nbt.CompressedStreamTools;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.nbt.NBTTagList;
+import net.minecraft.util.ReportedException;
+
+/**
+ * File morph store
+ *
+ * This store keeps morphing data of every player in an append-only log
+ * file (folder/UUID.dat). Every record of the log is an uncompressed NBT
+ * compound with "Op" key:
+ *
+ * - "Snapshot", complete morphing data (same as {@link MorphingStorage}
+ *   writes), it resets everything what was before it
+ * - "Acquire", a newly acquired (encoded) morph in "Tag"
+ * - "Morph", current morph in "Morph" (missing if player is demorphed)
+ * - "Favorites", list of favorite indices (not IDs) in "Favorites"
+ *
+ * Saving the player appends only the records of what has changed since
+ * the last save (see dirty tracking in {@link Morphing}). Removing a morph
+ * writes a snapshot instead. When the log gets too long, it's compacted
+ * into a single snapshot record. All of the file operations are done on
+ * a background writer thread, in the same order they were requested.
+ *
+ * Snapshots replace the log through a temporary file (UUID.dat.tmp) and
+ * the previous log (UUID.dat.old), so the log can be recovered from
+ * either if the server crashes in the middle of replacing. If the log
+ * of a player can't be loaded, it's moved aside (UUID.dat.corrupt), so it
+ * could be restored by hand, and the player starts with a new log. If it
+ * can't be even moved aside, the store doesn't write anything for that
+ * player, and player's data keeps referencing the log, so it's loaded
+ * again on next start.
+ */
+public class FileMorphStore implements IMorphStore
+{
+    /**
+     * Count of records after which log is compacted
+     */
+    public static final int COMPACT_THRESHOLD = 256;
+
+    /**
+     * Folder with players' logs
+     */
+    public File folder;
+
+    /**
+     * Background writer
+     */
+    private ExecutorService writer;
+
+    /**
+     * Count of records in players' logs. Accessed only from the server
+     * thread
+     */
+    private Map<UUID, Integer> records = new HashMap<UUID, Integer>();
+
+    /**
+     * Players whose log failed to load and couldn't be moved aside. Their 
+     * logs are never written, so whatever is left of them wouldn't be 
+     * overwritten. Accessed only from the server thread
+     */
+    private Set<UUID> failed = new HashSet<UUID>();
+
+    /**
+     * Storage which is used for writing snapshots
+     */
+    private MorphingStorage storage = new MorphingStorage();
+
+    public FileMorphStore(File folder)
+    {
+        this.folder = folder;
+        this.writer = Executors.newSingleThreadExecutor(new ThreadFactory()
+        {
+            @Override
+            public Thread newThread(Runnable runnable)
+            {
+                Thread thread = new Thread(runnable, "Metamorph morph store writer");
+
+                thread.setDaemon(true);
+
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Get log file of given player
+     */
+    public File getFile(UUID player)
+    {
+        return new File(this.folder, player.toString() + ".dat");
+    }
+
+    /**
+     * Load player's log. Log is read on the writer thread, so all of the
+     * pending writes of this player would be done before reading.
+     */
+    @Override
+    public boolean load(UUID player, IMorphing morphing)
+    {
+        final File file = this.getFile(player);
+        Log log = null;
+        boolean broken = false;
+
+        try
+        {
+            log = this.writer.submit(new Callable<Log>()
+            {
+                @Override
+                public Log call() throws Exception
+                {
+                    return read(file);
+                }
+            }).get();
+        }
+        catch (Exception e)
+        {
+            System.out.println("Failed to read morph store log of '" + player + "' player!");
+            e.printStackTrace();
+
+            broken = true;
+        }
+
+        /* Player's data keeps referencing the log (stored flag stays), 
+         * so it will be loaded again on next start */
+        if (broken && !this.moveAside(file))
+        {
+            System.out.println("Morph store log of '" + player + "' player couldn't be loaded nor moved aside, it won't be written until next start!");
+            this.failed.add(player);
+
+            return false;
+        }
+
+        /* There's no log (or it was moved aside), so player starts with 
+         * a new one, and until its first snapshot is written, the data is 
+         * kept in player's data */
+        if (log == null)
+        {
+            if (morphing instanceof Morphing)
+            {
+                ((Morphing) morphing).stored = false;
+            }
+
+            return false;
+        }
+
+        List<NBTTagCompound> acquired = new ArrayList<NBTTagCompound>(log.acquired.size());
+        boolean stale = false;
+
+        for (NBTTagCompound tag : log.acquired)
+        {
+            stale = stale || MorphingCodec.isStale(tag);
+            acquired.add(MorphingCodec.decode(tag));
+        }
+
+        morphing.setCurrentMorph(log.morph == null ? null : MorphManager.INSTANCE.morphFromNBT(log.morph), null, true);
+        morphing.setAcquiredData(acquired);
+        morphing.setFavorites(log.favorites);
+
+        if (morphing instanceof Morphing)
+        {
+            Morphing instance = (Morphing) morphing;
+
+            instance.serialized = null;
+            instance.serializedCount = instance.getAcquiredCount();
+            instance.favoritesDirty = instance.morphDirty = false;
+
+            /* Rewrite morphs encoded against changed templates in the next 
+             * snapshot */
+            instance.acquiredDirty = stale;
+        }
+
+        this.records.put(player, log.records);
+
+        return true;
+    }
+
+    /**
+     * Move aside unloadable log of a player (on the writer thread), so a 
+     * new log wouldn't overwrite it
+     * 
+     * @return true if there's no log in place anymore
+     */
+    private boolean moveAside(final File file)
+    {
+        try
+        {
+            return this.writer.submit(new Callable<Boolean>()
+            {
+                @Override
+                public Boolean call() throws Exception
+                {
+                    if (!file.exists())
+                    {
+                        return true;
+                    }
+
+                    File corrupt = new File(file.getPath() + ".corrupt");
+
+                    if (corrupt.exists())
+                    {
+                        corrupt = new File(file.getPath() + ".corrupt." + System.currentTimeMillis());
+                    }
+
+                    if (!file.renameTo(corrupt))
+                    {
+                        return false;
+                    }
+
+                    System.out.println("Unloadable morph store log '" + file + "' was moved to '" + corrupt + "'");
+
+                    return true;
+                }
+            }).get();
+        }
+        catch (Exception e)
+        {
+            e.printStackTrace();
+        }
+
+        return false;
+    }
+
+    /**
+     * Save player's changes. Records are collected on the calling thread,
+     * and written on the writer thread.
+     */
+    @Override
+    public void save(UUID player, IMorphing morphing)
+    {
+        if (this.failed.contains(player))
+        {
+            return;
+        }
+
+        Integer count = this.records.get(player);
+        List<NBTTagCompound> records = new ArrayList<NBTTagCompound>();
+        boolean snapshot = count == null || !(morphing instanceof Morphing);
+
+        if (!snapshot)
+        {
+            Morphing instance = (Morphing) morphing;
+
+            if (instance.acquiredDirty)
+            {
+                snapshot = true;
+            }
+            else
+            {
+                this.collect(instance, records);
+                snapshot = count + records.size() > COMPACT_THRESHOLD;
+            }
+        }
+
+        if (snapshot)
+        {
+            NBTTagCompound record = this.storage.write(morphing);
+
+            record.setString("Op", "Snapshot");
+            records.clear();
+            records.add(record);
+        }
+
+        if (morphing instanceof Morphing)
+        {
+            Morphing instance = (Morphing) morphing;
+
+            instance.serialized = null;
+            instance.serializedCount = instance.getAcquiredCount();
+            instance.acquiredDirty = instance.favoritesDirty = instance.morphDirty = false;
+        }
+
+        if (records.isEmpty())
+        {
+            return;
+        }
+
+        /* Player's data keeps the morphs until the first snapshot is 
+         * written (see MorphingStorage) */
+        Morphing pending = null;
+
+        if (snapshot && morphing instanceof Morphing && !((Morphing) morphing).stored)
+        {
+            pending = (Morphing) morphing;
+        }
+
+        this.records.put(player, snapshot ? 1 : count + records.size());
+        this.writer.submit(new WriteTask(this.getFile(player), records, !snapshot, pending));
+    }
+
+    /**
+     * Collect records of changes in given capability since the last save
+     */
+    private void collect(Morphing morphing, List<NBTTagCompound> records)
+    {
+        if (morphing.morphDirty)
+        {
+            NBTTagCompound record = new NBTTagCompound();
+
+            record.setString("Op", "Morph");
+
+            if (morphing.getCurrentMorph() != null)
+            {
+                NBTTagCompound morph = new NBTTagCompound();
+
+                morphing.getCurrentMorph().toNBT(morph);
+                record.setTag("Morph", morph);
+            }
+
+            records.add(record);
+        }
+
+        for (int i = morphing.serializedCount, c = morphing.getAcquiredCount(); i < c; i++)
+        {
+            NBTTagCompound tag = morphing.getAcquiredData(i);
+
+            if (tag != null)
+            {
+                NBTTagCompound record = new NBTTagCompound();
+
+                record.setString("Op", "Acquire");
+                record.setTag("Tag", MorphingCodec.encode(tag));
+                records.add(record);
+            }
+        }
+
+        if (morphing.favoritesDirty)
+        {
+            NBTTagCompound record = new NBTTagCompound();
+
+            this.storage.writeFavorites(record, morphing);
+            record.setString("Op", "Favorites");
+            records.add(record);
+        }
+    }
+
+    /**
+     * Wait until all pending writes are done, and stop the writer
+     */
+    @Override
+    public void close()
+    {
+        this.writer.shutdown();
+
+        try
+        {
+            if (!this.writer.awaitTermination(1, TimeUnit.MINUTES))
+            {
+                Metamorph.log("Morph store writer didn't finish in time!");
+            }
+        }
+        catch (InterruptedException e)
+        {
+            e.printStackTrace();
+        }
+
+        this.records.clear();
+        this.failed.clear();
+    }
+
+    /**
+     * Read and replay given log file. If the log is missing, because a
+     * crash happened while it was replaced (see {@link WriteTask}), it's
+     * recovered from the new log (which is complete, if the old one was
+     * already moved aside) or the old log.
+     *
+     * @return replayed log, or null if there's no log
+     */
+    private static Log read(File file) throws IOException
+    {
+        File temporary = new File(file.getPath() + ".tmp");
+        File old = new File(file.getPath() + ".old");
+        boolean recovered = !file.exists();
+
+        if (recovered)
+        {
+            File source;
+
+            if (old.exists() && temporary.exists())
+            {
+                source = temporary;
+            }
+            else if (old.exists())
+            {
+                source = old;
+            }
+            else
+            {
+                return null;
+            }
+
+            System.out.println("Recovering morph store log '" + file + "' from '" + source + "'");
+
+            /* Put it back in place, so next replacement wouldn't overwrite 
+             * the only complete log */
+            if (!source.renameTo(file))
+            {
+                file = source;
+            }
+        }
+
+        Log log = new Log();
+        DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+
+        try
+        {
+            while (input.available() > 0)
+            {
+                try
+                {
+                    log.apply(CompressedStreamTools.read(input));
+                }
+                catch (IOException e)
+                {
+                    torn(file, log, e);
+
+                    break;
+                }
+                catch (ReportedException e)
+                {
+                    /* NBT reading wraps exceptions in the middle of a tag 
+                     * into a crash report */
+                    torn(file, log, e);
+
+                    break;
+                }
+            }
+        }
+        finally
+        {
+            input.close();
+        }
+
+        /* Force the compaction, so recovered log is rewritten in one piece */
+        if (recovered)
+        {
+            log.records = COMPACT_THRESHOLD + 1;
+        }
+
+        return log;
+    }
+
+    /**
+     * A record which was cut off by a crash. Records before it are kept, 
+     * and the compaction is forced, so the log would be rewritten on next 
+     * save without the broken record
+     */
+    private static void torn(File file, Log log, Exception e)
+    {
+        System.out.println("Morph store log '" + file + "' has a broken record, the rest of the log is skipped (" + e.getMessage() + ")");
+
+        log.records = COMPACT_THRESHOLD + 1;
+    }
+
+    /**
+     * Replayed log of morphing data
+     */
+    private static class Log
+    {
+        public NBTTagCompound morph;
+        public List<NBTTagCompound> acquired = new ArrayList<NBTTagCompound>();
+        public BitSet favorites = new BitSet();
+        public int records;
+
+        /**
+         * Apply a log record
+         */
+        public void apply(NBTTagCompound record)
+        {
+            String op = record.getString("Op");
+
+            if (op.equals("Snapshot"))
+            {
+                NBTTagList list = record.getTagList("Morphs", 10);
+
+                this.morph = record.hasKey("Morph", 10) ? record.getCompoundTag("Morph") : null;
+                this.acquired.clear();
+
+                for (int i = 0; i < list.tagCount(); i++)
+                {
+                    this.acquired.add(list.getCompoundTagAt(i));
+                }
+
+                this.readFavorites(record);
+                this.records = 0;
+            }
+            else if (op.equals("Acquire"))
+            {
+                this.acquired.add(record.getCompoundTag("Tag"));
+            }
+            else if (op.equals("Morph"))
+            {
+                this.morph = record.hasKey("Morph", 10) ? record.getCompoundTag("Morph") : null;
+            }
+            else if (op.equals("Favorites"))
+            {
+                this.readFavorites(record);
+            }
+
+            this.records++;
+        }
+
+        private void readFavorites(NBTTagCompound record)
+        {
+            NBTTagList list = record.getTagList("Favorites", 3);
+
+            this.favorites.clear();
+
+            for (int i = 0; i < list.tagCount(); i++)
+            {
+                if (list.getIntAt(i) >= 0)
+                {
+                    this.favorites.set(list.getIntAt(i));
+                }
+            }
+        }
+    }
+
+    /**
+     * Write task
+     *
+     * Appends records to the log, or replaces the log (through a temporary
+     * file, so a crash wouldn't leave a broken log behind). The old log is
+     * moved aside before the temporary file takes its place, and removed
+     * only after that, so there's always a complete log on the disk.
+     */
+    private static class WriteTask implements Runnable
+    {
+        private File file;
+        private List<NBTTagCompound> records;
+        private boolean append;
+
+        /**
+         * Capability which gets marked as stored once this task is done
+         */
+        private Morphing morphing;
+
+        public WriteTask(File file, List<NBTTagCompound> records, boolean append, Morphing morphing)
+        {
+            this.file = file;
+            this.records = records;
+            this.append = append;
+            this.morphing = morphing;
+        }
+
+        @Override
+        public void run()
+        {
+            File target = this.append ? this.file : new File(this.file.getPath() + ".tmp");
+
+            try
+            {
+                target.getParentFile().mkdirs();
+
+                FileOutputStream stream = new FileOutputStream(target, this.append);
+                DataOutputStream output = new DataOutputStream(new BufferedOutputStream(stream));
+
+                try
+                {
+                    for (NBTTagCompound record : this.records)
+                    {
+                        CompressedStreamTools.write(record, output);
+                    }
+
+                    output.flush();
+                    stream.getFD().sync();
+                }
+                finally
+                {
+                    output.close();
+                }
+
+                if (!this.append)
+                {
+                    File old = new File(this.file.getPath() + ".old");
+
+                    old.delete();
+
+                    if (this.file.exists() && !this.file.renameTo(old))
+                    {
+                        System.out.println("Failed to move aside morph store log '" + this.file + "'!");
+
+                        return;
+                    }
+
+                    if (!target.renameTo(this.file))
+                    {
+                        System.out.println("Failed to replace morph store log '" + this.file + "'!");
+
+                        return;
+                    }
+
+                    old.delete();
+                }
+
+                if (this.morphing != null)
+                {
+                    this.morphing.stored = true;
+                }
+            }
+            catch (Exception e)
+            {
+                System.out.println("Failed to write morph store log '" + this.file + "'!");
+                e.printStackTrace();
+            }
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package mchorse.metamorph.capabilities.morphing;
+
+import java.util.UUID;
+
+/**
+ * Morph store interface
+ *
+ * Morph store is responsible for persisting players' morphing data outside
+ * of player files. When morph store is used, morphing capability saves only
+ * a small reference into player's data, and the store loads and saves
+ * acquired morphs, favorites and current morph on its own. See
+ * {@link FileMorphStore} for default implementation.
+ */
+public interface IMorphStore
+{
+    /**
+     * Load player's morphing data into given capability. Called on the
+     * server thread.
+     *
+     * @return true if the store had any data about the player
+     */
+    public boolean load(UUID player, IMorphing morphing);
+
+    /**
+     * Save player's morphing data. Called on the server thread, but the
+     * store may write the data later on another thread.
+     */
+    public void save(UUID player, IMorphing morphing);
+
+    /**
+     * Write all pending data and release the store
+     */
+    public void close();
+}
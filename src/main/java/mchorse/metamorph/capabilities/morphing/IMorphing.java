@@ -1,9 +1,11 @@
 package mchorse.metamorph.capabilities.morphing;
 
+import java.util.BitSet;
 import java.util.List;
 
 import mchorse.metamorph.api.morphs.AbstractMorph;
 import net.minecraft.entity.player.EntityPlayer;
+import net.minecraft.nbt.NBTTagCompound;
 
 /**
  * Morphing interface
@@ -18,11 +20,34 @@ public interface IMorphing
      */
     public boolean acquireMorph(AbstractMorph morph);
 
+    /**
+     * Add a morph with given ID (used for syncing with the server), or 
+     * with next free ID if given ID is negative 
+     */
+    public boolean acquireMorph(AbstractMorph morph, int id);
+
     /**
      * Check if this capability has acquired a morph
      */
     public boolean acquiredMorph(AbstractMorph morph);
 
+    /**
+     * Get ID of acquired morph which is equal to given morph, or -1 if 
+     * given morph wasn't acquired
+     */
+    public int getMorphId(AbstractMorph morph);
+
+    /**
+     * Get acquired morph by its ID, or null if there's no such morph 
+     */
+    public AbstractMorph getAcquiredMorph(int id);
+
+    /**
+     * Get IDs of acquired morphs in the same order as 
+     * {@link #getAcquiredMorphs()}
+     */
+    public int[] getAcquiredIds();
+
     /**
      * Get all acquired morph
      */
@@ -33,6 +58,22 @@ public interface IMorphing
      */
     public void setAcquiredMorphs(List<AbstractMorph> morphs);
 
+    /**
+     * Get all acquired morphs in NBT form (without creating morphs which 
+     * weren't requested yet)
+     */
+    public List<NBTTagCompound> getAcquiredData();
+
+    /**
+     * Set acquired morphs in NBT form
+     */
+    public void setAcquiredData(List<NBTTagCompound> data);
+
+    /**
+     * Set acquired morphs in NBT form with given IDs
+     */
+    public void setAcquiredData(List<NBTTagCompound> data, int[] ids);
+
     /**
      * Get current morph 
      */
@@ -54,27 +95,32 @@ public interface IMorphing
     public boolean isMorphed();
 
     /**
-     * Favorite or unfavorite a morph by given index
+     * Favorite or unfavorite a morph by given ID
      * 
      * @return if true then given favorite was added, or false if it was 
      *         removed
      */
-    public boolean favorite(int index);
+    public boolean favorite(int id);
+
+    /**
+     * Whether a morph with given ID is favorite 
+     */
+    public boolean isFavorite(int id);
 
     /**
-     * Get indices of all favorite morphs 
+     * Get IDs of all favorite morphs 
      */
-    public List<Integer> getFavorites();
+    public BitSet getFavorites();
 
     /**
-     * Set list of integer indices 
+     * Set IDs of favorite morphs 
      */
-    public void setFavorites(List<Integer> favorites);
+    public void setFavorites(BitSet favorites);
 
     /**
-     * Remove a morph at given index
+     * Remove a morph with given ID
      */
-    public boolean remove(int index);
+    public boolean remove(int id);
 
     /**
      * Copy data from other morph 
@@ -1,10 +1,21 @@
 package mchorse.metamorph.capabilities.morphing;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.RandomAccess;
 
+import mchorse.metamorph.api.EntityData;
+import mchorse.metamorph.api.EntityUtils;
+import mchorse.metamorph.api.MorphManager;
 import mchorse.metamorph.api.morphs.AbstractMorph;
 import net.minecraft.entity.player.EntityPlayer;
+import net.minecraft.nbt.NBTTagCompound;
 
 /**
  * Default implementation of {@link IMorphing} interface.
@@ -15,20 +26,154 @@ import net.minecraft.entity.player.EntityPlayer;
 public class Morphing implements IMorphing
 {
     /**
-     * List of acquired abstract morphs 
+     * Maximum count of remembered removals. Clients which are behind by 
+     * more removals get a full snapshot 
      */
-    private List<AbstractMorph> acquiredMorphs = new ArrayList<AbstractMorph>();
+    public static final int MAX_REMOVED = 256;
 
     /**
-     * List of favorite morphs 
+     * Random used for generating epochs 
      */
-    private List<Integer> favorites = new ArrayList<Integer>();
+    private static final Random EPOCHS = new Random();
+
+    /**
+     * Acquired morph entries by their IDs, in order of acquiring. Entries 
+     * are kept in their raw NBT form, and morphs are created out of them 
+     * only when they're requested (see {@link Entry#get()}), so players with 
+     * large collections wouldn't have to pay for all of their morphs on 
+     * login.
+     * 
+     * Every acquired morph has a stable ID, which doesn't change when other 
+     * morphs are removed, so favoriting, removing and selecting morphs by 
+     * their ID is done without any index shifting.
+     */
+    private Map<Integer, Entry> acquiredMorphs = new LinkedHashMap<Integer, Entry>();
+
+    /**
+     * Ordered list of acquired entries for index access. It's appended 
+     * when a morph is acquired, and rebuilt lazily after removal 
+     */
+    private List<Entry> order = new ArrayList<Entry>();
+
+    /**
+     * ID which will be assigned to next acquired morph 
+     */
+    private int nextId;
+
+    /**
+     * Read-only lazy view of acquired morphs
+     */
+    private List<AbstractMorph> acquiredView = new AcquiredList();
+
+    /**
+     * Hashed index of acquired morphs. Acquired morphs are bucketed by their 
+     * name and fingerprint of their data (see {@link #getKey(NBTTagCompound)}), 
+     * so checking whether a morph was acquired doesn't require comparing it 
+     * against every acquired morph.
+     */
+    private Map<String, List<Entry>> index = new HashMap<String, List<Entry>>();
+
+    /**
+     * IDs of favorite morphs 
+     */
+    private BitSet favorites = new BitSet();
 
     /**
      * Current used morph
      */
     private AbstractMorph morph;
 
+    /**
+     * Last serialized form of this capability (see {@link MorphingStorage}), 
+     * it's reused when nothing has changed since the last save 
+     */
+    NBTTagCompound serialized;
+
+    /**
+     * Count of acquired morphs in {@link #serialized} tag. Morphs which 
+     * were acquired after the last save are appended to it 
+     */
+    int serializedCount;
+
+    /**
+     * Whether acquired morphs were removed or replaced since the last save, 
+     * so acquired list has to be serialized again 
+     */
+    boolean acquiredDirty = true;
+
+    /**
+     * Whether favorites were changed since the last save 
+     */
+    boolean favoritesDirty = true;
+
+    /**
+     * Whether current morph was changed since the last save 
+     */
+    boolean morphDirty = true;
+
+    /**
+     * Whether this capability's data is kept in the morph store (see 
+     * {@link IMorphStore}) instead of player's data. It's set when the data 
+     * was loaded from the store or store's first snapshot was written 
+     * (by store's writer thread), until then the data is written into 
+     * player's data as well 
+     */
+    volatile boolean stored;
+
+    /* Syncing (see {@link #getVersion()}) */
+
+    /**
+     * Epoch of acquired collection. It's regenerated every time the whole 
+     * collection is replaced, so versions of different collections are 
+     * never mixed up 
+     */
+    private int epoch = EPOCHS.nextInt();
+
+    /**
+     * Version of acquired collection, it's increased upon every acquiring 
+     * and removal 
+     */
+    private int version;
+
+    /**
+     * Last removals as pairs of ID and version of removal 
+     */
+    private List<int[]> removed = new ArrayList<int[]>();
+
+    /**
+     * Oldest version which removals are remembered since 
+     */
+    private int removedSince;
+
+    /**
+     * Version which was last synced to the client (server only), or -1 
+     */
+    private int synced = -1;
+
+    /**
+     * Count of acquired morphs packets which client didn't acknowledge 
+     * yet (server only) 
+     */
+    private int outstanding;
+
+    /**
+     * Whether the client was asked for a handshake, and it wasn't answered 
+     * yet (server only) 
+     */
+    private boolean handshake;
+
+    /**
+     * World time when a full snapshot was sent last time on client's 
+     * request (server only) 
+     */
+    private long resynced = -RESYNC_COOLDOWN;
+
+    /**
+     * Minimum count of ticks between full snapshots requested by the 
+     * client 
+     */
+    public static final int RESYNC_COOLDOWN = 100;
+
     public static IMorphing get(EntityPlayer player)
     {
         return player.getCapability(MorphingProvider.MORPHING_CAP, null);
@@ -36,42 +181,392 @@ public class Morphing implements IMorphing
 
     @Override
     public boolean acquireMorph(AbstractMorph morph)
+    {
+        return this.acquireMorph(morph, -1);
+    }
+
+    @Override
+    public boolean acquireMorph(AbstractMorph morph, int id)
     {
         if (morph == null || this.acquiredMorph(morph))
         {
             return false;
         }
 
-        this.acquiredMorphs.add(morph);
+        Entry entry = new Entry(morph);
+
+        entry.version = ++this.version;
+        this.addEntry(entry, id);
+
+        return true;
+    }
+
+    /**
+     * Acquire a morph in NBT form with given ID (used for syncing with the 
+     * server). Morph isn't created until it's requested, and it's ignored 
+     * if there's already a morph with such ID.
+     */
+    public boolean acquireData(NBTTagCompound tag, int id)
+    {
+        if (tag == null || this.acquiredMorphs.containsKey(id))
+        {
+            return false;
+        }
+
+        Entry entry = new Entry(tag);
+
+        entry.version = ++this.version;
+        this.addEntry(entry, id);
 
         return true;
     }
 
+    /**
+     * Check if this capability has acquired a morph
+     * 
+     * Only morphs in the same bucket of the index are compared with 
+     * {@link AbstractMorph#equals(Object)}, so equality rules stay the same. 
+     * Entries of the bucket are created from their NBT if they weren't 
+     * created yet.
+     */
     @Override
     public boolean acquiredMorph(AbstractMorph morph)
     {
-        for (AbstractMorph acquired : this.acquiredMorphs)
+        if (morph == null)
+        {
+            return false;
+        }
+
+        List<Entry> bucket = this.index.get(getKey(morph));
+
+        if (bucket != null)
         {
-            if (acquired.equals(morph))
+            for (Entry entry : bucket)
             {
-                return true;
+                AbstractMorph acquired = entry.get();
+
+                if (acquired != null && acquired.equals(morph))
+                {
+                    return true;
+                }
             }
         }
 
         return false;
     }
 
+    /**
+     * Get ID of acquired morph which is equal to given morph
+     */
+    @Override
+    public int getMorphId(AbstractMorph morph)
+    {
+        List<Entry> bucket = morph == null ? null : this.index.get(getKey(morph));
+
+        if (bucket != null)
+        {
+            for (Entry entry : bucket)
+            {
+                AbstractMorph acquired = entry.get();
+
+                if (acquired != null && acquired.equals(morph))
+                {
+                    return entry.id;
+                }
+            }
+        }
+
+        return -1;
+    }
+
+    @Override
+    public AbstractMorph getAcquiredMorph(int id)
+    {
+        Entry entry = this.acquiredMorphs.get(id);
+
+        return entry == null ? null : entry.get();
+    }
+
+    /**
+     * Get IDs of acquired morphs in the same order as 
+     * {@link #getAcquiredMorphs()}
+     */
+    @Override
+    public int[] getAcquiredIds()
+    {
+        List<Entry> order = this.getOrder();
+        int[] ids = new int[order.size()];
+
+        for (int i = 0; i < ids.length; i++)
+        {
+            ids[i] = order.get(i).id;
+        }
+
+        return ids;
+    }
+
+    /**
+     * Get all acquired morphs
+     * 
+     * Returned list is read-only and lazy, morphs are created from their NBT 
+     * upon first access. Use {@link #acquireMorph(AbstractMorph)}, 
+     * {@link #remove(int)} or {@link #setAcquiredMorphs(List)} to modify 
+     * acquired morphs, otherwise the index would go out of sync.
+     */
     @Override
     public List<AbstractMorph> getAcquiredMorphs()
     {
-        return acquiredMorphs;
+        return this.acquiredView;
     }
 
     @Override
     public void setAcquiredMorphs(List<AbstractMorph> morphs)
     {
+        List<Entry> entries = new ArrayList<Entry>(morphs.size());
+
+        for (AbstractMorph morph : morphs)
+        {
+            entries.add(new Entry(morph));
+        }
+
+        this.setEntries(entries, null);
+    }
+
+    /**
+     * Get acquired morphs in NBT form
+     * 
+     * Entries which weren't created yet are returned as is (so they should 
+     * be treated as read-only), other entries are serialized.
+     */
+    @Override
+    public List<NBTTagCompound> getAcquiredData()
+    {
+        List<NBTTagCompound> data = new ArrayList<NBTTagCompound>(this.acquiredMorphs.size());
+
+        for (Entry entry : this.getOrder())
+        {
+            data.add(entry.toNBT());
+        }
+
+        return data;
+    }
+
+    /**
+     * Set acquired morphs in NBT form. Morphs aren't created until they're 
+     * requested. 
+     */
+    @Override
+    public void setAcquiredData(List<NBTTagCompound> data)
+    {
+        this.setAcquiredData(data, null);
+    }
+
+    /**
+     * Set acquired morphs in NBT form with given IDs (i.e. received from 
+     * the server). If IDs are null, morphs get IDs of their indices.
+     */
+    @Override
+    public void setAcquiredData(List<NBTTagCompound> data, int[] ids)
+    {
+        List<Entry> entries = new ArrayList<Entry>(data.size());
+
+        for (NBTTagCompound tag : data)
+        {
+            entries.add(new Entry(tag));
+        }
+
+        this.setEntries(entries, ids);
+    }
+
+    /**
+     * Get NBT of acquired morph at given index (see 
+     * {@link #getAcquiredData()})
+     */
+    NBTTagCompound getAcquiredData(int index)
+    {
+        return this.getOrder().get(index).toNBT();
+    }
+
+    /**
+     * Whether acquired entry at given index has NBT, entries without it 
+     * aren't saved 
+     */
+    boolean hasAcquiredData(int index)
+    {
+        return this.getOrder().get(index).hasNBT();
+    }
+
+    /**
+     * Get count of acquired morphs 
+     */
+    int getAcquiredCount()
+    {
+        return this.acquiredMorphs.size();
+    }
+
+    /**
+     * Whether this capability's data should be loaded from the morph store, 
+     * since player's data has only a reference to it 
+     */
+    public boolean isStored()
+    {
+        return this.stored;
+    }
+
+    /**
+     * Get morphs which were already created out of acquired entries. Useful 
+     * for updating acquired morphs without creating all of them. 
+     */
+    public List<AbstractMorph> getLoadedMorphs()
+    {
+        List<AbstractMorph> morphs = new ArrayList<AbstractMorph>();
+
+        for (Entry entry : this.acquiredMorphs.values())
+        {
+            if (entry.loaded && entry.morph != null)
+            {
+                morphs.add(entry.morph);
+            }
+        }
+
+        return morphs;
+    }
+
+    /**
+     * Get ordered list of acquired entries, rebuilding it if needed 
+     */
+    private List<Entry> getOrder()
+    {
+        if (this.order == null)
+        {
+            this.order = new ArrayList<Entry>(this.acquiredMorphs.values());
+        }
+
+        return this.order;
+    }
+
+    /**
+     * Replace all acquired entries 
+     */
+    private void setEntries(List<Entry> entries, int[] ids)
+    {
+        this.resetSync();
+        this.acquiredDirty = true;
         this.acquiredMorphs.clear();
-        this.acquiredMorphs.addAll(morphs);
+        this.order = new ArrayList<Entry>(entries.size());
+        this.index.clear();
+        this.nextId = 0;
+
+        for (int i = 0, c = entries.size(); i < c; i++)
+        {
+            this.addEntry(entries.get(i), ids != null && i < ids.length ? ids[i] : i);
+        }
+    }
+
+    /**
+     * Add given entry with given ID (or next free ID, if it's negative) to 
+     * the acquired morphs and to the index 
+     */
+    private void addEntry(Entry entry, int id)
+    {
+        entry.id = id >= 0 ? id : this.nextId;
+        this.nextId = Math.max(this.nextId, entry.id + 1);
+
+        /* Shouldn't happen, unless client went out of sync */
+        if (this.acquiredMorphs.containsKey(entry.id))
+        {
+            this.remove(entry.id);
+        }
+
+        this.acquiredMorphs.put(entry.id, entry);
+
+        if (this.order != null)
+        {
+            this.order.add(entry);
+        }
+
+        if (entry.key == null)
+        {
+            return;
+        }
+
+        List<Entry> bucket = this.index.get(entry.key);
+
+        if (bucket == null)
+        {
+            bucket = new ArrayList<Entry>(1);
+            this.index.put(entry.key, bucket);
+        }
+
+        bucket.add(entry);
+    }
+
+    /**
+     * Remove given entry from the index. Removed by identity, since there 
+     * might be equal morphs in the acquired list (i.e. set with 
+     * {@link #setAcquiredMorphs(List)}).
+     */
+    private void unindexEntry(Entry entry)
+    {
+        if (entry.key == null)
+        {
+            return;
+        }
+
+        List<Entry> bucket = this.index.get(entry.key);
+
+        if (bucket == null)
+        {
+            return;
+        }
+
+        for (int i = 0, c = bucket.size(); i < c; i++)
+        {
+            if (bucket.get(i) == entry)
+            {
+                bucket.remove(i);
+                break;
+            }
+        }
+
+        if (bucket.isEmpty())
+        {
+            this.index.remove(entry.key);
+        }
+    }
+
+    /**
+     * Get index key of given morph
+     * 
+     * Key is computed out of morph's NBT, so the key of a created morph and 
+     * the key of its raw NBT entry are always the same. 
+     */
+    private static String getKey(AbstractMorph morph)
+    {
+        NBTTagCompound tag = new NBTTagCompound();
+
+        morph.toNBT(tag);
+
+        return getKey(tag);
+    }
+
+    /**
+     * Get index key of given morph NBT
+     * 
+     * The key consists out of morph's name and, for entity morphs, of 
+     * fingerprint of stripped entity data. Morphs which are equal always 
+     * have the same key.
+     */
+    private static String getKey(NBTTagCompound tag)
+    {
+        String name = tag.getString("Name");
+
+        if (tag.hasKey("EntityData", 10))
+        {
+            return name + "#" + EntityUtils.fingerprintData(tag.getCompoundTag("EntityData"));
+        }
+
+        return name;
     }
 
     @Override
@@ -100,6 +595,7 @@ public class Morphing implements IMorphing
             }
 
             this.morph = morph;
+            this.morphDirty = true;
 
             if (player != null)
             {
@@ -121,6 +617,7 @@ public class Morphing implements IMorphing
         }
 
         this.morph = null;
+        this.morphDirty = true;
     }
 
     @Override
@@ -129,63 +626,477 @@ public class Morphing implements IMorphing
         return this.morph != null;
     }
 
+    /**
+     * Favorite or unfavorite acquired morph by given ID 
+     */
     @Override
-    public boolean favorite(int index)
+    public boolean favorite(int id)
     {
-        int favorite = this.favorites.indexOf(index);
-
-        if (favorite == -1)
+        if (!this.acquiredMorphs.containsKey(id))
         {
-            this.favorites.add(index);
-
-            return true;
-        }
-        else
-        {
-            this.favorites.remove(favorite);
+            return false;
         }
 
-        return false;
+        this.favoritesDirty = true;
+        this.favorites.flip(id);
+
+        return this.favorites.get(id);
     }
 
     @Override
-    public List<Integer> getFavorites()
+    public boolean isFavorite(int id)
     {
-        return this.favorites;
+        return id >= 0 && this.favorites.get(id);
     }
 
+    /**
+     * Get IDs of all favorite morphs
+     * 
+     * Returned set is a copy, use {@link #favorite(int)} or 
+     * {@link #setFavorites(BitSet)} to modify favorites, so changes would 
+     * be tracked.
+     */
     @Override
-    public void setFavorites(List<Integer> favorites)
+    public BitSet getFavorites()
     {
-        this.favorites.clear();
-        this.favorites.addAll(favorites);
+        return (BitSet) this.favorites.clone();
     }
 
     @Override
-    public boolean remove(int index)
+    public void setFavorites(BitSet favorites)
     {
-        if (!this.acquiredMorphs.isEmpty() && index >= 0 && index < this.acquiredMorphs.size())
+        this.favorites = (BitSet) favorites.clone();
+        this.favoritesDirty = true;
+    }
+
+    /**
+     * Remove acquired morph by given ID 
+     */
+    @Override
+    public boolean remove(int id)
+    {
+        Entry entry = this.acquiredMorphs.remove(id);
+
+        if (entry == null)
         {
-            int favorite = this.favorites.indexOf(index);
+            return false;
+        }
 
-            this.acquiredMorphs.remove(index);
+        this.acquiredDirty = true;
+        this.order = null;
+        this.unindexEntry(entry);
+        this.removed.add(new int[] {id, ++this.version});
 
-            if (favorite >= 0)
-            {
-                this.favorites.remove(favorite);
-            }
+        if (this.removed.size() > MAX_REMOVED)
+        {
+            this.removedSince = this.removed.remove(0)[1];
+        }
 
-            return true;
+        if (this.favorites.get(id))
+        {
+            this.favorites.clear(id);
+            this.favoritesDirty = true;
         }
 
-        return false;
+        return true;
     }
 
     @Override
     public void copy(IMorphing morphing, EntityPlayer player)
     {
-        this.acquiredMorphs = morphing.getAcquiredMorphs();
+        if (morphing instanceof Morphing)
+        {
+            this.copyAcquired((Morphing) morphing);
+        }
+        else
+        {
+            this.setAcquiredData(morphing.getAcquiredData(), morphing.getAcquiredIds());
+            this.setFavorites(morphing.getFavorites());
+        }
+
         this.setCurrentMorph(morphing.getCurrentMorph(), player, true);
+    }
+
+    /**
+     * Copy acquired morphs, favorites and sync state of given morphing 
+     * (i.e. from the previous player entity), so it can still be synced 
+     * with deltas. Current morph isn't copied. 
+     */
+    public void copyAcquired(Morphing morphing)
+    {
+        this.setAcquiredData(morphing.getAcquiredData(), morphing.getAcquiredIds());
         this.setFavorites(morphing.getFavorites());
+
+        for (Entry entry : this.acquiredMorphs.values())
+        {
+            entry.version = morphing.acquiredMorphs.get(entry.id).version;
+        }
+
+        this.nextId = Math.max(this.nextId, morphing.nextId);
+        this.epoch = morphing.epoch;
+        this.version = morphing.version;
+        this.removed = new ArrayList<int[]>(morphing.removed);
+        this.removedSince = morphing.removedSince;
+        this.synced = morphing.synced;
+        this.outstanding = morphing.outstanding;
+        this.handshake = morphing.handshake;
+        this.resynced = morphing.resynced;
+    }
+
+    /**
+     * Get epoch of acquired collection (see {@link #getVersion()}) 
+     */
+    public int getEpoch()
+    {
+        return this.epoch;
+    }
+
+    /**
+     * Get version of acquired collection
+     * 
+     * Together with epoch, version identifies the state of acquired 
+     * collection, so the server could send to the client only morphs which 
+     * were acquired or removed since the version which client already has 
+     * (see {@link #getAcquiredIds(int)} and {@link #getRemovedIds(int)}), 
+     * instead of the whole collection. 
+     */
+    public int getVersion()
+    {
+        return this.version;
+    }
+
+    /**
+     * Set epoch and version (on the client, after syncing with the server) 
+     */
+    public void setSync(int epoch, int version)
+    {
+        this.epoch = epoch;
+        this.version = version;
+    }
+
+    /**
+     * Get version which was last synced to the client, or -1 if client 
+     * has to get a full snapshot 
+     */
+    public int getSynced()
+    {
+        return this.synced;
+    }
+
+    /**
+     * Set version which was synced to the client (or acknowledged by the 
+     * client). Versions of other epochs are ignored 
+     */
+    public void setSynced(int epoch, int version)
+    {
+        if (epoch == this.epoch)
+        {
+            this.synced = version;
+        }
+    }
+
+    /**
+     * Mark that acquired morphs packet was sent to the client 
+     */
+    public void sentSync()
+    {
+        this.outstanding++;
+    }
+
+    /**
+     * Acknowledge one of acquired morphs packets sent to the client 
+     * 
+     * @return false, if there was no packet to acknowledge 
+     */
+    public boolean acknowledgeSync()
+    {
+        if (this.outstanding <= 0)
+        {
+            return false;
+        }
+
+        this.outstanding--;
+
+        return true;
+    }
+
+    /**
+     * Mark that the client was asked for a handshake 
+     */
+    public void requestHandshake()
+    {
+        this.handshake = true;
+    }
+
+    /**
+     * Answer client's handshake 
+     * 
+     * @return false, if the client wasn't asked for a handshake 
+     */
+    public boolean answerHandshake()
+    {
+        if (!this.handshake)
+        {
+            return false;
+        }
+
+        this.handshake = false;
+
+        return true;
+    }
+
+    /**
+     * Whether a full snapshot can be sent on client's request at given 
+     * world time (see {@link #RESYNC_COOLDOWN}), if so, the time is 
+     * remembered 
+     */
+    public boolean canResync(long time)
+    {
+        if (time - this.resynced < RESYNC_COOLDOWN)
+        {
+            return false;
+        }
+
+        this.resynced = time;
+
+        return true;
+    }
+
+    /**
+     * Whether acquired collection can be synced from given version with 
+     * a delta, i.e. all removals since that version are remembered 
+     */
+    public boolean canSync(int version)
+    {
+        return version >= 0 && version >= this.removedSince && version <= this.version;
+    }
+
+    /**
+     * Get IDs of morphs which were acquired after given version, in order 
+     * of acquiring 
+     */
+    public int[] getAcquiredIds(int since)
+    {
+        List<Entry> order = this.getOrder();
+        int count = 0;
+
+        for (Entry entry : order)
+        {
+            count += entry.version > since ? 1 : 0;
+        }
+
+        int[] ids = new int[count];
+        int i = 0;
+
+        for (Entry entry : order)
+        {
+            if (entry.version > since)
+            {
+                ids[i++] = entry.id;
+            }
+        }
+
+        return ids;
+    }
+
+    /**
+     * Get IDs of morphs which were removed after given version (see 
+     * {@link #canSync(int)})
+     */
+    public int[] getRemovedIds(int since)
+    {
+        int count = 0;
+
+        for (int[] removal : this.removed)
+        {
+            count += removal[1] > since ? 1 : 0;
+        }
+
+        int[] ids = new int[count];
+        int i = 0;
+
+        for (int[] removal : this.removed)
+        {
+            if (removal[1] > since)
+            {
+                ids[i++] = removal[0];
+            }
+        }
+
+        return ids;
+    }
+
+    /**
+     * Get NBT of acquired morph by its ID, or null if there's no such morph 
+     */
+    public NBTTagCompound getAcquiredNBT(int id)
+    {
+        Entry entry = this.acquiredMorphs.get(id);
+
+        return entry == null ? null : entry.toNBT();
+    }
+
+    /**
+     * Start new epoch, since the whole acquired collection was replaced 
+     */
+    private void resetSync()
+    {
+        this.epoch = EPOCHS.nextInt();
+        this.version = 0;
+        this.removed.clear();
+        this.removedSince = 0;
+        this.synced = -1;
+    }
+
+    /**
+     * Acquired morph entry
+     * 
+     * Holds either raw NBT of a morph (read from player's data or received 
+     * from the server), or already created morph, or both. 
+     */
+    private static class Entry
+    {
+        /**
+         * Stable ID of acquired morph 
+         */
+        public int id;
+
+        /**
+         * Version of acquired collection when this entry was acquired 
+         */
+        public int version;
+
+        /**
+         * Index key, null if entry is empty 
+         */
+        public String key;
+
+        /**
+         * Raw NBT of the morph (without entity data), null if entry was 
+         * created from a morph 
+         */
+        public NBTTagCompound tag;
+
+        /**
+         * Packed entity data of raw NBT, if there was any 
+         */
+        public EntityData data;
+
+        /**
+         * Created morph 
+         */
+        public AbstractMorph morph;
+
+        /**
+         * Whether morph was created (it may be null if its factory is gone) 
+         */
+        public boolean loaded;
+
+        public Entry(NBTTagCompound tag)
+        {
+            this.tag = tag;
+            this.key = tag == null ? null : getKey(tag);
+
+            /* Entity data is packed, so equal entity data is shared between 
+             * entries, and with created morphs. Given tag may be shared 
+             * (i.e. with cached serialized data), so it's left intact */
+            if (tag != null && tag.hasKey("EntityData", 10))
+            {
+                this.data = EntityUtils.packData(tag.getCompoundTag("EntityData"));
+                this.tag = new NBTTagCompound();
+
+                for (String key : tag.getKeySet())
+                {
+                    if (!key.equals("EntityData"))
+                    {
+                        this.tag.setTag(key, tag.getTag(key));
+                    }
+                }
+            }
+        }
+
+        public Entry(AbstractMorph morph)
+        {
+            this.morph = morph;
+            this.loaded = true;
+            this.key = morph == null ? null : getKey(morph);
+        }
+
+        /**
+         * Get the morph, creating it from raw NBT upon first call 
+         */
+        public AbstractMorph get()
+        {
+            if (!this.loaded)
+            {
+                this.loaded = true;
+                this.morph = this.tag == null ? null : MorphManager.INSTANCE.morphFromNBT(this.getRawNBT());
+            }
+
+            return this.morph;
+        }
+
+        /**
+         * Whether {@link #toNBT()} returns anything 
+         */
+        public boolean hasNBT()
+        {
+            return this.morph != null || this.tag != null;
+        }
+
+        /**
+         * Get NBT of this entry. Raw NBT is passed through if morph wasn't 
+         * created (or couldn't be created), so entries of missing morphs 
+         * don't get lost.
+         */
+        public NBTTagCompound toNBT()
+        {
+            if (this.morph == null)
+            {
+                return this.getRawNBT();
+            }
+
+            NBTTagCompound tag = new NBTTagCompound();
+
+            this.morph.toNBT(tag);
+
+            return tag;
+        }
+
+        /**
+         * Get raw NBT with unpacked entity data 
+         */
+        private NBTTagCompound getRawNBT()
+        {
+            if (this.data == null || this.tag == null)
+            {
+                return this.tag;
+            }
+
+            NBTTagCompound tag = this.tag.copy();
+
+            tag.setTag("EntityData", this.data.toNBT());
+
+            return tag;
+        }
+    }
+
+    /**
+     * Read-only list of acquired morphs which creates morphs from entries 
+     * only when they're accessed 
+     */
+    private class AcquiredList extends AbstractList<AbstractMorph> implements RandomAccess
+    {
+        @Override
+        public AbstractMorph get(int index)
+        {
+            return getOrder().get(index).get();
+        }
+
+        @Override
+        public int size()
+        {
+            return acquiredMorphs.size();
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,335 @@
+package mchorse.metamorph.capabilities.morphing;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+import mchorse.metamorph.api.IMorphFactory;
+import mchorse.metamorph.api.ITemplateMorphFactory;
+import mchorse.metamorph.api.MorphManager;
+import net.minecraft.nbt.NBTBase;
+import net.minecraft.nbt.NBTPrimitive;
+import net.minecraft.nbt.NBTTagByteArray;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.nbt.NBTTagDouble;
+import net.minecraft.nbt.NBTTagFloat;
+import net.minecraft.nbt.NBTTagIntArray;
+import net.minecraft.nbt.NBTTagList;
+import net.minecraft.nbt.NBTTagString;
+
+/**
+ * Morphing codec
+ *
+ * This class is responsible for compact encoding of acquired morphs in
+ * player's data. Morphs of {@link ITemplateMorphFactory} factories are
+ * stored as a reference to factory's template and only the keys which
+ * differ from the template:
+ *
+ * <pre>
+ * {T: "Pig", H: 123L, D: {EntityData: {Age: -1}}, R: {EntityData: {Saddle: 1b}}}
+ * </pre>
+ *
+ * where "T" is template's name, "H" is template's hash (see
+ * {@link #hash(NBTBase)}), "D" is a compound of added or changed keys
+ * and "R" is a tree of removed keys (byte leaf means removed key, compound
+ * means that some of nested keys were removed). Other morphs are stored
+ * as is.
+ *
+ * Templates are generated out of freshly constructed entities, so they
+ * may change between launches (game or mod updates). Such morphs are
+ * decoded against the new template (keys which weren't stored take new
+ * defaults), and they are reported as stale (see
+ * {@link #isStale(NBTTagCompound)}), so they would be written again
+ * against the new template.
+ */
+public class MorphingCodec
+{
+    /**
+     * Current version of capability's format. Version 1 (no version tag)
+     * stored complete NBT of every acquired morph
+     */
+    public static final int VERSION = 2;
+
+    /**
+     * Encode given morph NBT
+     *
+     * @return encoded tag, or given tag if it can't be encoded
+     */
+    public static NBTTagCompound encode(NBTTagCompound tag)
+    {
+        String name = tag.getString("Name");
+        NBTTagCompound template = getTemplate(name);
+
+        if (template == null)
+        {
+            return tag;
+        }
+
+        NBTTagCompound encoded = new NBTTagCompound();
+        NBTTagCompound diff = new NBTTagCompound();
+        NBTTagCompound removed = new NBTTagCompound();
+
+        diff(tag, template, diff, removed);
+
+        encoded.setString("T", name);
+        encoded.setLong("H", hash(template));
+
+        if (!diff.hasNoTags())
+        {
+            encoded.setTag("D", diff);
+        }
+
+        if (!removed.hasNoTags())
+        {
+            encoded.setTag("R", removed);
+        }
+
+        return encoded;
+    }
+
+    /**
+     * Decode given morph NBT
+     *
+     * @return decoded tag, or given tag if it wasn't encoded or its
+     *         template is missing (in this case it's kept encoded, so it
+     *         wouldn't get lost)
+     */
+    public static NBTTagCompound decode(NBTTagCompound tag)
+    {
+        if (!tag.hasKey("T", 8))
+        {
+            return tag;
+        }
+
+        NBTTagCompound template = getTemplate(tag.getString("T"));
+
+        if (template == null)
+        {
+            return tag;
+        }
+
+        if (tag.hasKey("H", 4) && tag.getLong("H") != hash(template))
+        {
+            System.out.println("Template of '" + tag.getString("T") + "' morph has changed since it was saved, its unsaved keys take new defaults!");
+        }
+
+        NBTTagCompound decoded = template.copy();
+
+        decoded.merge(tag.getCompoundTag("D"));
+        remove(decoded, tag.getCompoundTag("R"));
+
+        return decoded;
+    }
+
+    /**
+     * Whether given encoded tag was encoded against a template which is 
+     * different from the current one. Tags which weren't encoded, whose 
+     * template is missing, or were encoded before templates were hashed, 
+     * are never stale
+     */
+    public static boolean isStale(NBTTagCompound tag)
+    {
+        if (!tag.hasKey("T", 8) || !tag.hasKey("H", 4))
+        {
+            return false;
+        }
+
+        NBTTagCompound template = getTemplate(tag.getString("T"));
+
+        return template != null && tag.getLong("H") != hash(template);
+    }
+
+    /**
+     * Compute content hash of acquired morphs (their NBT, IDs and 
+     * favorites). It's used for checking whether client's cached copy of 
+     * acquired morphs is up to date
+     */
+    public static long hash(List<NBTTagCompound> morphs, int[] ids, BitSet favorites)
+    {
+        long hash = mix(0, morphs.size());
+
+        for (int i = 0, c = morphs.size(); i < c; i++)
+        {
+            hash = mix(hash, ids[i]);
+            hash = mix(hash, hash(morphs.get(i)));
+        }
+
+        for (int id = favorites.nextSetBit(0); id >= 0; id = favorites.nextSetBit(id + 1))
+        {
+            hash = mix(hash, id);
+        }
+
+        return hash;
+    }
+
+    /**
+     * Compute canonical 64-bit hash of given tag
+     * 
+     * Unlike NBT's serialization, it doesn't depend on the order of 
+     * compound's keys, so equal tags have equal hashes on both sides.
+     */
+    public static long hash(NBTBase tag)
+    {
+        long hash = mix(0, tag.getId());
+
+        if (tag instanceof NBTTagCompound)
+        {
+            NBTTagCompound compound = (NBTTagCompound) tag;
+            String[] keys = compound.getKeySet().toArray(new String[compound.getSize()]);
+
+            Arrays.sort(keys);
+
+            for (String key : keys)
+            {
+                hash = mix(hash, hash(key));
+                hash = mix(hash, hash(compound.getTag(key)));
+            }
+        }
+        else if (tag instanceof NBTTagList)
+        {
+            NBTTagList list = (NBTTagList) tag;
+
+            for (int i = 0, c = list.tagCount(); i < c; i++)
+            {
+                hash = mix(hash, hash(list.get(i)));
+            }
+        }
+        else if (tag instanceof NBTTagString)
+        {
+            hash = mix(hash, hash(((NBTTagString) tag).getString()));
+        }
+        else if (tag instanceof NBTTagFloat)
+        {
+            hash = mix(hash, Float.floatToIntBits(((NBTTagFloat) tag).getFloat()));
+        }
+        else if (tag instanceof NBTTagDouble)
+        {
+            hash = mix(hash, Double.doubleToLongBits(((NBTTagDouble) tag).getDouble()));
+        }
+        else if (tag instanceof NBTPrimitive)
+        {
+            hash = mix(hash, ((NBTPrimitive) tag).getLong());
+        }
+        else if (tag instanceof NBTTagByteArray)
+        {
+            for (byte value : ((NBTTagByteArray) tag).getByteArray())
+            {
+                hash = mix(hash, value);
+            }
+        }
+        else if (tag instanceof NBTTagIntArray)
+        {
+            for (int value : ((NBTTagIntArray) tag).getIntArray())
+            {
+                hash = mix(hash, value);
+            }
+        }
+
+        return hash;
+    }
+
+    /**
+     * Hash a string (every character contributes, not only 32-bit 
+     * {@link String#hashCode()})
+     */
+    private static long hash(String string)
+    {
+        long hash = mix(0, string.length());
+
+        for (int i = 0, c = string.length(); i < c; i++)
+        {
+            hash = mix(hash, string.charAt(i));
+        }
+
+        return hash;
+    }
+
+    /**
+     * Mix a value into the hash
+     */
+    private static long mix(long hash, long value)
+    {
+        hash = (hash ^ value) * 0x9E3779B97F4A7C15L;
+
+        return hash ^ (hash >>> 29);
+    }
+
+    /**
+     * Get template tag of a morph by given name
+     */
+    private static NBTTagCompound getTemplate(String name)
+    {
+        IMorphFactory factory = MorphManager.INSTANCE.getFactory(name);
+
+        if (factory instanceof ITemplateMorphFactory)
+        {
+            return ((ITemplateMorphFactory) factory).getTemplateNBT(name);
+        }
+
+        return null;
+    }
+
+    /**
+     * Collect keys of given tag which were added or changed into diff, and
+     * keys which were removed from template into removed. Nested compounds
+     * are compared recursively.
+     */
+    public static void diff(NBTTagCompound tag, NBTTagCompound template, NBTTagCompound diff, NBTTagCompound removed)
+    {
+        for (String key : tag.getKeySet())
+        {
+            NBTBase value = tag.getTag(key);
+            NBTBase base = template.getTag(key);
+
+            if (value instanceof NBTTagCompound && base instanceof NBTTagCompound)
+            {
+                NBTTagCompound childDiff = new NBTTagCompound();
+                NBTTagCompound childRemoved = new NBTTagCompound();
+
+                diff((NBTTagCompound) value, (NBTTagCompound) base, childDiff, childRemoved);
+
+                if (!childDiff.hasNoTags())
+                {
+                    diff.setTag(key, childDiff);
+                }
+
+                if (!childRemoved.hasNoTags())
+                {
+                    removed.setTag(key, childRemoved);
+                }
+            }
+            else if (!value.equals(base))
+            {
+                diff.setTag(key, value);
+            }
+        }
+
+        for (String key : template.getKeySet())
+        {
+            if (!tag.hasKey(key))
+            {
+                removed.setBoolean(key, true);
+            }
+        }
+    }
+
+    /**
+     * Remove keys from given tag according to removed tree
+     */
+    public static void remove(NBTTagCompound tag, NBTTagCompound removed)
+    {
+        for (String key : removed.getKeySet())
+        {
+            NBTBase value = removed.getTag(key);
+
+            if (value instanceof NBTTagCompound && tag.hasKey(key, 10))
+            {
+                remove(tag.getCompoundTag(key), (NBTTagCompound) value);
+            }
+            else
+            {
+                tag.removeTag(key);
+            }
+        }
+    }
+}
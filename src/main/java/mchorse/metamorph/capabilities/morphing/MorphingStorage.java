@@ -1,10 +1,11 @@
 package mchorse.metamorph.capabilities.morphing;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
 
+import mchorse.metamorph.Metamorph;
 import mchorse.metamorph.api.MorphManager;
-import mchorse.metamorph.api.morphs.AbstractMorph;
 import net.minecraft.nbt.NBTBase;
 import net.minecraft.nbt.NBTTagCompound;
 import net.minecraft.nbt.NBTTagInt;
@@ -24,13 +25,148 @@ import net.minecraftforge.common.capabilities.Capability.IStorage;
  */
 public class MorphingStorage implements IStorage<IMorphing>
 {
+    /**
+     * Write morphing capability
+     * 
+     * Default implementation ({@link Morphing}) tracks its changes, so its 
+     * last serialized tag is reused when nothing has changed, and new 
+     * acquired morphs are appended to it instead of serializing all of 
+     * acquired morphs again. Returned tag is a new compound every time, 
+     * but it shares already encoded morph tags with the cache, so don't 
+     * modify nested tags.
+     */
     @Override
     public NBTBase writeNBT(Capability<IMorphing> capability, IMorphing instance, EnumFacing side)
+    {
+        if (instance instanceof Morphing && Metamorph.proxy.isMorphStoreEnabled())
+        {
+            /* Data is saved by the morph store, only a reference is needed. 
+             * It's also kept when the log failed to load, so it would be 
+             * loaded again on next start */
+            if (((Morphing) instance).stored)
+            {
+                NBTTagCompound tag = new NBTTagCompound();
+
+                tag.setInteger("Version", MorphingCodec.VERSION);
+                tag.setBoolean("Store", true);
+
+                return tag;
+            }
+
+            /* Store doesn't have the data yet, so player's data has to 
+             * keep it. Change tracking is left to the store */
+            return this.write(instance);
+        }
+
+        if (instance instanceof Morphing)
+        {
+            return this.writeMorphing((Morphing) instance);
+        }
+
+        return this.write(instance);
+    }
+
+    /**
+     * Write default morphing capability, serializing only what has changed 
+     * since the last save 
+     */
+    private NBTTagCompound writeMorphing(Morphing morphing)
+    {
+        NBTTagCompound tag = morphing.serialized;
+        int count = morphing.getAcquiredCount();
+
+        if (tag == null || morphing.acquiredDirty)
+        {
+            tag = this.write(morphing);
+        }
+        else
+        {
+            if (morphing.morphDirty)
+            {
+                this.writeMorph(tag, morphing);
+            }
+
+            if (morphing.serializedCount < count)
+            {
+                NBTTagList acquired = tag.getTagList("Morphs", 10);
+
+                for (int i = morphing.serializedCount; i < count; i++)
+                {
+                    this.writeAcquired(acquired, morphing.getAcquiredData(i));
+                }
+
+                tag.setTag("Morphs", acquired);
+            }
+
+            if (morphing.favoritesDirty)
+            {
+                this.writeFavorites(tag, morphing);
+            }
+        }
+
+        morphing.serialized = tag;
+        morphing.serializedCount = count;
+        morphing.acquiredDirty = morphing.favoritesDirty = morphing.morphDirty = false;
+
+        return share(tag);
+    }
+
+    /**
+     * Create a new compound and a new acquired list with the same entries, 
+     * so the cached tag could be modified later without affecting the 
+     * returned one (encoded morphs aren't copied)
+     */
+    private static NBTTagCompound share(NBTTagCompound tag)
+    {
+        NBTTagCompound shared = new NBTTagCompound();
+        NBTTagList acquired = new NBTTagList();
+        NBTTagList morphs = tag.getTagList("Morphs", 10);
+
+        for (String key : tag.getKeySet())
+        {
+            shared.setTag(key, tag.getTag(key));
+        }
+
+        for (int i = 0, c = morphs.tagCount(); i < c; i++)
+        {
+            acquired.appendTag(morphs.get(i));
+        }
+
+        shared.setTag("Morphs", acquired);
+
+        return shared;
+    }
+
+    /**
+     * Write complete morphing capability 
+     */
+    public NBTTagCompound write(IMorphing instance)
     {
         NBTTagCompound tag = new NBTTagCompound();
         NBTTagList acquired = new NBTTagList();
-        NBTTagList favorites = new NBTTagList();
 
+        this.writeMorph(tag, instance);
+
+        tag.setInteger("Version", MorphingCodec.VERSION);
+        tag.setTag("Morphs", acquired);
+
+        /* Morphs which weren't requested are written back in their raw form, 
+         * and only the difference against their template is stored */
+        for (NBTTagCompound acquiredTag : instance.getAcquiredData())
+        {
+            this.writeAcquired(acquired, acquiredTag);
+        }
+
+        this.writeFavorites(tag, instance);
+
+        return tag;
+    }
+
+    /**
+     * Write current morph 
+     */
+    private void writeMorph(NBTTagCompound tag, IMorphing instance)
+    {
         if (instance.getCurrentMorph() != null)
         {
             NBTTagCompound morph = new NBTTagCompound();
@@ -38,24 +174,56 @@ public class MorphingStorage implements IStorage<IMorphing>
 
             tag.setTag("Morph", morph);
         }
-
-        tag.setTag("Morphs", acquired);
-        tag.setTag("Favorites", favorites);
-
-        for (AbstractMorph acquiredMorph : instance.getAcquiredMorphs())
+        else
         {
-            NBTTagCompound acquiredTag = new NBTTagCompound();
+            tag.removeTag("Morph");
+        }
+    }
 
-            acquiredMorph.toNBT(acquiredTag);
-            acquired.appendTag(acquiredTag);
+    /**
+     * Encode and append acquired morph's tag to the list
+     */
+    private void writeAcquired(NBTTagList acquired, NBTTagCompound acquiredTag)
+    {
+        if (acquiredTag != null)
+        {
+            acquired.appendTag(MorphingCodec.encode(acquiredTag));
         }
+    }
 
-        for (Integer index : instance.getFavorites())
+    /**
+     * Write favorites
+     * 
+     * Favorites are saved as indices in acquired list, since morph IDs 
+     * are reassigned out of indices on load. Entries without NBT aren't 
+     * written (see {@link #writeAcquired(NBTTagList, NBTTagCompound)}), 
+     * so they're skipped over here as well. 
+     */
+    void writeFavorites(NBTTagCompound tag, IMorphing instance)
+    {
+        NBTTagList favorites = new NBTTagList();
+        int[] ids = instance.getAcquiredIds();
+        List<NBTTagCompound> data = instance instanceof Morphing ? null : instance.getAcquiredData();
+        int index = 0;
+
+        for (int i = 0; i < ids.length; i++)
         {
-            favorites.appendTag(new NBTTagInt(index.intValue()));
+            boolean written = data == null ? ((Morphing) instance).hasAcquiredData(i) : data.get(i) != null;
+
+            if (!written)
+            {
+                continue;
+            }
+
+            if (instance.isFavorite(ids[i]))
+            {
+                favorites.appendTag(new NBTTagInt(index));
+            }
+
+            index++;
         }
 
-        return tag;
+        tag.setTag("Favorites", favorites);
     }
 
     @Override
@@ -67,6 +235,20 @@ public class MorphingStorage implements IStorage<IMorphing>
             NBTTagList acquired = tag.getTagList("Morphs", 10);
             NBTTagList favorites = tag.getTagList("Favorites", 3);
             NBTTagCompound morphTag = tag.getCompoundTag("Morph");
+            boolean encoded = tag.getInteger("Version") >= 2;
+            boolean stale = false;
+
+            /* Data is going to be loaded from the morph store (see 
+             * CapabilityHandler) */
+            if (tag.getBoolean("Store"))
+            {
+                if (instance instanceof Morphing)
+                {
+                    ((Morphing) instance).stored = true;
+                }
+
+                return;
+            }
 
             if (!tag.hasNoTags())
             {
@@ -75,28 +257,47 @@ public class MorphingStorage implements IStorage<IMorphing>
 
             if (!acquired.hasNoTags())
             {
-                List<AbstractMorph> acquiredMorphs = new ArrayList<AbstractMorph>();
+                List<NBTTagCompound> acquiredMorphs = new ArrayList<NBTTagCompound>();
 
+                /* Acquired morphs are created only when they're needed. Data 
+                 * in the old format is migrated simply by reading it as is */
                 for (int i = 0; i < acquired.tagCount(); i++)
                 {
                     NBTTagCompound acquiredTag = acquired.getCompoundTagAt(i);
 
-                    acquiredMorphs.add(MorphManager.INSTANCE.morphFromNBT(acquiredTag));
+                    stale = stale || (encoded && MorphingCodec.isStale(acquiredTag));
+                    acquiredMorphs.add(encoded ? MorphingCodec.decode(acquiredTag) : acquiredTag);
                 }
 
-                instance.setAcquiredMorphs(acquiredMorphs);
+                instance.setAcquiredData(acquiredMorphs);
             }
 
             if (!favorites.hasNoTags())
             {
-                List<Integer> favoritesIndices = new ArrayList<Integer>();
+                BitSet favoritesIds = new BitSet();
 
+                /* Acquired morphs get IDs of their indices */
                 for (int i = 0; i < favorites.tagCount(); i++)
                 {
-                    favoritesIndices.add(favorites.getIntAt(i));
+                    if (favorites.getIntAt(i) >= 0)
+                    {
+                        favoritesIds.set(favorites.getIntAt(i));
+                    }
                 }
 
-                instance.setFavorites(favoritesIndices);
+                instance.setFavorites(favoritesIds);
+            }
+
+            /* Data in current format can be saved back as is, until 
+             * something changes (unless some of templates have changed). 
+             * It's copied, since the cache gets modified */
+            if (encoded && !stale && instance instanceof Morphing)
+            {
+                Morphing morphing = (Morphing) instance;
+
+                morphing.serialized = tag.copy();
+                morphing.serializedCount = morphing.getAcquiredCount();
+                morphing.acquiredDirty = morphing.favoritesDirty = morphing.morphDirty = false;
             }
         }
     }
@@ -0,0 +1,284 @@
+package mchorse.metamorph.client;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import mchorse.metamorph.capabilities.morphing.IMorphing;
+import mchorse.metamorph.capabilities.morphing.Morphing;
+import mchorse.metamorph.capabilities.morphing.MorphingCodec;
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.multiplayer.ServerData;
+import net.minecraft.entity.player.EntityPlayer;
+import net.minecraft.nbt.CompressedStreamTools;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.nbt.NBTTagIntArray;
+import net.minecraft.nbt.NBTTagList;
+import net.minecraftforge.event.world.WorldEvent;
+import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
+import net.minecraftforge.fml.relauncher.Side;
+import net.minecraftforge.fml.relauncher.SideOnly;
+
+/**
+ * Acquired morphs cache
+ *
+ * This class is responsible for keeping a copy of acquired morphs on the
+ * disk per server and player, along with its content hash (see
+ * {@link MorphingCodec#hash(List, int[], BitSet)}). On login, the hash is
+ * sent to the server (see {@link mchorse.metamorph.network.common.PacketMorphsHandshake}),
+ * so the server has to send only morphs which aren't in the cache, or
+ * nothing at all if the cache is up to date.
+ *
+ * The cache is updated every time acquired morphs are synced, and when
+ * client's world is unloaded (i.e. on disconnect).
+ */
+@SideOnly(Side.CLIENT)
+public class AcquiredCache
+{
+    /**
+     * Cache file of current server and player, or null if it wasn't loaded
+     */
+    private File file;
+
+    private List<NBTTagCompound> morphs = new ArrayList<NBTTagCompound>();
+    private int[] ids = new int[0];
+    private BitSet favorites = new BitSet();
+    private long hash;
+
+    /**
+     * Get cache file of given player on current server
+     */
+    public static File getFile(EntityPlayer player)
+    {
+        Minecraft mc = Minecraft.getMinecraft();
+        ServerData server = mc.getCurrentServerData();
+        String folder = "unknown";
+
+        if (server != null)
+        {
+            folder = "server_" + server.serverIP;
+        }
+        else if (mc.getIntegratedServer() != null)
+        {
+            folder = "local_" + mc.getIntegratedServer().getFolderName();
+        }
+
+        folder = folder.replaceAll("[^A-Za-z0-9_.-]", "_");
+
+        return new File(mc.mcDataDir, "metamorph/cache/" + folder + "/" + player.getUniqueID() + ".dat");
+    }
+
+    /**
+     * Whether the cache was loaded for current server
+     */
+    public boolean isLoaded()
+    {
+        return this.file != null;
+    }
+
+    /**
+     * Load cache of given player on current server. If there's no cache,
+     * it will be empty
+     */
+    public void load(EntityPlayer player)
+    {
+        this.file = getFile(player);
+        this.morphs = new ArrayList<NBTTagCompound>();
+        this.ids = new int[0];
+        this.favorites = new BitSet();
+        this.hash = 0;
+
+        if (!this.file.exists())
+        {
+            return;
+        }
+
+        try
+        {
+            InputStream input = new FileInputStream(this.file);
+            NBTTagCompound tag = CompressedStreamTools.readCompressed(input);
+
+            input.close();
+
+            NBTTagList morphs = tag.getTagList("Morphs", 10);
+            int[] ids = tag.getIntArray("Ids");
+
+            if (ids.length != morphs.tagCount())
+            {
+                return;
+            }
+
+            for (int i = 0; i < morphs.tagCount(); i++)
+            {
+                this.morphs.add(morphs.getCompoundTagAt(i));
+            }
+
+            for (int id : tag.getIntArray("Favorites"))
+            {
+                this.favorites.set(id);
+            }
+
+            this.ids = ids;
+            this.hash = tag.getLong("Hash");
+        }
+        catch (Exception e)
+        {
+            System.out.println("Failed to load acquired morphs cache '" + this.file + "'!");
+            e.printStackTrace();
+
+            this.morphs.clear();
+            this.ids = new int[0];
+            this.favorites.clear();
+        }
+    }
+
+    /**
+     * Whether the cache is empty (or there's no cache)
+     */
+    public boolean isEmpty()
+    {
+        return this.morphs.isEmpty() && this.favorites.isEmpty();
+    }
+
+    public long getHash()
+    {
+        return this.hash;
+    }
+
+    /**
+     * Get hashes of cached morphs (see {@link MorphingCodec#hash(net.minecraft.nbt.NBTBase)})
+     */
+    public long[] getHashes()
+    {
+        long[] hashes = new long[this.morphs.size()];
+
+        for (int i = 0; i < hashes.length; i++)
+        {
+            hashes[i] = MorphingCodec.hash(this.morphs.get(i));
+        }
+
+        return hashes;
+    }
+
+    /**
+     * Get cached morphs. Returned tags are shared, don't modify them
+     */
+    public List<NBTTagCompound> getMorphs()
+    {
+        return this.morphs;
+    }
+
+    public int[] getIds()
+    {
+        return this.ids;
+    }
+
+    public BitSet getFavorites()
+    {
+        return (BitSet) this.favorites.clone();
+    }
+
+    /**
+     * Update cache with given acquired morphs, and write it on the disk if
+     * they have changed
+     */
+    public void update(IMorphing morphing)
+    {
+        if (this.file == null)
+        {
+            return;
+        }
+
+        List<NBTTagCompound> morphs = morphing.getAcquiredData();
+        int[] ids = morphing.getAcquiredIds();
+        BitSet favorites = morphing.getFavorites();
+        long hash = MorphingCodec.hash(morphs, ids, favorites);
+
+        if (hash == this.hash && this.file.exists())
+        {
+            return;
+        }
+
+        this.morphs = morphs;
+        this.ids = ids;
+        this.favorites = favorites;
+        this.hash = hash;
+
+        this.save();
+    }
+
+    /**
+     * Write the cache
+     */
+    private void save()
+    {
+        NBTTagCompound tag = new NBTTagCompound();
+        NBTTagList morphs = new NBTTagList();
+        int[] favorites = new int[this.favorites.cardinality()];
+        int i = 0;
+
+        for (NBTTagCompound morph : this.morphs)
+        {
+            morphs.appendTag(morph);
+        }
+
+        for (int id = this.favorites.nextSetBit(0); id >= 0; id = this.favorites.nextSetBit(id + 1))
+        {
+            favorites[i++] = id;
+        }
+
+        tag.setLong("Hash", this.hash);
+        tag.setTag("Morphs", morphs);
+        tag.setTag("Ids", new NBTTagIntArray(this.ids));
+        tag.setTag("Favorites", new NBTTagIntArray(favorites));
+
+        try
+        {
+            File temporary = new File(this.file.getPath() + ".tmp");
+
+            this.file.getParentFile().mkdirs();
+
+            OutputStream output = new FileOutputStream(temporary);
+
+            CompressedStreamTools.writeCompressed(tag, output);
+            output.close();
+
+            if (this.file.exists())
+            {
+                this.file.delete();
+            }
+
+            temporary.renameTo(this.file);
+        }
+        catch (Exception e)
+        {
+            System.out.println("Failed to save acquired morphs cache '" + this.file + "'!");
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Update the cache when client's world is unloaded (on disconnect or
+     * dimension change), so morphs acquired during the session are cached
+     */
+    @SubscribeEvent
+    public void onWorldUnload(WorldEvent.Unload event)
+    {
+        EntityPlayer player = Minecraft.getMinecraft().thePlayer;
+
+        if (event.getWorld().isRemote && player != null)
+        {
+            IMorphing morphing = Morphing.get(player);
+
+            if (morphing != null)
+            {
+                this.update(morphing);
+            }
+        }
+    }
+}
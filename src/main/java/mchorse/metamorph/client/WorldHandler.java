@@ -0,0 +1,54 @@
+package mchorse.metamorph.client;
+
+import mchorse.metamorph.api.MorphManager;
+import mchorse.metamorph.client.gui.elements.GuiCreativeMorphs;
+import net.minecraft.client.Minecraft;
+import net.minecraftforge.event.world.WorldEvent;
+import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
+import net.minecraftforge.fml.common.network.FMLNetworkEvent.ClientDisconnectionFromServerEvent;
+import net.minecraftforge.fml.relauncher.Side;
+import net.minecraftforge.fml.relauncher.SideOnly;
+
+/**
+ * Client world handler
+ * 
+ * This handler is responsible for dropping catalog morphs and compiled 
+ * creative categories when client's world goes away, since their entities 
+ * were set up in that world. Otherwise, every old client world would be 
+ * kept in memory, and its entities would get rendered.
+ */
+@SideOnly(Side.CLIENT)
+public class WorldHandler
+{
+    @SubscribeEvent
+    public void onWorldUnload(WorldEvent.Unload event)
+    {
+        if (event.getWorld().isRemote)
+        {
+            this.reset();
+        }
+    }
+
+    /**
+     * This event is fired on netty thread, so the reset is scheduled 
+     * on the main thread
+     */
+    @SubscribeEvent
+    public void onDisconnect(ClientDisconnectionFromServerEvent event)
+    {
+        Minecraft.getMinecraft().addScheduledTask(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                WorldHandler.this.reset();
+            }
+        });
+    }
+
+    private void reset()
+    {
+        MorphManager.INSTANCE.invalidateMorphs();
+        GuiCreativeMorphs.reset();
+    }
+}
@@ -97,14 +97,14 @@ public class GuiCreativeMenu extends GuiScreen
         {
             if (button.id == 0)
             {
-                Dispatcher.sendToServer(new PacketMorph(morph.morph));
+                Dispatcher.sendToServer(new PacketMorph(morph == null ? null : morph.getMorph()));
             }
 
             Minecraft.getMinecraft().displayGuiScreen(null);
         }
         else if (morph != null)
         {
-            Dispatcher.sendToServer(new PacketAcquireMorph(morph.morph));
+            Dispatcher.sendToServer(new PacketAcquireMorph(morph.getMorph()));
         }
     }
 
@@ -200,9 +200,9 @@ public class GuiCreativeMenu extends GuiScreen
         this.pane.drawScreen(mouseX, mouseY, partialTicks);
         this.search.drawTextBox();
 
-        if (morph != null)
+        if (morph != null && morph.getMorph() != null)
         {
-            this.renderMorph(morph.morph, Minecraft.getMinecraft().thePlayer, 70, height - (int) ((float) height / 2.6), 43);
+            this.renderMorph(morph.getMorph(), Minecraft.getMinecraft().thePlayer, 70, height - (int) ((float) height / 2.6), 43);
         }
 
         /* Disable scissors */
@@ -2,17 +2,13 @@ package mchorse.metamorph.client.gui.elements;
 
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
-import mchorse.metamorph.api.MorphList;
-import mchorse.metamorph.api.MorphManager;
+import mchorse.metamorph.api.MorphDescriptor;
 import mchorse.metamorph.api.morphs.AbstractMorph;
 import mchorse.metamorph.capabilities.morphing.IMorphing;
 import mchorse.metamorph.capabilities.morphing.Morphing;
+import mchorse.metamorph.client.gui.utils.CategoryCompiler;
 import mchorse.metamorph.client.gui.utils.GuiScrollPane;
 import net.minecraft.client.Minecraft;
 import net.minecraft.client.resources.I18n;
@@ -58,114 +54,159 @@ public class GuiCreativeMorphs extends GuiScrollPane
      */
     private List<MorphCategory> categories = new ArrayList<MorphCategory>();
 
+    /**
+     * Category compiler, shared between all instances of this GUI. 
+     * Categories are recompiled only when morph catalog or language 
+     * changes.
+     */
+    private static CategoryCompiler compiler;
+
+    /**
+     * Time budget (in nanoseconds) per frame for creating morphs. Morph 
+     * creation requires constructing an entity, so without the budget 
+     * first frames of this GUI would stall 
+     */
+    private static final long BUDGET = 4000000L;
+
+    /**
+     * Time (in nanoseconds) after which no morphs should be created in 
+     * current frame 
+     */
+    private long deadline;
+
+    /**
+     * Index of category and cell from which morphs are created in the 
+     * background (when there's still some budget left after rendering) 
+     */
+    private int warmCategory;
+    private int warmCell;
+
+    /**
+     * Morph which should be selected once its category is compiled 
+     */
+    private AbstractMorph current;
+
     /**
      * Initiate this GUI.
      * 
-     * Compile the categories list and compute the scroll height of this scroll pane 
+     * Start (or reuse) compilation of the categories list. Categories are 
+     * added to this scroll pane as soon as they're compiled 
      */
     public GuiCreativeMorphs(int perRow)
     {
+        EntityPlayer player = Minecraft.getMinecraft().thePlayer;
+        IMorphing morphing = Morphing.get(player);
+
         this.perRow = perRow;
-        this.compileCategories();
-        this.initiateCategories();
+        this.current = morphing == null ? null : morphing.getCurrentMorph();
+
+        if (compiler == null || compiler.isOutdated())
+        {
+            compiler = CategoryCompiler.start();
+        }
+
+        this.pollCategories();
+    }
+
+    /**
+     * Drop shared category compiler (i.e. when client's world is unloaded), 
+     * so its morphs (and their entities) wouldn't be kept 
+     */
+    public static void reset()
+    {
+        compiler = null;
     }
 
     /**
-     * Compile morph categories
+     * Whether all categories were compiled and added to this GUI 
+     */
+    public boolean isLoading()
+    {
+        return !compiler.isDone() || this.categories.size() != compiler.getCategories().size();
+    }
+
+    /**
+     * Poll compiled categories
      * 
-     * This method is responsible for compiling all morph categories into 
-     * {@link #categories} list and then sorting it by its titles.
+     * This method is responsible for copying categories that were compiled 
+     * since last poll into {@link #categories} list, selecting most similar 
+     * morph that player might have and recomputing the space attributes.
      */
-    private void compileCategories()
+    private void pollCategories()
     {
-        Map<String, MorphCategory> categories = new HashMap<String, MorphCategory>();
+        List<MorphCategory> compiled = compiler.getCategories();
+        int size = this.categories.size();
 
-        for (List<MorphList.MorphCell> morphs : MorphManager.INSTANCE.getMorphs().morphs.values())
+        if (size == compiled.size())
         {
-            for (MorphList.MorphCell morph : morphs)
+            return;
+        }
+
+        String filter = this.previousFilter.toLowerCase();
+        int y = -1;
+
+        for (int i = size; i < compiled.size(); i++)
+        {
+            MorphCategory category = compiled.get(i).copy();
+
+            for (MorphCell cell : category.cells)
             {
-                MorphCategory category = categories.get(morph.category);
+                cell.hidden = filter.isEmpty() ? false : cell.name.toLowerCase().indexOf(filter) == -1;
 
-                if (category == null)
+                /* Select current morph */
+                if (this.selected == -1 && this.current != null && cell.descriptor.name.equals(this.current.name) && this.current.equals(cell.getMorph()))
                 {
-                    category = new MorphCategory(morph.category, morph.category);
-                    categories.put(morph.category, category);
-                }
-
-                String variant = morph.variant.isEmpty() ? morph.variant : " (" + morph.variant + ")";
-                String title = MorphManager.INSTANCE.morphDisplayNameFromMorph(morph.morph.name) + variant;
+                    this.selected = i;
+                    this.selectedMorph = cell.index;
 
-                category.cells.add(new MorphCell(title, morph.morph, 0));
+                    y = cell.index;
+                }
             }
+
+            this.categories.add(category);
         }
 
-        this.categories.addAll(categories.values());
+        int scrollY = this.scrollY;
+
+        this.layoutCategories();
 
-        Collections.sort(this.categories, new Comparator<MorphCategory>()
+        if (y != -1)
         {
-            @Override
-            public int compare(MorphCategory a, MorphCategory b)
-            {
-                return a.title.compareTo(b.title);
-            }
-        });
+            this.scrollTo(this.categories.get(this.selected).y + y / this.perRow * cellH);
+        }
+        else
+        {
+            this.scrollTo(scrollY);
+        }
     }
 
     /**
-     * Initiate morph categories
-     * 
-     * This method is responsible for sorting for each category cells by 
-     * alphabet, computing space attributes (height and y-coord) and selecting 
-     * most similar morph that player might have.
+     * Compute space attributes (height and y-coord) of the categories 
+     * and the scroll height, taking in account hidden cells
      */
-    private void initiateCategories()
+    private void layoutCategories()
     {
-        EntityPlayer player = Minecraft.getMinecraft().thePlayer;
-        IMorphing morphing = Morphing.get(player);
-
-        int i = 0;
-        int y = 0;
+        this.scrollHeight = 0;
 
-        for (MorphCategory category : this.categories)
+        for (MorphCategory cat : this.categories)
         {
-            int j = 0;
-
-            Collections.sort(category.cells, new Comparator<MorphCell>()
-            {
-                @Override
-                public int compare(MorphCell a, MorphCell b)
-                {
-                    return a.name.compareTo(b.name);
-                }
-            });
-
-            /* Calculate the scroll height and per category height */
-            category.height = MathHelper.ceiling_float_int((float) category.cells.size() / (float) this.perRow);
-            category.y = this.scrollHeight + 20;
-
-            this.scrollHeight += category.height * cellH + 20;
+            int i = 0;
 
-            /* Select current morph */
-            for (MorphCell cell : category.cells)
+            for (MorphCell cell : cat.cells)
             {
-                if (this.selected == -1 && morphing.isMorphed() && cell.morph.equals(morphing.getCurrentMorph()))
+                if (!cell.hidden)
                 {
-                    this.selected = i;
-                    this.selectedMorph = j;
-
-                    y = category.y + j / this.perRow * cellH;
+                    i++;
                 }
-
-                cell.index = j;
-
-                j++;
             }
 
-            i++;
+            cat.height = MathHelper.ceiling_float_int((float) i / (float) this.perRow);
+            cat.y = this.scrollHeight + 20;
+
+            this.scrollHeight += i == 0 ? 0 : cat.height * cellH + 20;
         }
 
         this.scrollHeight += 10;
-        this.scrollTo(y);
     }
 
     /**
@@ -182,28 +223,17 @@ public class GuiCreativeMorphs extends GuiScrollPane
         }
 
         this.scrollY = 0;
-        this.scrollHeight = 0;
         this.previousFilter = filter;
 
         for (MorphCategory cat : this.categories)
         {
-            int i = 0;
-
             for (MorphCell cell : cat.cells)
             {
                 cell.hidden = filter.isEmpty() ? false : cell.name.toLowerCase().indexOf(filter.toLowerCase()) == -1;
-
-                if (!cell.hidden)
-                {
-                    i++;
-                }
             }
-
-            cat.height = MathHelper.ceiling_float_int((float) i / (float) this.perRow);
-            cat.y = this.scrollHeight + 20;
-
-            this.scrollHeight += i == 0 ? 0 : cat.height * cellH + 20;
         }
+
+        this.layoutCategories();
     }
 
     /**
@@ -308,6 +338,9 @@ public class GuiCreativeMorphs extends GuiScrollPane
         int m = this.w / this.perRow;
         int j = 0;
 
+        this.deadline = System.nanoTime() + BUDGET;
+        this.pollCategories();
+
         /* Render morphs */
         for (MorphCategory category : this.categories)
         {
@@ -331,9 +364,13 @@ public class GuiCreativeMorphs extends GuiScrollPane
                     continue;
                 }
 
-                float scale = 21.5F;
+                /* Render (and thus create) only morphs that are visible */
+                if (y + 10 + cellH >= this.y + this.scrollY && y + 10 <= this.y + this.scrollY + this.h)
+                {
+                    float scale = 21.5F;
 
-                this.renderMorph(cell, Minecraft.getMinecraft().thePlayer, x + m / 2, y + 50, scale);
+                    this.renderMorph(cell, Minecraft.getMinecraft().thePlayer, x + m / 2, y + 50, scale);
+                }
 
                 if (j == this.selected && cell.index == this.selectedMorph)
                 {
@@ -345,15 +382,60 @@ public class GuiCreativeMorphs extends GuiScrollPane
 
             j++;
         }
+
+        if (this.isLoading())
+        {
+            String loading = I18n.format("metamorph.gui.loading");
+
+            this.drawCenteredString(fontRendererObj, loading, this.x + this.w / 2, this.y + this.scrollY + this.h - 12, 0xFFAAAAAA);
+        }
+
+        this.warmUp();
+    }
+
+    /**
+     * Create morphs of cells that aren't visible yet, while there's still 
+     * time budget left in current frame, so scrolling through the menu 
+     * wouldn't stall
+     */
+    private void warmUp()
+    {
+        while (this.warmCategory < this.categories.size() && System.nanoTime() < this.deadline)
+        {
+            List<MorphCell> cells = this.categories.get(this.warmCategory).cells;
+
+            if (this.warmCell >= cells.size())
+            {
+                this.warmCategory++;
+                this.warmCell = 0;
+
+                continue;
+            }
+
+            cells.get(this.warmCell++).getMorph();
+        }
     }
 
     /**
      * Render a morph 
+     * 
+     * Morphs that weren't created yet, are created only if there's time 
+     * budget left in current frame, otherwise they'll be rendered later.
      */
     private void renderMorph(MorphCell cell, EntityPlayer player, int x, int y, float scale)
     {
+        if (!cell.descriptor.isCreated() && System.nanoTime() >= this.deadline)
+        {
+            return;
+        }
+
+        AbstractMorph morph = cell.getMorph();
+
         /* Render the model */
-        cell.morph.renderOnScreen(player, x, y, scale, 1.0F);
+        if (morph != null)
+        {
+            morph.renderOnScreen(player, x, y, scale, 1.0F);
+        }
     }
 
     /**
@@ -411,6 +493,26 @@ public class GuiCreativeMorphs extends GuiScrollPane
             this.title = result;
             this.key = key;
         }
+
+        private MorphCategory(MorphCategory category)
+        {
+            this.title = category.title;
+            this.key = category.key;
+
+            for (MorphCell cell : category.cells)
+            {
+                this.cells.add(new MorphCell(cell.name, cell.descriptor, cell.index));
+            }
+        }
+
+        /**
+         * Copy this category (with its cells), so space information and 
+         * cell's flags could be changed without affecting this category 
+         */
+        public MorphCategory copy()
+        {
+            return new MorphCategory(this);
+        }
     }
 
     /**
@@ -422,15 +524,23 @@ public class GuiCreativeMorphs extends GuiScrollPane
     public static class MorphCell
     {
         public String name;
-        public AbstractMorph morph;
+        public MorphDescriptor descriptor;
         public int index;
         public boolean hidden = false;
 
-        public MorphCell(String name, AbstractMorph morph, int index)
+        public MorphCell(String name, MorphDescriptor descriptor, int index)
         {
             this.name = name;
-            this.morph = morph;
+            this.descriptor = descriptor;
             this.index = index;
         }
+
+        /**
+         * Get cell's morph (it gets created upon first call) 
+         */
+        public AbstractMorph getMorph()
+        {
+            return this.descriptor.getMorph();
+        }
     }
 }
\ No newline at end of file
@@ -27,6 +27,7 @@ import net.minecraft.client.gui.inventory.GuiInventory;
 import net.minecraft.client.model.ModelBase;
 import net.minecraft.client.renderer.GlStateManager;
 import net.minecraft.client.renderer.entity.RenderLivingBase;
+import net.minecraft.client.resources.I18n;
 import net.minecraft.entity.player.EntityPlayer;
 import net.minecraft.util.ResourceLocation;
 import net.minecraft.util.math.MathHelper;
@@ -49,11 +50,6 @@ public class GuiSurvivalMorphs extends Gui
      */
     private MorphCell latest;
 
-    /**
-     * Indexed map of things needed to be removed 
-     */
-    private Map<Integer, MorphRemove> toRemove = new HashMap<Integer, MorphRemove>();
-
     /**
      * This variable is responsible for indication of inGUI mode 
      */
@@ -84,6 +80,13 @@ public class GuiSurvivalMorphs extends Gui
      */
     public int timer = 0;
 
+    /**
+     * Progress of acquired morphs transfer (from 0 to 1), or -1 if there's 
+     * no transfer. Morphs are replaced only once the transfer is complete, 
+     * so the menu stays usable meanwhile 
+     */
+    public float progress = -1;
+
     /**
      * Setup morphs
      * 
@@ -93,11 +96,12 @@ public class GuiSurvivalMorphs extends Gui
     {
         /* Collect all variations into one cells */
         Map<String, MorphType> separated = new HashMap<String, MorphType>();
-        List<Integer> favorites = morphing.getFavorites();
-        int i = 0;
+        List<AbstractMorph> acquired = morphing.getAcquiredMorphs();
+        int[] ids = morphing.getAcquiredIds();
 
-        for (AbstractMorph morph : morphing.getAcquiredMorphs())
+        for (int i = 0; i < ids.length; i++)
         {
+            AbstractMorph morph = acquired.get(i);
             MorphType list = separated.get(morph.name);
 
             if (list == null)
@@ -106,8 +110,7 @@ public class GuiSurvivalMorphs extends Gui
                 separated.put(morph.name, list);
             }
 
-            list.morphs.add(new MorphCell(i, morph, favorites.indexOf(i) >= 0));
-            i++;
+            list.morphs.add(new MorphCell(ids[i], morph, morphing.isFavorite(ids[i])));
         }
 
         /* Clear the morphs and add all merged morphs */
@@ -240,16 +243,15 @@ public class GuiSurvivalMorphs extends Gui
      * This method makes sure that latest favorited morph doesn't go out of 
      * sync with the favorites. Data desync is total shit.
      */
-    public void favorite(int index)
+    public void favorite(int id)
     {
-        if (latest != null && latest.index == index)
+        if (latest != null && latest.id == id)
         {
-            latest.favorite = Morphing.get(this.mc.thePlayer).getFavorites().indexOf(index) >= 0;
+            latest.favorite = Morphing.get(this.mc.thePlayer).isFavorite(id);
 
             if (this.showFavorites && !latest.favorite)
             {
-                this.toRemove.put(index, new MorphRemove(index, latest.typeIndex));
-                this.remove(index);
+                this.remove(id);
             }
 
             latest = null;
@@ -257,39 +259,12 @@ public class GuiSurvivalMorphs extends Gui
     }
 
     /**
-     * Remove latest morph cell 
+     * Remove morph cell with given ID. Since IDs of other morphs stay the 
+     * same, cells are simply set up again from the capability 
      */
-    public void remove(int index)
+    public void remove(int id)
     {
-        MorphRemove toRemove = this.toRemove.get(index);
-
-        if (toRemove != null)
-        {
-            MorphType type = this.morphs.get(toRemove.typeIndex);
-            Iterator<MorphCell> it = type.morphs.iterator();
-
-            while (it.hasNext())
-            {
-                if (it.next().index == index)
-                {
-                    it.remove();
-                    break;
-                }
-            }
-
-            if (type.morphs.isEmpty())
-            {
-                this.morphs.remove(toRemove.typeIndex);
-            }
-            else
-            {
-                type.clamp();
-            }
-
-            this.toRemove.remove(index);
-            this.setupMorphs(Morphing.get(this.mc.thePlayer));
-            this.index = MathHelper.clamp_int(this.index, -1, this.getMorphCount() - 1);
-        }
+        this.setupMorphs(Morphing.get(this.mc.thePlayer));
     }
 
     /**
@@ -325,29 +300,32 @@ public class GuiSurvivalMorphs extends Gui
         /* Checking if we're morphing in the same thing */
         boolean isSame = false;
         boolean morphed = morphing.isMorphed();
-        int index = this.getSelected();
+        int id = this.getSelected();
 
-        if (index == -1)
+        if (id == -1)
         {
             isSame = !morphed;
         }
 
-        if (index >= 0 && morphed)
+        if (id >= 0 && morphed)
         {
-            isSame = morphing.getCurrentMorph().equals(morphing.getAcquiredMorphs().get(index));
+            isSame = morphing.getCurrentMorph().equals(morphing.getAcquiredMorph(id));
         }
 
         /* No need to send packet if it's the same */
         if (!isSame)
         {
-            Dispatcher.sendToServer(new PacketSelectMorph(index));
+            Dispatcher.sendToServer(new PacketSelectMorph(id));
             this.timer = 0;
         }
     }
 
+    /**
+     * Get ID of selected morph, or -1 if demorph is selected 
+     */
     public int getSelected()
     {
-        return this.index == -1 ? -1 : this.morphs.get(this.index).current().index;
+        return this.index == -1 ? -1 : this.morphs.get(this.index).current().id;
     }
 
     public MorphCell getCurrent()
@@ -381,13 +359,7 @@ public class GuiSurvivalMorphs extends Gui
             return;
         }
 
-        int index = this.getSelected();
-
-        if (!this.toRemove.containsKey(index))
-        {
-            this.toRemove.put(index, new MorphRemove(index, this.index));
-            Dispatcher.sendToServer(new PacketRemoveMorph(index));
-        }
+        Dispatcher.sendToServer(new PacketRemoveMorph(this.getSelected()));
     }
 
     /**
@@ -399,7 +371,7 @@ public class GuiSurvivalMorphs extends Gui
         {
             latest = cell;
             latest.favorite = !latest.favorite;
-            Dispatcher.sendToServer(new PacketFavoriteMorph(cell.index));
+            Dispatcher.sendToServer(new PacketFavoriteMorph(cell.id));
         }
     }
 
@@ -564,6 +536,13 @@ public class GuiSurvivalMorphs extends Gui
         int labelY = this.inGUI ? height - 24 : height / 2 + h / 2 + 4;
 
         this.drawCenteredString(this.mc.fontRendererObj, label, width / 2, labelY, 0xffffffff);
+
+        if (this.progress >= 0)
+        {
+            String loading = I18n.format("metamorph.gui.loading") + " " + (int) (this.progress * 100) + "%";
+
+            this.drawCenteredString(this.mc.fontRendererObj, loading, width / 2, labelY + 12, 0xffaaaaaa);
+        }
     }
 
     /**
@@ -691,39 +670,21 @@ public class GuiSurvivalMorphs extends Gui
     /**
      * Morph cell class
      * 
-     * This class is responsible for storing morph and index from acquired 
+     * This class is responsible for storing morph and its ID from acquired 
      * morphs.
      */
     public static class MorphCell
     {
-        public int index;
+        public int id;
         public int typeIndex;
         public boolean favorite;
         public AbstractMorph morph;
 
-        public MorphCell(int index, AbstractMorph morph, boolean favorite)
+        public MorphCell(int id, AbstractMorph morph, boolean favorite)
         {
-            this.index = index;
+            this.id = id;
             this.morph = morph;
             this.favorite = favorite;
         }
     }
-
-    /**
-     * Morph removal information
-     * 
-     * This class is responsible for containing information about morph 
-     * removal.
-     */
-    public static class MorphRemove
-    {
-        public int index;
-        public int typeIndex;
-
-        public MorphRemove(int index, int typeIndex)
-        {
-            this.index = index;
-            this.typeIndex = typeIndex;
-        }
-    }
 }
\ No newline at end of file
@@ -0,0 +1,185 @@
+package mchorse.metamorph.client.gui.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import mchorse.metamorph.api.MorphDescriptor;
+import mchorse.metamorph.api.MorphManager;
+import mchorse.metamorph.client.gui.elements.GuiCreativeMorphs.MorphCategory;
+import mchorse.metamorph.client.gui.elements.GuiCreativeMorphs.MorphCell;
+import net.minecraft.client.Minecraft;
+import net.minecraftforge.fml.relauncher.Side;
+import net.minecraftforge.fml.relauncher.SideOnly;
+
+/**
+ * Morph category compiler
+ *
+ * This class is responsible for compiling morph categories of creative
+ * morph menu on a background thread. Descriptors are collected (if
+ * factories allow it, see {@link MorphManager#canCollectAsync()}), display
+ * names are looked up and categories are sorted off the main thread.
+ *
+ * Compiled categories are published one by one in sorted order, so the GUI
+ * can show first categories while the rest is still being compiled. Morphs
+ * aren't created over here, since it requires constructing entities in the
+ * world, which should be done on the main thread.
+ */
+@SideOnly(Side.CLIENT)
+public class CategoryCompiler implements Runnable
+{
+    /**
+     * Categories which were compiled so far. Categories are added only after
+     * they were fully compiled, and never modified after that
+     */
+    private List<MorphCategory> categories = new CopyOnWriteArrayList<MorphCategory>();
+
+    /**
+     * Descriptors collected on the main thread (if there are legacy
+     * factories), or null if they should be collected by the compiler
+     */
+    private List<MorphDescriptor> descriptors;
+
+    /**
+     * Catalog version at the moment when compilation started
+     */
+    private int version;
+
+    /**
+     * Language in which categories are compiled
+     */
+    private String language;
+
+    /**
+     * Whether compilation was finished
+     */
+    private volatile boolean done;
+
+    /**
+     * Start compiling morph categories of current morph catalog
+     */
+    public static CategoryCompiler start()
+    {
+        CategoryCompiler compiler = new CategoryCompiler();
+        MorphManager manager = MorphManager.INSTANCE;
+
+        compiler.version = manager.getCatalogVersion();
+        compiler.language = Minecraft.getMinecraft().gameSettings.language;
+
+        if (!manager.canCollectAsync())
+        {
+            compiler.descriptors = manager.getDescriptors();
+        }
+
+        Thread thread = new Thread(compiler, "Metamorph category compiler");
+
+        thread.setDaemon(true);
+        thread.start();
+
+        return compiler;
+    }
+
+    /**
+     * Get categories which were compiled so far
+     */
+    public List<MorphCategory> getCategories()
+    {
+        return this.categories;
+    }
+
+    /**
+     * Whether all categories were compiled
+     */
+    public boolean isDone()
+    {
+        return this.done;
+    }
+
+    /**
+     * Whether the morph catalog or the language have changed since
+     * compilation has started
+     */
+    public boolean isOutdated()
+    {
+        return this.version != MorphManager.INSTANCE.getCatalogVersion() || !this.language.equals(Minecraft.getMinecraft().gameSettings.language);
+    }
+
+    /**
+     * Compile categories
+     *
+     * All categories are created and sorted by their titles first, and then
+     * cells of every category are created and sorted by alphabet.
+     */
+    @Override
+    public void run()
+    {
+        try
+        {
+            List<MorphDescriptor> descriptors = this.descriptors == null ? MorphManager.INSTANCE.getDescriptors() : this.descriptors;
+            Map<String, List<MorphDescriptor>> grouped = new HashMap<String, List<MorphDescriptor>>();
+            List<MorphCategory> list = new ArrayList<MorphCategory>();
+
+            for (MorphDescriptor descriptor : descriptors)
+            {
+                List<MorphDescriptor> group = grouped.get(descriptor.category);
+
+                if (group == null)
+                {
+                    group = new ArrayList<MorphDescriptor>();
+                    grouped.put(descriptor.category, group);
+                    list.add(new MorphCategory(descriptor.category, descriptor.category));
+                }
+
+                group.add(descriptor);
+            }
+
+            Collections.sort(list, new Comparator<MorphCategory>()
+            {
+                @Override
+                public int compare(MorphCategory a, MorphCategory b)
+                {
+                    return a.title.compareTo(b.title);
+                }
+            });
+
+            for (MorphCategory category : list)
+            {
+                for (MorphDescriptor descriptor : grouped.get(category.key))
+                {
+                    String variant = descriptor.variant.isEmpty() ? descriptor.variant : " (" + descriptor.variant + ")";
+                    String title = MorphManager.INSTANCE.morphDisplayNameFromMorph(descriptor.name) + variant;
+
+                    category.cells.add(new MorphCell(title, descriptor, 0));
+                }
+
+                Collections.sort(category.cells, new Comparator<MorphCell>()
+                {
+                    @Override
+                    public int compare(MorphCell a, MorphCell b)
+                    {
+                        return a.name.compareTo(b.name);
+                    }
+                });
+
+                for (int i = 0; i < category.cells.size(); i++)
+                {
+                    category.cells.get(i).index = i;
+                }
+
+                this.categories.add(category);
+            }
+        }
+        catch (Exception e)
+        {
+            e.printStackTrace();
+        }
+        finally
+        {
+            this.done = true;
+        }
+    }
+}
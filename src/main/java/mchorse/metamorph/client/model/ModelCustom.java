@@ -3,7 +3,10 @@ package mchorse.metamorph.client.model;
 import java.util.HashMap;
 import java.util.Map;
 
+import mchorse.metamorph.api.MorphManager;
 import mchorse.metamorph.api.models.Model;
+import mchorse.metamorph.api.models.ModelManager;
+import mchorse.metamorph.client.model.parsing.ModelParser;
 import net.minecraft.client.model.ModelBase;
 import net.minecraft.client.model.ModelRenderer;
 import net.minecraft.entity.Entity;
@@ -29,6 +32,38 @@ public class ModelCustom extends ModelBase
      */
     public static Map<String, ModelCustom> MODELS = new HashMap<String, ModelCustom>();
 
+    /**
+     * Get a custom model by given name
+     * 
+     * If the model isn't in the repository yet, it gets parsed and baked 
+     * out of model handle registered in the model manager (see 
+     * {@link ModelManager#register(String, String, String)}). Failed 
+     * attempts are remembered (as null), so they wouldn't be repeated 
+     * every frame.
+     */
+    public static ModelCustom get(String name)
+    {
+        if (MODELS.containsKey(name))
+        {
+            return MODELS.get(name);
+        }
+
+        ModelManager models = MorphManager.INSTANCE.models;
+        Model data = models == null ? null : models.get(name);
+
+        if (data != null)
+        {
+            ModelParser.parse(name, data);
+        }
+
+        if (!MODELS.containsKey(name))
+        {
+            MODELS.put(name, null);
+        }
+
+        return MODELS.get(name);
+    }
+
     /**
      * Model data
      */
@@ -7,6 +7,7 @@ import java.util.List;
 import java.util.Map;
 
 import mchorse.metamorph.Metamorph;
+import mchorse.metamorph.api.LoadProfiler;
 import mchorse.metamorph.api.models.Model;
 import mchorse.metamorph.client.model.ModelCustom;
 import mchorse.metamorph.client.model.ModelCustomRenderer;
@@ -24,11 +25,20 @@ import net.minecraftforge.fml.relauncher.SideOnly;
 public class ModelParser
 {
     /**
-     * Parse with default class 
+     * Parse with model's class (see {@link Model#model}), or with default 
+     * class if model doesn't specify it
      */
     public static void parse(String key, Model data)
     {
-        parse(key, data, ModelCustom.class);
+        try
+        {
+            bake(prepare(key, data));
+        }
+        catch (Exception e)
+        {
+            System.out.println("Model for key '" + key + "' couldn't converted to ModelCustom!");
+            e.printStackTrace();
+        }
     }
 
     /**
@@ -49,6 +59,71 @@ public class ModelParser
         }
     }
 
+    /**
+     * Prepare a model for baking
+     * 
+     * This method resolves model's class, validates limb hierarchy and 
+     * looks up fields for limbs of {@link IModelCustom} models. It doesn't 
+     * construct anything OpenGL related, so it can be called off the client 
+     * thread (see {@link ModelPipeline}).
+     */
+    @SuppressWarnings("unchecked")
+    public static Prepared prepare(String key, Model data) throws Exception
+    {
+        Class<? extends ModelCustom> clazz = ModelCustom.class;
+
+        if (!data.model.isEmpty())
+        {
+            clazz = (Class<? extends ModelCustom>) Class.forName(data.model);
+        }
+
+        Map<String, Field> fields = new HashMap<String, Field>();
+
+        for (Map.Entry<String, Model.Limb> entry : data.limbs.entrySet())
+        {
+            String parent = entry.getValue().parent;
+
+            if (!parent.isEmpty() && !data.limbs.containsKey(parent))
+            {
+                throw new Exception("Limb '" + entry.getKey() + "' has unknown parent limb '" + parent + "'!");
+            }
+
+            if (IModelCustom.class.isAssignableFrom(clazz))
+            {
+                try
+                {
+                    fields.put(entry.getKey(), clazz.getField(entry.getKey()));
+                }
+                catch (NoSuchFieldException e)
+                {
+                    Metamorph.log("No fields '" + entry.getKey() + "' was found for " + clazz.getSimpleName());
+                }
+            }
+        }
+
+        return new Prepared(key, data, clazz, fields);
+    }
+
+    /**
+     * Bake prepared model into {@link ModelCustom} and save it in the 
+     * custom model repository. Call it only on the client thread.
+     */
+    public static void bake(Prepared prepared) throws Exception
+    {
+        LoadProfiler.Section section = LoadProfiler.INSTANCE.start("bake", prepared.key);
+        ModelParser parser = new ModelParser();
+
+        parser.fields = prepared.fields;
+        ModelCustom.MODELS.put(prepared.key, parser.parseModel(prepared.data, prepared.clazz));
+        section.stop();
+    }
+
+    /**
+     * Fields of the model class that were looked up for the limbs in 
+     * advance, see {@link #prepare(String, Model)} 
+     */
+    private Map<String, Field> fields;
+
     /**
      * Parse and build model out of given JSON string. Throws exception in case
      * if parsed model doesn't have at least one required pose.
@@ -127,9 +202,12 @@ public class ModelParser
             {
                 try
                 {
-                    Field field = model.getClass().getField(entry.getKey());
+                    Field field = this.fields == null ? model.getClass().getField(entry.getKey()) : this.fields.get(entry.getKey());
 
-                    field.set(model, entry.getValue());
+                    if (field != null)
+                    {
+                        field.set(model, entry.getValue());
+                    }
                 }
                 catch (Exception e)
                 {
@@ -145,4 +223,26 @@ public class ModelParser
         model.limbs = limbs.values().toArray(new ModelCustomRenderer[limbs.size()]);
         model.renderable = renderable.toArray(new ModelCustomRenderer[renderable.size()]);
     }
-}
\ No newline at end of file
+
+    /**
+     * Prepared model
+     * 
+     * Parsed model data with resolved model class and limb fields, ready 
+     * to be baked on the client thread 
+     */
+    public static class Prepared
+    {
+        public final String key;
+        public final Model data;
+        public final Class<? extends ModelCustom> clazz;
+        public final Map<String, Field> fields;
+
+        public Prepared(String key, Model data, Class<? extends ModelCustom> clazz, Map<String, Field> fields)
+        {
+            this.key = key;
+            this.data = data;
+            this.clazz = clazz;
+            this.fields = fields;
+        }
+    }
+}
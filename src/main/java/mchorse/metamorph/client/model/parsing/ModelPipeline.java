@@ -0,0 +1,95 @@
+package mchorse.metamorph.client.model.parsing;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import mchorse.metamorph.api.models.Model;
+import mchorse.metamorph.api.models.ModelManager;
+import mchorse.metamorph.client.model.ModelCustom;
+import net.minecraftforge.fml.relauncher.Side;
+import net.minecraftforge.fml.relauncher.SideOnly;
+
+/**
+ * Model pipeline
+ *
+ * This class is responsible for loading a batch of custom models. JSON
+ * parsing, validation of required poses and limb hierarchy, and reflective
+ * field lookups are done in parallel on a worker pool (see
+ * {@link ModelParser#prepare(String, Model)}), and only the final
+ * construction of {@link ModelCustom} and its renderers is done on the
+ * client thread.
+ */
+@SideOnly(Side.CLIENT)
+public class ModelPipeline
+{
+    /**
+     * Parse and bake models with given names from given model manager.
+     * Models which were already baked are skipped. Call it only on the
+     * client thread.
+     */
+    public static void load(final ModelManager models, Collection<String> names)
+    {
+        List<String> keys = new ArrayList<String>();
+        List<Future<ModelParser.Prepared>> futures = new ArrayList<Future<ModelParser.Prepared>>();
+
+        for (String name : names)
+        {
+            if (!ModelCustom.MODELS.containsKey(name) && models.getHandle(name) != null)
+            {
+                keys.add(name);
+            }
+        }
+
+        if (keys.isEmpty())
+        {
+            return;
+        }
+
+        ExecutorService executor = ModelManager.createExecutor(keys.size());
+
+        for (final String key : keys)
+        {
+            futures.add(executor.submit(new Callable<ModelParser.Prepared>()
+            {
+                @Override
+                public ModelParser.Prepared call() throws Exception
+                {
+                    Model data = models.get(key);
+
+                    return data == null ? null : ModelParser.prepare(key, data);
+                }
+            }));
+        }
+
+        executor.shutdown();
+
+        /* Bake models in the same order they were requested */
+        for (int i = 0; i < keys.size(); i++)
+        {
+            try
+            {
+                ModelParser.Prepared prepared = futures.get(i).get();
+
+                if (prepared != null)
+                {
+                    ModelParser.bake(prepared);
+                }
+            }
+            catch (ExecutionException e)
+            {
+                System.out.println("Model for key '" + keys.get(i) + "' couldn't be prepared!");
+                e.getCause().printStackTrace();
+            }
+            catch (Exception e)
+            {
+                System.out.println("Model for key '" + keys.get(i) + "' couldn't converted to ModelCustom!");
+                e.printStackTrace();
+            }
+        }
+    }
+}
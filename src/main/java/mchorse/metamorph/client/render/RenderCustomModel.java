@@ -1,7 +1,5 @@
 package mchorse.metamorph.client.render;
 
-import java.util.Map;
-
 import mchorse.metamorph.api.models.IMorphProvider;
 import mchorse.metamorph.api.models.Model;
 import mchorse.metamorph.capabilities.morphing.IMorphing;
@@ -53,13 +51,12 @@ public class RenderCustomModel extends RenderLivingBase<EntityLivingBase>
      */
     public void setupModel(EntityLivingBase entity)
     {
-        Map<String, ModelCustom> models = ModelCustom.MODELS;
         String pose = entity.isSneaking() ? "sneaking" : (entity.isElytraFlying() ? "flying" : "standing");
         ModelCustom model = null;
 
         if (entity instanceof IMorphProvider)
         {
-            model = models.get(((IMorphProvider) entity).getMorph().name);
+            model = ModelCustom.get(((IMorphProvider) entity).getMorph().name);
         }
         else
         {
@@ -67,7 +64,7 @@ public class RenderCustomModel extends RenderLivingBase<EntityLivingBase>
 
             if (cap != null && cap.isMorphed())
             {
-                model = models.get(cap.getCurrentMorph().name);
+                model = ModelCustom.get(cap.getCurrentMorph().name);
             }
         }
 
@@ -88,11 +88,14 @@ public class RenderMorph extends RenderLivingBase<EntityMorph>
 
         if (entity.morph instanceof CustomMorph)
         {
-            Model data = ((CustomMorph) entity.morph).model;
-
-            x = data.scale[0];
-            y = data.scale[1];
-            z = data.scale[2];
+            Model data = ((CustomMorph) entity.morph).getModel();
+
+            if (data != null)
+            {
+                x = data.scale[0];
+                y = data.scale[1];
+                z = data.scale[2];
+            }
         }
 
         x = MathHelper.clamp_float(x, 0.0F, 1.5F);
@@ -0,0 +1,110 @@
+package mchorse.metamorph.commands;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import mchorse.metamorph.Metamorph;
+import mchorse.metamorph.api.MorphManager;
+import mchorse.metamorph.api.MorphUtils;
+import mchorse.metamorph.api.morphs.AbstractMorph;
+import mchorse.metamorph.capabilities.morphing.Morphing;
+import mchorse.metamorph.network.Dispatcher;
+import mchorse.metamorph.network.common.PacketMorph;
+import net.minecraft.command.CommandBase;
+import net.minecraft.command.CommandException;
+import net.minecraft.command.ICommandSender;
+import net.minecraft.command.WrongUsageException;
+import net.minecraft.entity.player.EntityPlayerMP;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.text.TextComponentTranslation;
+
+/**
+ * Metamorph command
+ *
+ * This command is responsible for administrating Metamorph on the server.
+ * Currently it supports only one sub-command:
+ *
+ * /metamorph reload - reload user's morph settings (morphs.json)
+ */
+public class CommandMetamorph extends CommandBase
+{
+    @Override
+    public String getCommandName()
+    {
+        return "metamorph";
+    }
+
+    @Override
+    public String getCommandUsage(ICommandSender sender)
+    {
+        return "metamorph.commands.metamorph";
+    }
+
+    @Override
+    public int getRequiredPermissionLevel()
+    {
+        return 2;
+    }
+
+    @Override
+    public void execute(MinecraftServer server, ICommandSender sender, String[] args) throws CommandException
+    {
+        if (args.length < 1 || !args[0].equals("reload"))
+        {
+            throw new WrongUsageException(this.getCommandUsage(sender));
+        }
+
+        this.reload(server, sender);
+    }
+
+    /**
+     * Reload morph settings
+     *
+     * Only changed settings are applied, and only players which current
+     * morph was affected get their morph resent.
+     */
+    private void reload(MinecraftServer server, ICommandSender sender) throws CommandException
+    {
+        Set<String> changed;
+
+        try
+        {
+            changed = MorphUtils.reloadMorphSettings(MorphManager.INSTANCE, Metamorph.proxy.morphs);
+        }
+        catch (Exception e)
+        {
+            e.printStackTrace();
+
+            throw new CommandException("metamorph.error.reload", e.getMessage());
+        }
+
+        if (!changed.isEmpty())
+        {
+            for (EntityPlayerMP player : server.getPlayerList().getPlayerList())
+            {
+                if (MorphManager.INSTANCE.applySettings(player, changed))
+                {
+                    AbstractMorph morph = Morphing.get(player).getCurrentMorph();
+
+                    Dispatcher.sendTo(new PacketMorph(morph), player);
+                    Dispatcher.updateTrackers(player, morph);
+                }
+            }
+        }
+
+        sender.addChatMessage(new TextComponentTranslation("metamorph.commands.reload", changed.size()));
+    }
+
+    @Override
+    public List<String> getTabCompletionOptions(MinecraftServer server, ICommandSender sender, String[] args, BlockPos pos)
+    {
+        if (args.length == 1)
+        {
+            return getListOfStringsMatchingLastWord(args, "reload");
+        }
+
+        return Collections.<String> emptyList();
+    }
+}
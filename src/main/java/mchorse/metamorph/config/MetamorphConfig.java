@@ -37,6 +37,18 @@ public class MetamorphConfig
      */
     public boolean prevent_kill_acquire;
 
+    /**
+     * Names of custom models which should be parsed (and baked on the 
+     * client) during loading, instead of upon first usage 
+     */
+    public String[] model_warmup;
+
+    /**
+     * Save players' morphs into separate logs (world/metamorph/players) 
+     * instead of player files 
+     */
+    public boolean morph_store;
+
     /* End of config options */
 
     /**
@@ -63,6 +75,9 @@ public class MetamorphConfig
         this.hide_username = this.config.getBoolean("hide_username", cat, false, "Hide username in survival morphing menu", lang + "hide_username");
         this.prevent_kill_acquire = this.config.getBoolean("prevent_kill_acquire", cat, false, "Prevent morph acquiring by killing a mob (or specifically prevent ghost spawning in any case)?", lang + "prevent_kill_acquire");
 
+        this.model_warmup = this.config.getStringList("model_warmup", cat, new String[] {}, "Names of custom models (i.e. Blaze) which should be loaded during game loading, instead of first usage", null, lang + "model_warmup");
+        this.morph_store = this.config.getBoolean("morph_store", cat, false, "Save players' morphs into separate logs in world's metamorph folder, instead of player files?", lang + "morph_store");
+
         this.config.getCategory(cat).setComment("General configuration of Metamorph mod");
 
         if (this.config.hasChanged())
@@ -7,6 +7,7 @@ import mchorse.metamorph.api.MorphAPI;
 import mchorse.metamorph.api.MorphManager;
 import mchorse.metamorph.api.models.IMorphProvider;
 import mchorse.metamorph.api.morphs.AbstractMorph;
+import mchorse.metamorph.network.MorphCodec;
 import net.minecraft.entity.EntityLiving;
 import net.minecraft.entity.item.EntityItem;
 import net.minecraft.entity.item.EntityXPOrb;
@@ -191,17 +192,9 @@ public class EntityMorph extends EntityLiving implements IEntityAdditionalSpawnD
     {
         ByteBufUtils.writeUTF8String(buffer, this.owner != null ? this.owner.toString() : "");
 
-        NBTTagCompound tag = new NBTTagCompound();
-        this.morph.toNBT(tag);
-
-        boolean hasData = tag != null && !tag.hasNoTags();
-
-        buffer.writeBoolean(hasData);
-
-        if (hasData)
-        {
-            ByteBufUtils.writeTag(buffer, tag);
-        }
+        /* Spawn data is written once for all trackers, so it can't use 
+         * tracker's codec session and the morph is written as NBT */
+        MorphCodec.writeMorph(buffer, this.morph);
     }
 
     @Override
@@ -211,12 +204,7 @@ public class EntityMorph extends EntityLiving implements IEntityAdditionalSpawnD
 
         this.owner = owner.isEmpty() ? null : UUID.fromString(owner);
 
-        if (buffer.readBoolean())
-        {
-            NBTTagCompound tag = ByteBufUtils.readTag(buffer);
-
-            this.morph = MorphManager.INSTANCE.morphFromNBT(tag);
-        }
+        this.morph = MorphCodec.readMorph(buffer);
 
         this.setSize(morph);
     }
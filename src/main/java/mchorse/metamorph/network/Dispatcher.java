@@ -1,24 +1,48 @@
 package mchorse.metamorph.network;
 
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 import mchorse.metamorph.Metamorph;
+import mchorse.metamorph.api.morphs.AbstractMorph;
+import mchorse.metamorph.capabilities.morphing.IMorphing;
+import mchorse.metamorph.capabilities.morphing.Morphing;
 import mchorse.metamorph.network.client.ClientHandlerAcquireMorph;
 import mchorse.metamorph.network.client.ClientHandlerAcquiredMorphs;
+import mchorse.metamorph.network.client.ClientHandlerAcquiredMorphsChunk;
 import mchorse.metamorph.network.client.ClientHandlerFavoriteMorph;
 import mchorse.metamorph.network.client.ClientHandlerMorph;
+import mchorse.metamorph.network.client.ClientHandlerMorphCodec;
 import mchorse.metamorph.network.client.ClientHandlerMorphPlayer;
+import mchorse.metamorph.network.client.ClientHandlerMorphPlayers;
+import mchorse.metamorph.network.client.ClientHandlerMorphsHandshake;
 import mchorse.metamorph.network.client.ClientHandlerRemoveMorph;
+import mchorse.metamorph.network.common.PacketAcknowledgeMorphs;
 import mchorse.metamorph.network.common.PacketAcquireMorph;
 import mchorse.metamorph.network.common.PacketAcquiredMorphs;
+import mchorse.metamorph.network.common.PacketAcquiredMorphsChunk;
 import mchorse.metamorph.network.common.PacketAction;
 import mchorse.metamorph.network.common.PacketFavoriteMorph;
 import mchorse.metamorph.network.common.PacketMorph;
+import mchorse.metamorph.network.common.PacketMorphCodec;
+import mchorse.metamorph.network.common.PacketMorphCodecAck;
 import mchorse.metamorph.network.common.PacketMorphPlayer;
+import mchorse.metamorph.network.common.PacketMorphPlayers;
+import mchorse.metamorph.network.common.PacketMorphsHandshake;
 import mchorse.metamorph.network.common.PacketRemoveMorph;
 import mchorse.metamorph.network.common.PacketSelectMorph;
+import mchorse.metamorph.network.server.ServerHandlerAcknowledgeMorphs;
 import mchorse.metamorph.network.server.ServerHandlerAcquireMorph;
 import mchorse.metamorph.network.server.ServerHandlerAction;
 import mchorse.metamorph.network.server.ServerHandlerFavoriteMorph;
 import mchorse.metamorph.network.server.ServerHandlerMorph;
+import mchorse.metamorph.network.server.ServerHandlerMorphCodecAck;
+import mchorse.metamorph.network.server.ServerHandlerMorphsHandshake;
 import mchorse.metamorph.network.server.ServerHandlerRemoveMorph;
 import mchorse.metamorph.network.server.ServerHandlerSelectMorph;
 import net.minecraft.entity.Entity;
@@ -42,6 +66,18 @@ public class Dispatcher
     private static final SimpleNetworkWrapper DISPATCHER = NetworkRegistry.INSTANCE.newSimpleChannel(Metamorph.MODID);
     private static byte PACKET_ID;
 
+    /**
+     * Morphs of tracked players queued during current tick per recipient 
+     * (see {@link #flushMorphs()})
+     */
+    private static final Map<EntityPlayerMP, Map<Integer, AbstractMorph>> MORPHS = new LinkedHashMap<EntityPlayerMP, Map<Integer, AbstractMorph>>();
+
+    /**
+     * Players who requested a full snapshot of acquired morphs too soon 
+     * after the previous one (see {@link #flushResyncs()})
+     */
+    private static final Set<EntityPlayerMP> RESYNCS = new LinkedHashSet<EntityPlayerMP>();
+
     public static SimpleNetworkWrapper get()
     {
         return DISPATCHER;
@@ -53,13 +89,185 @@ public class Dispatcher
 
         for (EntityPlayer player : et.getTrackingPlayers(entity))
         {
-            DISPATCHER.sendTo(message, (EntityPlayerMP) player);
+            sendTo(message, (EntityPlayerMP) player);
+        }
+    }
+
+    /**
+     * Queue given player's morph for all players who track it. Unlike 
+     * {@link #queueMorph(EntityPlayerMP, Entity, AbstractMorph)}, null 
+     * morph is queued too, since trackers have to demorph the player
+     */
+    public static void updateTrackers(EntityPlayer player, AbstractMorph morph)
+    {
+        EntityTracker et = ((WorldServer) player.worldObj).getEntityTracker();
+
+        for (EntityPlayer tracker : et.getTrackingPlayers(player))
+        {
+            getQueue((EntityPlayerMP) tracker).put(player.getEntityId(), morph);
+        }
+    }
+
+    /**
+     * Queue morph of given player which recipient started tracking. Only 
+     * morphed players are sent, since newly tracked players are already 
+     * demorphed on the client
+     */
+    public static void queueMorph(EntityPlayerMP recipient, Entity entity, AbstractMorph morph)
+    {
+        if (morph != null)
+        {
+            getQueue(recipient).put(entity.getEntityId(), morph);
+        }
+        else if (MORPHS.containsKey(recipient))
+        {
+            MORPHS.get(recipient).remove(entity.getEntityId());
+        }
+    }
+
+    private static Map<Integer, AbstractMorph> getQueue(EntityPlayerMP recipient)
+    {
+        Map<Integer, AbstractMorph> queue = MORPHS.get(recipient);
+
+        if (queue == null)
+        {
+            MORPHS.put(recipient, queue = new HashMap<Integer, AbstractMorph>());
         }
+
+        return queue;
     }
 
+    /**
+     * Send queued morphs, one batched packet per recipient. Should be 
+     * called at the end of server tick
+     */
+    public static void flushMorphs()
+    {
+        if (MORPHS.isEmpty())
+        {
+            return;
+        }
+
+        for (Map.Entry<EntityPlayerMP, Map<Integer, AbstractMorph>> entry : MORPHS.entrySet())
+        {
+            if (!entry.getValue().isEmpty())
+            {
+                sendTo(new PacketMorphPlayers(entry.getValue()), entry.getKey());
+            }
+        }
+
+        MORPHS.clear();
+    }
+
+    /**
+     * Discard queued morphs and resync of given recipient (i.e. when it 
+     * logs out)
+     */
+    public static void discardMorphs(EntityPlayerMP recipient)
+    {
+        MORPHS.remove(recipient);
+        RESYNCS.remove(recipient);
+    }
+
+    /**
+     * Queue a full snapshot of acquired morphs for given player, it will 
+     * be sent once player's resync cooldown passes 
+     */
+    public static void queueResync(EntityPlayerMP player)
+    {
+        RESYNCS.add(player);
+    }
+
+    /**
+     * Send full snapshots of acquired morphs to queued players whose 
+     * cooldown has passed (see {@link Morphing#canResync(long)}). Should 
+     * be called at the end of server tick
+     */
+    public static void flushResyncs()
+    {
+        if (RESYNCS.isEmpty())
+        {
+            return;
+        }
+
+        Iterator<EntityPlayerMP> it = RESYNCS.iterator();
+
+        while (it.hasNext())
+        {
+            EntityPlayerMP player = it.next();
+            IMorphing capability = Morphing.get(player);
+
+            /* Respawned players are synced when they join the world */
+            if (player.isDead || !(capability instanceof Morphing))
+            {
+                it.remove();
+
+                continue;
+            }
+
+            Morphing morphing = (Morphing) capability;
+
+            if (morphing.canResync(player.worldObj.getTotalWorldTime()))
+            {
+                it.remove();
+
+                if (sendAcquiredMorphs(new PacketAcquiredMorphs(morphing), player))
+                {
+                    morphing.setSynced(morphing.getEpoch(), morphing.getVersion());
+                }
+            }
+        }
+    }
+
+    /**
+     * Send a message to given player. Morphs in the message are written 
+     * with player's morph codec session (see {@link MorphCodec}), messages 
+     * are encoded right away, so the session is set only for this call
+     */
     public static void sendTo(IMessage message, EntityPlayerMP player)
     {
-        DISPATCHER.sendTo(message, player);
+        MorphCodec.setOutput(MorphCodec.getSession(player));
+
+        try
+        {
+            DISPATCHER.sendTo(message, player);
+        }
+        finally
+        {
+            MorphCodec.setOutput(null);
+        }
+    }
+
+    /**
+     * Send acquired morphs to given player. Large packets are deflated and 
+     * split into chunks (see {@link PacketAcquiredMorphsChunk}). Call it 
+     * before updating sync state of player's capability
+     * 
+     * @return false, if the packet is too big, and nothing was sent 
+     */
+    public static boolean sendAcquiredMorphs(PacketAcquiredMorphs message, EntityPlayerMP player)
+    {
+        List<IMessage> chunks = PacketAcquiredMorphsChunk.split(message);
+
+        if (chunks.isEmpty())
+        {
+            return false;
+        }
+
+        IMorphing morphing = Morphing.get(player);
+
+        /* Client acknowledges every packet (see ServerHandlerAcknowledgeMorphs) */
+        if (morphing instanceof Morphing)
+        {
+            ((Morphing) morphing).sentSync();
+        }
+
+        for (IMessage chunk : chunks)
+        {
+            DISPATCHER.sendTo(chunk, player);
+        }
+
+        return true;
     }
 
     public static void sendToServer(IMessage message)
@@ -79,10 +287,17 @@ public class Dispatcher
         register(PacketMorph.class, ClientHandlerMorph.class, Side.CLIENT);
         register(PacketMorph.class, ServerHandlerMorph.class, Side.SERVER);
         register(PacketMorphPlayer.class, ClientHandlerMorphPlayer.class, Side.CLIENT);
+        register(PacketMorphPlayers.class, ClientHandlerMorphPlayers.class, Side.CLIENT);
+        register(PacketMorphCodec.class, ClientHandlerMorphCodec.class, Side.CLIENT);
+        register(PacketMorphCodecAck.class, ServerHandlerMorphCodecAck.class, Side.SERVER);
 
         register(PacketAcquireMorph.class, ClientHandlerAcquireMorph.class, Side.CLIENT);
         register(PacketAcquireMorph.class, ServerHandlerAcquireMorph.class, Side.SERVER);
         register(PacketAcquiredMorphs.class, ClientHandlerAcquiredMorphs.class, Side.CLIENT);
+        register(PacketAcquiredMorphsChunk.class, ClientHandlerAcquiredMorphsChunk.class, Side.CLIENT);
+        register(PacketAcknowledgeMorphs.class, ServerHandlerAcknowledgeMorphs.class, Side.SERVER);
+        register(PacketMorphsHandshake.class, ClientHandlerMorphsHandshake.class, Side.CLIENT);
+        register(PacketMorphsHandshake.class, ServerHandlerMorphsHandshake.class, Side.SERVER);
 
         register(PacketSelectMorph.class, ServerHandlerSelectMorph.class, Side.SERVER);
 
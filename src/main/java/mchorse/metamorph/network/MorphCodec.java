@@ -0,0 +1,902 @@
+package mchorse.metamorph.network;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+
+import io.netty.buffer.ByteBuf;
+import mchorse.metamorph.api.IMorphFactory;
+import mchorse.metamorph.api.ITemplateMorphFactory;
+import mchorse.metamorph.api.MorphDescriptor;
+import mchorse.metamorph.api.MorphManager;
+import mchorse.metamorph.api.morphs.AbstractMorph;
+import mchorse.metamorph.capabilities.morphing.MorphingCodec;
+import mchorse.metamorph.network.common.PacketMorphCodec;
+import net.minecraft.entity.player.EntityPlayerMP;
+import net.minecraft.nbt.NBTBase;
+import net.minecraft.nbt.NBTPrimitive;
+import net.minecraft.nbt.NBTSizeTracker;
+import net.minecraft.nbt.NBTTagByte;
+import net.minecraft.nbt.NBTTagByteArray;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.nbt.NBTTagDouble;
+import net.minecraft.nbt.NBTTagFloat;
+import net.minecraft.nbt.NBTTagInt;
+import net.minecraft.nbt.NBTTagIntArray;
+import net.minecraft.nbt.NBTTagList;
+import net.minecraft.nbt.NBTTagLong;
+import net.minecraft.nbt.NBTTagShort;
+import net.minecraft.nbt.NBTTagString;
+import net.minecraftforge.fml.common.FMLCommonHandler;
+import net.minecraftforge.fml.common.network.ByteBufUtils;
+import net.minecraftforge.fml.relauncher.Side;
+
+/**
+ * Morph wire codec
+ *
+ * This class is responsible for compact encoding of morphs in the packets
+ * sent to the client. The codec is negotiated when player joins the server:
+ * server sends its codec table (see {@link PacketMorphCodec}), i.e. morph
+ * names, a string table (NBT keys and string values which appear in the
+ * templates) and hashes of templates (factory templates and variants of
+ * morph catalog). Client resolves the templates against its own catalog,
+ * and acknowledges which of them it has (see
+ * {@link mchorse.metamorph.network.common.PacketMorphCodecAck}).
+ *
+ * Once acknowledged, morphs are written as varint name ID, varint
+ * template index and a difference against that template (see
+ * {@link MorphingCodec#diff(NBTTagCompound, NBTTagCompound, NBTTagCompound, NBTTagCompound)})
+ * in binary form, where keys and strings are varint references into the
+ * string table. Until then, and in the packets sent to the server, morphs
+ * are written as NBT.
+ *
+ * Every morph starts with a mode byte, where {@link #NULL} and {@link #NBT}
+ * modes are byte compatible with former boolean + NBT format.
+ *
+ * Compact morphs are read with the same limits as NBT in the packets
+ * (see {@link #MAX_BYTES} and {@link #MAX_DEPTH}), and only on the client
+ * side.
+ */
+public class MorphCodec
+{
+    public static final int NULL = 0;
+    public static final int NBT = 1;
+    public static final int COMPACT = 2;
+
+    /**
+     * Maximum count of templates per morph name
+     */
+    public static final int MAX_TEMPLATES = 64;
+
+    /**
+     * Maximum count of strings in the string table
+     */
+    public static final int MAX_STRINGS = 4096;
+
+    /**
+     * Maximum size of a compact morph's NBT in bytes (same as vanilla's
+     * limit of NBT in the packets)
+     */
+    public static final long MAX_BYTES = 2097152L;
+
+    /**
+     * Maximum depth of nested compounds and lists (same as vanilla's)
+     */
+    public static final int MAX_DEPTH = 512;
+
+    private static final Random IDS = new Random();
+
+    /**
+     * Server's codec, it's rebuilt when morph catalog changes (sessions
+     * which were negotiated with older codec keep using it)
+     */
+    private static MorphCodec server;
+    private static int serverCatalog;
+
+    /**
+     * Negotiated sessions per player
+     */
+    private static final Map<UUID, Session> SESSIONS = new HashMap<UUID, Session>();
+
+    /**
+     * Session of the player which is being sent a packet (see
+     * {@link Dispatcher#sendTo(net.minecraftforge.fml.common.network.simpleimpl.IMessage, EntityPlayerMP)}).
+     * It's thread local, since on the integrated server both client and
+     * server threads write packets
+     */
+    private static final ThreadLocal<Session> OUTPUT = new ThreadLocal<Session>();
+
+    /**
+     * Codec negotiated with the server on the client side. It's read by
+     * netty thread
+     */
+    public static volatile MorphCodec client;
+
+    public final int id;
+    public final String[] names;
+    public final String[] strings;
+    public final int[] templateNames;
+    public final long[] templateHashes;
+
+    /**
+     * Templates, on the client side some of them might be null if client
+     * doesn't have them
+     */
+    private final NBTTagCompound[] templates;
+
+    /**
+     * Indices of templates per name ID
+     */
+    private final int[][] byName;
+
+    private final Map<String, Integer> nameIds = new HashMap<String, Integer>();
+    private final Map<String, Integer> stringIds = new HashMap<String, Integer>();
+
+    /**
+     * Get server's codec
+     */
+    public static MorphCodec getServer()
+    {
+        int catalog = MorphManager.INSTANCE.getCatalogVersion();
+
+        if (server == null || serverCatalog != catalog)
+        {
+            server = build();
+            serverCatalog = catalog;
+        }
+
+        return server;
+    }
+
+    /**
+     * Build a codec out of morph catalog
+     */
+    private static MorphCodec build()
+    {
+        Map<String, List<NBTTagCompound>> byName = collectTemplates();
+        String[] names = byName.keySet().toArray(new String[byName.size()]);
+        Set<String> strings = new LinkedHashSet<String>();
+        List<NBTTagCompound> templates = new ArrayList<NBTTagCompound>();
+        List<Integer> templateNames = new ArrayList<Integer>();
+
+        for (int i = 0; i < names.length; i++)
+        {
+            for (NBTTagCompound template : byName.get(names[i]))
+            {
+                templates.add(template);
+                templateNames.add(i);
+                collectStrings(template, strings);
+            }
+        }
+
+        int[] nameIds = new int[templates.size()];
+        long[] hashes = new long[templates.size()];
+
+        for (int i = 0; i < nameIds.length; i++)
+        {
+            nameIds[i] = templateNames.get(i);
+            hashes[i] = MorphingCodec.hash(templates.get(i));
+        }
+
+        return new MorphCodec(IDS.nextInt(), names, strings.toArray(new String[strings.size()]), nameIds, hashes, templates.toArray(new NBTTagCompound[templates.size()]));
+    }
+
+    /**
+     * Create client's codec out of server's codec table. Templates are
+     * looked up in client's morph catalog by their hashes
+     */
+    public static MorphCodec fromTable(PacketMorphCodec table)
+    {
+        Map<Long, NBTTagCompound> local = new HashMap<Long, NBTTagCompound>();
+
+        for (List<NBTTagCompound> list : collectTemplates().values())
+        {
+            for (NBTTagCompound template : list)
+            {
+                local.put(MorphingCodec.hash(template), template);
+            }
+        }
+
+        NBTTagCompound[] templates = new NBTTagCompound[table.templateHashes.length];
+
+        for (int i = 0; i < templates.length; i++)
+        {
+            NBTTagCompound template = local.get(table.templateHashes[i]);
+
+            if (template != null && template.getString("Name").equals(table.names[table.templateNames[i]]))
+            {
+                templates[i] = template;
+            }
+        }
+
+        return new MorphCodec(table.id, table.names, table.strings, table.templateNames, table.templateHashes, templates);
+    }
+
+    /**
+     * Collect templates of every morph in the catalog: factory's template
+     * (see {@link ITemplateMorphFactory}) and raw NBT of catalog's variants
+     */
+    public static Map<String, List<NBTTagCompound>> collectTemplates()
+    {
+        Map<String, List<NBTTagCompound>> templates = new LinkedHashMap<String, List<NBTTagCompound>>();
+
+        for (MorphDescriptor descriptor : MorphManager.INSTANCE.getDescriptors())
+        {
+            List<NBTTagCompound> list = templates.get(descriptor.name);
+
+            if (list == null)
+            {
+                IMorphFactory factory = MorphManager.INSTANCE.getFactory(descriptor.name);
+
+                templates.put(descriptor.name, list = new ArrayList<NBTTagCompound>());
+
+                if (factory instanceof ITemplateMorphFactory)
+                {
+                    addTemplate(list, ((ITemplateMorphFactory) factory).getTemplateNBT(descriptor.name));
+                }
+            }
+
+            NBTTagCompound tag = descriptor.tag;
+
+            if (tag == null && descriptor.isCreated())
+            {
+                tag = new NBTTagCompound();
+                descriptor.getMorph().toNBT(tag);
+            }
+
+            addTemplate(list, tag);
+        }
+
+        return templates;
+    }
+
+    private static void addTemplate(List<NBTTagCompound> list, NBTTagCompound tag)
+    {
+        if (tag != null && tag.hasKey("Name", 8) && list.size() < MAX_TEMPLATES && !list.contains(tag))
+        {
+            list.add(tag);
+        }
+    }
+
+    /**
+     * Collect keys and string values of given tag into the string table
+     */
+    private static void collectStrings(NBTBase tag, Set<String> strings)
+    {
+        if (strings.size() >= MAX_STRINGS)
+        {
+            return;
+        }
+
+        if (tag instanceof NBTTagCompound)
+        {
+            NBTTagCompound compound = (NBTTagCompound) tag;
+
+            for (String key : compound.getKeySet())
+            {
+                if (strings.size() < MAX_STRINGS)
+                {
+                    strings.add(key);
+                }
+
+                collectStrings(compound.getTag(key), strings);
+            }
+        }
+        else if (tag instanceof NBTTagList)
+        {
+            NBTTagList list = (NBTTagList) tag;
+
+            for (int i = 0, c = list.tagCount(); i < c; i++)
+            {
+                collectStrings(list.get(i), strings);
+            }
+        }
+        else if (tag instanceof NBTTagString)
+        {
+            strings.add(((NBTTagString) tag).getString());
+        }
+    }
+
+    /* Sessions */
+
+    /**
+     * Start a new session with given player (the codec table has to be
+     * sent to the player)
+     */
+    public static Session startSession(EntityPlayerMP player)
+    {
+        Session session = new Session(getServer());
+
+        SESSIONS.put(player.getUniqueID(), session);
+
+        return session;
+    }
+
+    /**
+     * Get session of given player, or null if it wasn't started
+     */
+    public static Session getSession(EntityPlayerMP player)
+    {
+        return SESSIONS.get(player.getUniqueID());
+    }
+
+    /**
+     * End session of given player (when it logs out)
+     */
+    public static void endSession(EntityPlayerMP player)
+    {
+        SESSIONS.remove(player.getUniqueID());
+    }
+
+    /**
+     * Acknowledge session of given player, after that morphs sent to that
+     * player are compact
+     */
+    public static void acknowledge(EntityPlayerMP player, int id, BitSet templates)
+    {
+        Session session = getSession(player);
+
+        if (session != null && session.codec.id == id)
+        {
+            session.templates = templates;
+        }
+    }
+
+    /**
+     * Set session which is used for writing morphs on current thread
+     */
+    public static void setOutput(Session session)
+    {
+        OUTPUT.set(session);
+    }
+
+    /**
+     * Write a morph, compact if there's an acknowledged output session
+     */
+    public static void writeMorph(ByteBuf buf, AbstractMorph morph)
+    {
+        if (morph == null)
+        {
+            buf.writeByte(NULL);
+
+            return;
+        }
+
+        NBTTagCompound tag = new NBTTagCompound();
+        Session session = OUTPUT.get();
+
+        morph.toNBT(tag);
+
+        if (session != null && session.isActive())
+        {
+            buf.writeByte(COMPACT);
+            session.codec.write(buf, tag, session.templates);
+        }
+        else
+        {
+            buf.writeByte(NBT);
+            ByteBufUtils.writeTag(buf, tag);
+        }
+    }
+
+    /**
+     * Read a morph written by {@link #writeMorph(ByteBuf, AbstractMorph)}
+     */
+    public static AbstractMorph readMorph(ByteBuf buf)
+    {
+        int mode = buf.readByte();
+
+        if (mode == NULL)
+        {
+            return null;
+        }
+
+        NBTTagCompound tag;
+
+        if (mode == COMPACT)
+        {
+            /* Compact morphs are sent only to the client, integrated (or 
+             * LAN) server shouldn't decode client's data with host's codec */
+            if (FMLCommonHandler.instance().getEffectiveSide() != Side.CLIENT)
+            {
+                throw new IllegalStateException("Received a compact morph on the server side!");
+            }
+
+            MorphCodec codec = client;
+
+            if (codec == null)
+            {
+                throw new IllegalStateException("Received a compact morph without negotiated morph codec!");
+            }
+
+            tag = codec.read(buf);
+        }
+        else
+        {
+            tag = ByteBufUtils.readTag(buf);
+        }
+
+        return MorphManager.INSTANCE.morphFromNBT(tag);
+    }
+
+    private MorphCodec(int id, String[] names, String[] strings, int[] templateNames, long[] templateHashes, NBTTagCompound[] templates)
+    {
+        this.id = id;
+        this.names = names;
+        this.strings = strings;
+        this.templateNames = templateNames;
+        this.templateHashes = templateHashes;
+        this.templates = templates;
+        this.byName = new int[names.length][];
+
+        int[] counts = new int[names.length];
+
+        for (int name : templateNames)
+        {
+            counts[name]++;
+        }
+
+        for (int i = 0; i < names.length; i++)
+        {
+            this.byName[i] = new int[counts[i]];
+            this.nameIds.put(names[i], i);
+            counts[i] = 0;
+        }
+
+        for (int i = 0; i < templateNames.length; i++)
+        {
+            int name = templateNames[i];
+
+            this.byName[name][counts[name]++] = i;
+        }
+
+        for (int i = 0; i < strings.length; i++)
+        {
+            this.stringIds.put(strings[i], i);
+        }
+    }
+
+    /**
+     * Get templates which this codec has
+     */
+    public BitSet getTemplates()
+    {
+        BitSet templates = new BitSet();
+
+        for (int i = 0; i < this.templates.length; i++)
+        {
+            if (this.templates[i] != null)
+            {
+                templates.set(i);
+            }
+        }
+
+        return templates;
+    }
+
+    /**
+     * Write morph's NBT against the template (out of given usable ones)
+     * which results in the smallest difference
+     */
+    public void write(ByteBuf buf, NBTTagCompound tag, BitSet usable)
+    {
+        String name = tag.getString("Name");
+        Integer nameId = this.nameIds.get(name);
+        NBTTagCompound base = new NBTTagCompound();
+        NBTTagCompound diff = new NBTTagCompound();
+        NBTTagCompound removed = new NBTTagCompound();
+        int index = -1;
+
+        base.setString("Name", name);
+        MorphingCodec.diff(tag, base, diff, removed);
+
+        if (nameId != null)
+        {
+            int[] candidates = this.byName[nameId];
+            int cost = count(diff) + count(removed);
+
+            for (int i = 0; i < candidates.length && cost > 0; i++)
+            {
+                if (!usable.get(candidates[i]))
+                {
+                    continue;
+                }
+
+                NBTTagCompound candidateDiff = new NBTTagCompound();
+                NBTTagCompound candidateRemoved = new NBTTagCompound();
+
+                MorphingCodec.diff(tag, this.templates[candidates[i]], candidateDiff, candidateRemoved);
+
+                int candidateCost = count(candidateDiff) + count(candidateRemoved);
+
+                if (candidateCost < cost)
+                {
+                    diff = candidateDiff;
+                    removed = candidateRemoved;
+                    cost = candidateCost;
+                    index = i;
+                }
+            }
+        }
+
+        ByteBufUtils.writeVarInt(buf, nameId == null ? 0 : nameId + 1, 5);
+
+        if (nameId == null)
+        {
+            ByteBufUtils.writeUTF8String(buf, name);
+        }
+
+        ByteBufUtils.writeVarInt(buf, index + 1, 5);
+        this.writeCompound(buf, diff);
+        this.writeCompound(buf, removed);
+    }
+
+    /**
+     * Read morph's NBT written by {@link #write(ByteBuf, NBTTagCompound, BitSet)}
+     */
+    public NBTTagCompound read(ByteBuf buf)
+    {
+        NBTSizeTracker tracker = new NBTSizeTracker(MAX_BYTES);
+        int nameId = ByteBufUtils.readVarInt(buf, 5) - 1;
+
+        if (nameId >= this.names.length)
+        {
+            throw new IllegalStateException("Received a morph with unknown name ID " + nameId + "!");
+        }
+
+        String name = nameId < 0 ? ByteBufUtils.readUTF8String(buf) : this.names[nameId];
+        int index = ByteBufUtils.readVarInt(buf, 5) - 1;
+        NBTTagCompound tag;
+
+        if (index >= 0)
+        {
+            if (nameId < 0 || index >= this.byName[nameId].length)
+            {
+                throw new IllegalStateException("Received a morph '" + name + "' with unknown template index " + index + "!");
+            }
+
+            NBTTagCompound template = this.templates[this.byName[nameId][index]];
+
+            if (template == null)
+            {
+                throw new IllegalStateException("Received a morph '" + name + "' encoded against unknown template!");
+            }
+
+            tag = template.copy();
+        }
+        else
+        {
+            tag = new NBTTagCompound();
+            tag.setString("Name", name);
+        }
+
+        NBTTagCompound diff = this.readCompound(buf, tracker, 0);
+        NBTTagCompound removed = this.readCompound(buf, tracker, 0);
+
+        tag.merge(diff);
+        MorphingCodec.remove(tag, removed);
+
+        return tag;
+    }
+
+    /**
+     * Count leaf tags of given compound
+     */
+    private static int count(NBTTagCompound tag)
+    {
+        int count = 0;
+
+        for (String key : tag.getKeySet())
+        {
+            NBTBase value = tag.getTag(key);
+
+            count += value instanceof NBTTagCompound ? count((NBTTagCompound) value) : 1;
+        }
+
+        return count;
+    }
+
+    /* Binary NBT */
+
+    private void writeCompound(ByteBuf buf, NBTTagCompound tag)
+    {
+        ByteBufUtils.writeVarInt(buf, tag.getSize(), 5);
+
+        for (String key : tag.getKeySet())
+        {
+            NBTBase value = tag.getTag(key);
+
+            this.writeString(buf, key);
+            buf.writeByte(value.getId());
+            this.writeTag(buf, value);
+        }
+    }
+
+    private NBTTagCompound readCompound(ByteBuf buf, NBTSizeTracker tracker, int depth)
+    {
+        if (depth > MAX_DEPTH)
+        {
+            throw new IllegalStateException("Compact morph is nested deeper than " + MAX_DEPTH + "!");
+        }
+
+        NBTTagCompound tag = new NBTTagCompound();
+
+        tracker.read(384);
+
+        for (int i = 0, c = readLength(buf); i < c; i++)
+        {
+            String key = this.readString(buf, tracker);
+
+            tag.setTag(key, this.readTag(buf, buf.readByte(), tracker, depth));
+        }
+
+        return tag;
+    }
+
+    private void writeTag(ByteBuf buf, NBTBase tag)
+    {
+        switch (tag.getId())
+        {
+            case 1:
+                buf.writeByte(((NBTPrimitive) tag).getByte());
+                break;
+            case 2:
+                buf.writeShort(((NBTPrimitive) tag).getShort());
+                break;
+            case 3:
+                ByteBufUtils.writeVarInt(buf, zigZag(((NBTPrimitive) tag).getInt()), 5);
+                break;
+            case 4:
+                writeVarLong(buf, zigZag(((NBTPrimitive) tag).getLong()));
+                break;
+            case 5:
+                buf.writeFloat(((NBTPrimitive) tag).getFloat());
+                break;
+            case 6:
+                buf.writeDouble(((NBTPrimitive) tag).getDouble());
+                break;
+            case 7:
+                byte[] bytes = ((NBTTagByteArray) tag).getByteArray();
+
+                ByteBufUtils.writeVarInt(buf, bytes.length, 5);
+                buf.writeBytes(bytes);
+                break;
+            case 8:
+                this.writeString(buf, ((NBTTagString) tag).getString());
+                break;
+            case 9:
+                NBTTagList list = (NBTTagList) tag;
+
+                buf.writeByte(list.getTagType());
+                ByteBufUtils.writeVarInt(buf, list.tagCount(), 5);
+
+                for (int i = 0, c = list.tagCount(); i < c; i++)
+                {
+                    this.writeTag(buf, list.get(i));
+                }
+                break;
+            case 10:
+                this.writeCompound(buf, (NBTTagCompound) tag);
+                break;
+            case 11:
+                int[] ints = ((NBTTagIntArray) tag).getIntArray();
+
+                ByteBufUtils.writeVarInt(buf, ints.length, 5);
+
+                for (int value : ints)
+                {
+                    ByteBufUtils.writeVarInt(buf, zigZag(value), 5);
+                }
+                break;
+        }
+    }
+
+    /**
+     * Read a tag of given type. Sizes are accounted in bits, like vanilla 
+     * NBT reading does
+     */
+    private NBTBase readTag(ByteBuf buf, byte type, NBTSizeTracker tracker, int depth)
+    {
+        switch (type)
+        {
+            case 1:
+                tracker.read(72);
+
+                return new NBTTagByte(buf.readByte());
+            case 2:
+                tracker.read(80);
+
+                return new NBTTagShort(buf.readShort());
+            case 3:
+                tracker.read(96);
+
+                return new NBTTagInt(unZigZag(ByteBufUtils.readVarInt(buf, 5)));
+            case 4:
+                tracker.read(128);
+
+                return new NBTTagLong(unZigZag(readVarLong(buf)));
+            case 5:
+                tracker.read(96);
+
+                return new NBTTagFloat(buf.readFloat());
+            case 6:
+                tracker.read(128);
+
+                return new NBTTagDouble(buf.readDouble());
+            case 7:
+                int length = readLength(buf);
+
+                tracker.read(192 + 8L * length);
+
+                byte[] bytes = new byte[length];
+
+                buf.readBytes(bytes);
+
+                return new NBTTagByteArray(bytes);
+            case 8:
+                return new NBTTagString(this.readString(buf, tracker));
+            case 9:
+                if (depth + 1 > MAX_DEPTH)
+                {
+                    throw new IllegalStateException("Compact morph is nested deeper than " + MAX_DEPTH + "!");
+                }
+
+                NBTTagList list = new NBTTagList();
+                byte elementType = buf.readByte();
+
+                tracker.read(296);
+
+                for (int i = 0, c = readLength(buf); i < c; i++)
+                {
+                    list.appendTag(this.readTag(buf, elementType, tracker, depth + 1));
+                }
+
+                return list;
+            case 10:
+                return this.readCompound(buf, tracker, depth + 1);
+            case 11:
+                int count = readLength(buf);
+
+                tracker.read(192 + 32L * count);
+
+                int[] ints = new int[count];
+
+                for (int i = 0; i < ints.length; i++)
+                {
+                    ints[i] = unZigZag(ByteBufUtils.readVarInt(buf, 5));
+                }
+
+                return new NBTTagIntArray(ints);
+        }
+
+        throw new IllegalStateException("Unknown NBT type " + type + " of a compact morph!");
+    }
+
+    /**
+     * Write a string as a reference into the string table, or inline if
+     * it's not in the table
+     */
+    private void writeString(ByteBuf buf, String string)
+    {
+        Integer id = this.stringIds.get(string);
+
+        ByteBufUtils.writeVarInt(buf, id == null ? 0 : id + 1, 5);
+
+        if (id == null)
+        {
+            ByteBufUtils.writeUTF8String(buf, string);
+        }
+    }
+
+    private String readString(ByteBuf buf, NBTSizeTracker tracker)
+    {
+        int id = ByteBufUtils.readVarInt(buf, 5) - 1;
+
+        if (id >= this.strings.length)
+        {
+            throw new IllegalStateException("Received a compact morph with unknown string ID " + id + "!");
+        }
+
+        String string = id < 0 ? ByteBufUtils.readUTF8String(buf) : this.strings[id];
+
+        tracker.read(288 + 16L * string.length());
+
+        return string;
+    }
+
+    /**
+     * Read a length of an array, list or compound. Every element takes at 
+     * least a byte, so the length can't be bigger than what's left in the 
+     * buffer
+     */
+    private static int readLength(ByteBuf buf)
+    {
+        int length = ByteBufUtils.readVarInt(buf, 5);
+
+        if (length < 0 || length > buf.readableBytes())
+        {
+            throw new IllegalStateException("Invalid length " + length + " in a compact morph (" + buf.readableBytes() + " bytes left)!");
+        }
+
+        return length;
+    }
+
+    private static int zigZag(int value)
+    {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static int unZigZag(int value)
+    {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static long zigZag(long value)
+    {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value)
+    {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeVarLong(ByteBuf buf, long value)
+    {
+        while ((value & ~0x7FL) != 0)
+        {
+            buf.writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+
+        buf.writeByte((int) value);
+    }
+
+    private static long readVarLong(ByteBuf buf)
+    {
+        long value = 0;
+        int shift = 0;
+        byte b;
+
+        do
+        {
+            b = buf.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        }
+        while ((b & 0x80) != 0 && shift < 70);
+
+        return value;
+    }
+
+    /**
+     * Codec session of a player on the server side
+     */
+    public static class Session
+    {
+        public final MorphCodec codec;
+
+        /**
+         * Templates which client has, or null if the session wasn't
+         * acknowledged yet
+         */
+        private BitSet templates;
+
+        public Session(MorphCodec codec)
+        {
+            this.codec = codec;
+        }
+
+        public boolean isActive()
+        {
+            return this.templates != null;
+        }
+    }
+}
@@ -16,7 +16,7 @@ public class ClientHandlerAcquireMorph extends ClientMessageHandler<PacketAcquir
     {
         IMorphing morphing = Morphing.get(player);
 
-        morphing.acquireMorph(message.morph);
+        morphing.acquireMorph(message.morph, message.id);
 
         ClientProxy.morphOverlay.add(message.morph);
         ClientProxy.overlay.setupMorphs(morphing);
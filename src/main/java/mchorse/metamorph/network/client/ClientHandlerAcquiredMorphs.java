@@ -1,24 +1,164 @@
 package mchorse.metamorph.network.client;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import mchorse.metamorph.ClientProxy;
 import mchorse.metamorph.capabilities.morphing.IMorphing;
 import mchorse.metamorph.capabilities.morphing.Morphing;
+import mchorse.metamorph.client.AcquiredCache;
+import mchorse.metamorph.network.Dispatcher;
+import mchorse.metamorph.network.common.PacketAcknowledgeMorphs;
 import mchorse.metamorph.network.common.PacketAcquiredMorphs;
 import net.minecraft.client.entity.EntityPlayerSP;
+import net.minecraft.nbt.NBTTagCompound;
 import net.minecraftforge.fml.relauncher.Side;
 import net.minecraftforge.fml.relauncher.SideOnly;
 
+/**
+ * Client handler acquired morphs
+ * 
+ * Applies either full snapshot or delta of acquired morphs. Since 
+ * {@link EntityPlayerSP} (along with its capability) is recreated upon 
+ * every respawn and dimension change, the last synced capability is 
+ * kept, and deltas are applied on top of it. On login, acquired morphs 
+ * are restored from the disk cache (see {@link AcquiredCache}).
+ */
 public class ClientHandlerAcquiredMorphs extends ClientMessageHandler<PacketAcquiredMorphs>
 {
+    /**
+     * Last synced capability 
+     */
+    @SideOnly(Side.CLIENT)
+    private static Morphing cache;
+
     @Override
     @SideOnly(Side.CLIENT)
     public void run(EntityPlayerSP player, PacketAcquiredMorphs message)
     {
         IMorphing morphing = Morphing.get(player);
 
-        morphing.setAcquiredMorphs(message.morphs);
-        morphing.setFavorites(message.favorites);
+        boolean applied = true;
+
+        if (message.isSnapshot())
+        {
+            morphing.setAcquiredData(message.morphs, message.ids);
+            morphing.setFavorites(message.favorites);
+        }
+        else if (message.isDelta())
+        {
+            applied = morphing instanceof Morphing && this.applyDelta((Morphing) morphing, message);
+        }
+        else
+        {
+            applied = this.applyCached(morphing, message);
+        }
 
+        if (!applied)
+        {
+            Dispatcher.sendToServer(new PacketAcknowledgeMorphs(message.epoch, -1));
+
+            return;
+        }
+
+        if (morphing instanceof Morphing)
+        {
+            cache = (Morphing) morphing;
+            cache.setSync(message.epoch, message.version);
+        }
+
+        Dispatcher.sendToServer(new PacketAcknowledgeMorphs(message.epoch, message.version));
+        ClientProxy.acquiredCache.update(morphing);
         ClientProxy.overlay.setupMorphs(morphing);
     }
-}
\ No newline at end of file
+
+    /**
+     * Apply server's response to handshake, restoring acquired morphs from 
+     * the disk cache (see {@link AcquiredCache})
+     * 
+     * @return false if the cache isn't loaded, or the response doesn't 
+     *         match it
+     */
+    @SideOnly(Side.CLIENT)
+    private boolean applyCached(IMorphing morphing, PacketAcquiredMorphs message)
+    {
+        AcquiredCache cache = ClientProxy.acquiredCache;
+
+        if (!cache.isLoaded())
+        {
+            return false;
+        }
+
+        List<NBTTagCompound> cached = cache.getMorphs();
+
+        if (message.since == PacketAcquiredMorphs.UP_TO_DATE)
+        {
+            morphing.setAcquiredData(cached, cache.getIds());
+            morphing.setFavorites(cache.getFavorites());
+
+            return true;
+        }
+
+        List<NBTTagCompound> morphs = new ArrayList<NBTTagCompound>(message.ids.length);
+
+        for (int i = 0; i < message.ids.length; i++)
+        {
+            int ref = message.refs[i];
+
+            if (ref >= cached.size())
+            {
+                return false;
+            }
+
+            morphs.add(ref >= 0 ? cached.get(ref) : message.morphs.get(i));
+        }
+
+        morphing.setAcquiredData(morphs, message.ids);
+        morphing.setFavorites(message.favorites);
+
+        return true;
+    }
+
+    /**
+     * Apply delta on given capability, restoring it from the cache first, 
+     * if it's a new capability
+     * 
+     * @return false if neither capability nor cache are recent enough
+     */
+    @SideOnly(Side.CLIENT)
+    private boolean applyDelta(Morphing morphing, PacketAcquiredMorphs message)
+    {
+        if (!isRecent(morphing, message))
+        {
+            if (cache == null || cache == morphing || !isRecent(cache, message))
+            {
+                return false;
+            }
+
+            morphing.copyAcquired(cache);
+        }
+
+        for (int id : message.removed)
+        {
+            morphing.remove(id);
+        }
+
+        for (int i = 0, c = message.morphs.size(); i < c; i++)
+        {
+            morphing.acquireData(message.morphs.get(i), message.ids[i]);
+        }
+
+        morphing.setFavorites(message.favorites);
+
+        return true;
+    }
+
+    /**
+     * Whether given capability has everything up to delta's base version 
+     */
+    @SideOnly(Side.CLIENT)
+    private static boolean isRecent(Morphing morphing, PacketAcquiredMorphs message)
+    {
+        return morphing.getEpoch() == message.epoch && morphing.getVersion() >= message.since;
+    }
+}
@@ -0,0 +1,115 @@
+package mchorse.metamorph.network.client;
+
+import java.io.ByteArrayOutputStream;
+
+import mchorse.metamorph.ClientProxy;
+import mchorse.metamorph.network.Dispatcher;
+import mchorse.metamorph.network.common.PacketAcknowledgeMorphs;
+import mchorse.metamorph.network.common.PacketAcquiredMorphs;
+import mchorse.metamorph.network.common.PacketAcquiredMorphsChunk;
+import net.minecraft.client.entity.EntityPlayerSP;
+import net.minecraftforge.fml.relauncher.Side;
+import net.minecraftforge.fml.relauncher.SideOnly;
+
+/**
+ * Client handler acquired morphs chunk
+ * 
+ * Collects chunks of a transfer (they arrive in order), and once the last 
+ * chunk is received, applies reassembled packet the same way as 
+ * {@link ClientHandlerAcquiredMorphs} does. 
+ */
+public class ClientHandlerAcquiredMorphsChunk extends ClientMessageHandler<PacketAcquiredMorphsChunk>
+{
+    @SideOnly(Side.CLIENT)
+    private static ClientHandlerAcquiredMorphs handler;
+
+    /**
+     * Current transfer 
+     */
+    @SideOnly(Side.CLIENT)
+    private static int transfer;
+
+    /**
+     * Count of chunks and inflated size of current transfer 
+     */
+    @SideOnly(Side.CLIENT)
+    private static int count;
+
+    @SideOnly(Side.CLIENT)
+    private static int size;
+
+    /**
+     * Index of expected chunk 
+     */
+    @SideOnly(Side.CLIENT)
+    private static int next;
+
+    /**
+     * Data of received chunks 
+     */
+    @SideOnly(Side.CLIENT)
+    private static ByteArrayOutputStream buffer;
+
+    @Override
+    @SideOnly(Side.CLIENT)
+    public void run(EntityPlayerSP player, PacketAcquiredMorphsChunk message)
+    {
+        if (message.index == 0)
+        {
+            transfer = message.transfer;
+            count = message.count;
+            size = message.size;
+            next = 0;
+            buffer = new ByteArrayOutputStream(message.count * PacketAcquiredMorphsChunk.CHUNK_SIZE);
+        }
+
+        /* Beginning of the transfer was missed or chunks don't agree with 
+         * it (shouldn't happen), so ask for a snapshot once the broken 
+         * transfer is over */
+        if (buffer == null || message.transfer != transfer || message.index != next || message.count != count || message.size != size)
+        {
+            if (message.index == message.count - 1)
+            {
+                ClientProxy.overlay.progress = -1;
+                Dispatcher.sendToServer(new PacketAcknowledgeMorphs(0, -1));
+            }
+
+            return;
+        }
+
+        buffer.write(message.data, 0, message.data.length);
+        next++;
+
+        if (next < message.count)
+        {
+            ClientProxy.overlay.progress = next / (float) message.count;
+
+            return;
+        }
+
+        byte[] data = buffer.toByteArray();
+
+        buffer = null;
+        ClientProxy.overlay.progress = -1;
+
+        try
+        {
+            PacketAcquiredMorphs packet = PacketAcquiredMorphsChunk.join(message.size, data);
+
+            if (handler == null)
+            {
+                handler = new ClientHandlerAcquiredMorphs();
+            }
+
+            handler.run(player, packet);
+        }
+        catch (Exception e)
+        {
+            System.out.println("Failed to read acquired morphs!");
+            e.printStackTrace();
+
+            /* Acknowledge the transfer anyway, and ask for a snapshot */
+            Dispatcher.sendToServer(new PacketAcknowledgeMorphs(0, -1));
+        }
+    }
+}
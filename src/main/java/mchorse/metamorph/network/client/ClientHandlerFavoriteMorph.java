@@ -13,7 +13,7 @@ public class ClientHandlerFavoriteMorph extends ClientMessageHandler<PacketFavor
     @SideOnly(Side.CLIENT)
     public void run(EntityPlayerSP player, PacketFavoriteMorph message)
     {
-        Morphing.get(player).favorite(message.index);
-        ClientProxy.overlay.favorite(message.index);
+        Morphing.get(player).favorite(message.id);
+        ClientProxy.overlay.favorite(message.id);
     }
 }
\ No newline at end of file
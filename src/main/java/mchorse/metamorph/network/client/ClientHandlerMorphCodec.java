@@ -0,0 +1,24 @@
+package mchorse.metamorph.network.client;
+
+import mchorse.metamorph.network.Dispatcher;
+import mchorse.metamorph.network.MorphCodec;
+import mchorse.metamorph.network.common.PacketMorphCodec;
+import mchorse.metamorph.network.common.PacketMorphCodecAck;
+import net.minecraft.client.entity.EntityPlayerSP;
+import net.minecraftforge.fml.relauncher.Side;
+import net.minecraftforge.fml.relauncher.SideOnly;
+
+public class ClientHandlerMorphCodec extends ClientMessageHandler<PacketMorphCodec>
+{
+    @Override
+    @SideOnly(Side.CLIENT)
+    public void run(EntityPlayerSP player, PacketMorphCodec message)
+    {
+        MorphCodec codec = MorphCodec.fromTable(message);
+
+        /* Codec has to be set before acknowledging, since compact morphs 
+         * are sent only after the server has received acknowledgement */
+        MorphCodec.client = codec;
+        Dispatcher.sendToServer(new PacketMorphCodecAck(codec.id, codec.getTemplates()));
+    }
+}
@@ -0,0 +1,36 @@
+package mchorse.metamorph.network.client;
+
+import mchorse.metamorph.capabilities.morphing.IMorphing;
+import mchorse.metamorph.capabilities.morphing.MorphingProvider;
+import mchorse.metamorph.network.common.PacketMorphPlayers;
+import net.minecraft.client.entity.EntityPlayerSP;
+import net.minecraft.entity.Entity;
+import net.minecraft.entity.player.EntityPlayer;
+import net.minecraftforge.fml.relauncher.Side;
+import net.minecraftforge.fml.relauncher.SideOnly;
+
+public class ClientHandlerMorphPlayers extends ClientMessageHandler<PacketMorphPlayers>
+{
+    @Override
+    @SideOnly(Side.CLIENT)
+    public void run(EntityPlayerSP player, PacketMorphPlayers message)
+    {
+        for (int i = 0, c = message.ids.size(); i < c; i++)
+        {
+            Entity entity = player.worldObj.getEntityByID(message.ids.get(i));
+
+            /* Player might have went out of sight during the tick */
+            if (!(entity instanceof EntityPlayer))
+            {
+                continue;
+            }
+
+            IMorphing capability = entity.getCapability(MorphingProvider.MORPHING_CAP, null);
+
+            if (capability != null)
+            {
+                capability.setCurrentMorph(message.morphs.get(i), (EntityPlayer) entity, true);
+            }
+        }
+    }
+}
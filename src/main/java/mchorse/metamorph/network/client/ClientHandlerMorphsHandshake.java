@@ -0,0 +1,30 @@
+package mchorse.metamorph.network.client;
+
+import mchorse.metamorph.ClientProxy;
+import mchorse.metamorph.client.AcquiredCache;
+import mchorse.metamorph.network.Dispatcher;
+import mchorse.metamorph.network.common.PacketMorphsHandshake;
+import net.minecraft.client.entity.EntityPlayerSP;
+import net.minecraftforge.fml.relauncher.Side;
+import net.minecraftforge.fml.relauncher.SideOnly;
+
+public class ClientHandlerMorphsHandshake extends ClientMessageHandler<PacketMorphsHandshake>
+{
+    @Override
+    @SideOnly(Side.CLIENT)
+    public void run(EntityPlayerSP player, PacketMorphsHandshake message)
+    {
+        AcquiredCache cache = ClientProxy.acquiredCache;
+
+        cache.load(player);
+
+        if (cache.isEmpty())
+        {
+            Dispatcher.sendToServer(new PacketMorphsHandshake());
+        }
+        else
+        {
+            Dispatcher.sendToServer(new PacketMorphsHandshake(cache.getHash(), cache.getHashes()));
+        }
+    }
+}
@@ -13,7 +13,7 @@ public class ClientHandlerRemoveMorph extends ClientMessageHandler<PacketRemoveM
     @SideOnly(Side.CLIENT)
     public void run(EntityPlayerSP player, PacketRemoveMorph message)
     {
-        Morphing.get(player).remove(message.index);
-        ClientProxy.overlay.remove(message.index);
+        Morphing.get(player).remove(message.id);
+        ClientProxy.overlay.remove(message.id);
     }
 }
\ No newline at end of file
@@ -0,0 +1,41 @@
+package mchorse.metamorph.network.common;
+
+import io.netty.buffer.ByteBuf;
+import net.minecraftforge.fml.common.network.simpleimpl.IMessage;
+
+/**
+ * Acknowledge morphs packet
+ * 
+ * Sent by the client once it applied {@link PacketAcquiredMorphs}, so the 
+ * server would send only a delta since acknowledged version next time. 
+ * Negative version means that the client is out of sync, and it needs a 
+ * full snapshot.
+ */
+public class PacketAcknowledgeMorphs implements IMessage
+{
+    public int epoch;
+    public int version;
+
+    public PacketAcknowledgeMorphs()
+    {}
+
+    public PacketAcknowledgeMorphs(int epoch, int version)
+    {
+        this.epoch = epoch;
+        this.version = version;
+    }
+
+    @Override
+    public void fromBytes(ByteBuf buf)
+    {
+        this.epoch = buf.readInt();
+        this.version = buf.readInt();
+    }
+
+    @Override
+    public void toBytes(ByteBuf buf)
+    {
+        buf.writeInt(this.epoch);
+        buf.writeInt(this.version);
+    }
+}
@@ -1,18 +1,19 @@
 package mchorse.metamorph.network.common;
 
 import io.netty.buffer.ByteBuf;
-import mchorse.metamorph.api.MorphManager;
 import mchorse.metamorph.api.morphs.AbstractMorph;
-import net.minecraft.nbt.NBTTagCompound;
-import net.minecraftforge.fml.common.network.ByteBufUtils;
+import mchorse.metamorph.network.MorphCodec;
 import net.minecraftforge.fml.common.network.simpleimpl.IMessage;
 
 /**
  * Acquire morph packet
+ * 
+ * When it's sent to the client, it also contains ID of acquired morph 
  */
 public class PacketAcquireMorph implements IMessage
 {
     public AbstractMorph morph;
+    public int id = -1;
 
     public PacketAcquireMorph()
     {}
@@ -22,26 +23,24 @@ public class PacketAcquireMorph implements IMessage
         this.morph = morph;
     }
 
+    public PacketAcquireMorph(AbstractMorph morph, int id)
+    {
+        this.morph = morph;
+        this.id = id;
+    }
+
     @Override
     public void fromBytes(ByteBuf buf)
     {
-        if (buf.readBoolean())
-        {
-            this.morph = MorphManager.INSTANCE.morphFromNBT(ByteBufUtils.readTag(buf));
-        }
+        this.id = buf.readInt();
+
+        this.morph = MorphCodec.readMorph(buf);
     }
 
     @Override
     public void toBytes(ByteBuf buf)
     {
-        buf.writeBoolean(this.morph != null);
-
-        if (this.morph != null)
-        {
-            NBTTagCompound tag = new NBTTagCompound();
-
-            this.morph.toNBT(tag);
-            ByteBufUtils.writeTag(buf, tag);
-        }
+        buf.writeInt(this.id);
+        MorphCodec.writeMorph(buf, this.morph);
     }
 }
\ No newline at end of file
@@ -1,67 +1,266 @@
 package mchorse.metamorph.network.common;
 
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import io.netty.buffer.ByteBuf;
-import mchorse.metamorph.api.MorphManager;
-import mchorse.metamorph.api.morphs.AbstractMorph;
+import mchorse.metamorph.capabilities.morphing.IMorphing;
+import mchorse.metamorph.capabilities.morphing.Morphing;
+import mchorse.metamorph.capabilities.morphing.MorphingCodec;
+import net.minecraft.nbt.NBTBase;
 import net.minecraft.nbt.NBTTagCompound;
 import net.minecraftforge.fml.common.network.ByteBufUtils;
 import net.minecraftforge.fml.common.network.simpleimpl.IMessage;
 
 /**
  * Acquired morphs packet
+ *
+ * Acquired morphs are sent in their NBT form, so neither server nor client
+ * have to create all of the morphs (see {@link IMorphing#getAcquiredData()}).
+ *
+ * This packet is either a full snapshot of acquired morphs, or a delta
+ * since given version (see {@link Morphing#getVersion()}), which contains
+ * only morphs acquired and removed since that version, or a response to
+ * client's handshake (see {@link PacketMorphsHandshake}) based on client's
+ * cached copy of acquired morphs. Favorites are always sent in full
+ * (except when client's cache is up to date).
  */
 public class PacketAcquiredMorphs implements IMessage
 {
-    public List<AbstractMorph> morphs;
-    public List<Integer> favorites;
+    /**
+     * Full snapshot
+     */
+    public static final int SNAPSHOT = -1;
+
+    /**
+     * All acquired morphs, but morphs which the client has in its cache
+     * are sent as references to cached morphs (see {@link #refs})
+     */
+    public static final int CACHED = -2;
+
+    /**
+     * Client's cache is up to date, nothing but epoch and version is sent
+     */
+    public static final int UP_TO_DATE = -3;
+
+    public int epoch;
+    public int version;
+
+    /**
+     * Version which this delta is based on, or one of the modes above
+     */
+    public int since = SNAPSHOT;
+
+    public List<NBTTagCompound> morphs;
+    public int[] ids;
+    public int[] removed = new int[0];
+    public BitSet favorites;
+
+    /**
+     * Indices of morphs in client's cache (or -1 if morph is sent), only
+     * in {@link #CACHED} mode
+     */
+    public int[] refs;
 
     public PacketAcquiredMorphs()
     {
-        this.morphs = new ArrayList<AbstractMorph>();
-        this.favorites = new ArrayList<Integer>();
+        this.morphs = new ArrayList<NBTTagCompound>();
+        this.favorites = new BitSet();
+    }
+
+    /**
+     * Full snapshot of acquired morphs
+     */
+    public PacketAcquiredMorphs(IMorphing morphing)
+    {
+        this.morphs = morphing.getAcquiredData();
+        this.ids = morphing.getAcquiredIds();
+        this.favorites = morphing.getFavorites();
+
+        if (morphing instanceof Morphing)
+        {
+            this.epoch = ((Morphing) morphing).getEpoch();
+            this.version = ((Morphing) morphing).getVersion();
+        }
+    }
+
+    /**
+     * Delta of acquired morphs since given version
+     */
+    public PacketAcquiredMorphs(Morphing morphing, int since)
+    {
+        this.epoch = morphing.getEpoch();
+        this.version = morphing.getVersion();
+        this.since = since;
+        this.morphs = new ArrayList<NBTTagCompound>();
+        this.ids = morphing.getAcquiredIds(since);
+        this.removed = morphing.getRemovedIds(since);
+        this.favorites = morphing.getFavorites();
+
+        for (int id : this.ids)
+        {
+            this.morphs.add(morphing.getAcquiredNBT(id));
+        }
+    }
+
+    /**
+     * Response to client's handshake, based on client's cached copy of
+     * acquired morphs with given hashes (see {@link MorphingCodec#hash(NBTBase)}).
+     * If the hash of whole collection matches client's one, nothing is sent.
+     */
+    public PacketAcquiredMorphs(Morphing morphing, long hash, long[] cached)
+    {
+        this.epoch = morphing.getEpoch();
+        this.version = morphing.getVersion();
+        this.morphs = morphing.getAcquiredData();
+        this.ids = morphing.getAcquiredIds();
+        this.favorites = morphing.getFavorites();
+
+        if (MorphingCodec.hash(this.morphs, this.ids, this.favorites) == hash)
+        {
+            this.since = UP_TO_DATE;
+            this.morphs = new ArrayList<NBTTagCompound>();
+            this.ids = new int[0];
+            this.favorites = new BitSet();
+
+            return;
+        }
+
+        Map<Long, Integer> indices = new HashMap<Long, Integer>();
+
+        for (int i = cached.length - 1; i >= 0; i--)
+        {
+            indices.put(cached[i], i);
+        }
+
+        this.since = CACHED;
+        this.refs = new int[this.ids.length];
+
+        for (int i = 0; i < this.ids.length; i++)
+        {
+            Integer index = indices.get(MorphingCodec.hash(this.morphs.get(i)));
+
+            this.refs[i] = index == null ? -1 : index;
+
+            if (index != null)
+            {
+                this.morphs.set(i, null);
+            }
+        }
+    }
+
+    /**
+     * Whether this packet is a full snapshot
+     */
+    public boolean isSnapshot()
+    {
+        return this.since == SNAPSHOT;
     }
 
-    public PacketAcquiredMorphs(List<AbstractMorph> morphs, List<Integer> favorites)
+    /**
+     * Whether this packet is a delta since version
+     */
+    public boolean isDelta()
     {
-        this.morphs = morphs;
-        this.favorites = favorites;
+        return this.since >= 0;
     }
 
     @Override
     public void fromBytes(ByteBuf buf)
     {
-        for (int i = 0, c = buf.readInt(); i < c; i++)
+        this.epoch = buf.readInt();
+        this.version = buf.readInt();
+        this.since = buf.readInt();
+
+        if (this.since == UP_TO_DATE)
+        {
+            this.ids = new int[0];
+
+            return;
+        }
+
+        if (this.isDelta())
+        {
+            this.removed = new int[buf.readInt()];
+
+            for (int i = 0; i < this.removed.length; i++)
+            {
+                this.removed[i] = buf.readInt();
+            }
+        }
+
+        int count = buf.readInt();
+
+        this.ids = new int[count];
+        this.refs = this.since == CACHED ? new int[count] : null;
+
+        for (int i = 0; i < count; i++)
         {
-            this.morphs.add(MorphManager.INSTANCE.morphFromNBT(ByteBufUtils.readTag(buf)));
+            this.ids[i] = buf.readInt();
+
+            if (this.refs != null && (this.refs[i] = buf.readInt()) >= 0)
+            {
+                this.morphs.add(null);
+            }
+            else
+            {
+                this.morphs.add(ByteBufUtils.readTag(buf));
+            }
         }
 
         for (int i = 0, c = buf.readInt(); i < c; i++)
         {
-            this.favorites.add(buf.readInt());
+            this.favorites.set(buf.readInt());
         }
     }
 
     @Override
     public void toBytes(ByteBuf buf)
     {
+        buf.writeInt(this.epoch);
+        buf.writeInt(this.version);
+        buf.writeInt(this.since);
+
+        if (this.since == UP_TO_DATE)
+        {
+            return;
+        }
+
+        if (this.isDelta())
+        {
+            buf.writeInt(this.removed.length);
+
+            for (int id : this.removed)
+            {
+                buf.writeInt(id);
+            }
+        }
+
         buf.writeInt(this.morphs.size());
 
-        for (AbstractMorph morph : this.morphs)
+        for (int i = 0, c = this.morphs.size(); i < c; i++)
         {
-            NBTTagCompound tag = new NBTTagCompound();
+            buf.writeInt(this.ids[i]);
+
+            if (this.refs != null)
+            {
+                buf.writeInt(this.refs[i]);
+            }
 
-            morph.toNBT(tag);
-            ByteBufUtils.writeTag(buf, tag);
+            if (this.refs == null || this.refs[i] < 0)
+            {
+                ByteBufUtils.writeTag(buf, this.morphs.get(i));
+            }
         }
 
-        buf.writeInt(this.favorites.size());
+        buf.writeInt(this.favorites.cardinality());
 
-        for (Integer index : this.favorites)
+        for (int id = this.favorites.nextSetBit(0); id >= 0; id = this.favorites.nextSetBit(id + 1))
         {
-            buf.writeInt(index);
+            buf.writeInt(id);
         }
     }
 }
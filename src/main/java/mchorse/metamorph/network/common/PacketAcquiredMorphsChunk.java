@@ -0,0 +1,213 @@
+package mchorse.metamorph.network.common;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import net.minecraftforge.fml.common.network.simpleimpl.IMessage;
+
+/**
+ * Acquired morphs chunk packet
+ * 
+ * Large {@link PacketAcquiredMorphs} are deflated and split into bounded 
+ * chunks, so big collections would be smaller on the wire, and they would 
+ * never exceed custom payload size limit. Chunks are reassembled on the 
+ * client, and then applied as one packet (see {@link #join(int, byte[])}).
+ */
+public class PacketAcquiredMorphsChunk implements IMessage
+{
+    /**
+     * Maximum size of chunk's data in bytes 
+     */
+    public static final int CHUNK_SIZE = 32 * 1024;
+
+    /**
+     * Packets smaller than this (in bytes) are sent as is 
+     */
+    public static final int COMPRESS_THRESHOLD = 1024;
+
+    /**
+     * Maximum size of reassembled (inflated) packet in bytes, so a broken 
+     * or malicious transfer couldn't make the client allocate a huge buffer
+     */
+    public static final int MAX_SIZE = 16 * 1024 * 1024;
+
+    /**
+     * Counter of transfers 
+     */
+    private static final AtomicInteger TRANSFERS = new AtomicInteger();
+
+    public int transfer;
+    public int index;
+    public int count;
+    public int size;
+    public byte[] data;
+
+    public PacketAcquiredMorphsChunk()
+    {}
+
+    public PacketAcquiredMorphsChunk(int transfer, int index, int count, int size, byte[] data)
+    {
+        this.transfer = transfer;
+        this.index = index;
+        this.count = count;
+        this.size = size;
+        this.data = data;
+    }
+
+    /**
+     * Split given packet into deflated chunks. If the packet is small, it's 
+     * returned as is. If it's bigger than {@link #MAX_SIZE}, nothing is 
+     * returned, since the client would reject it anyway.
+     */
+    public static List<IMessage> split(PacketAcquiredMorphs packet)
+    {
+        List<IMessage> messages = new ArrayList<IMessage>();
+        ByteBuf buf = Unpooled.buffer();
+
+        packet.toBytes(buf);
+
+        if (buf.readableBytes() < COMPRESS_THRESHOLD)
+        {
+            messages.add(packet);
+
+            return messages;
+        }
+
+        if (buf.readableBytes() > MAX_SIZE)
+        {
+            System.out.println("Acquired morphs are too big to be sent (" + buf.readableBytes() + " bytes)!");
+
+            return messages;
+        }
+
+        byte[] raw = new byte[buf.readableBytes()];
+        byte[] buffer = new byte[8192];
+        ByteArrayOutputStream output = new ByteArrayOutputStream(raw.length / 4);
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+
+        buf.readBytes(raw);
+        deflater.setInput(raw);
+        deflater.finish();
+
+        while (!deflater.finished())
+        {
+            output.write(buffer, 0, deflater.deflate(buffer));
+        }
+
+        deflater.end();
+
+        byte[] compressed = output.toByteArray();
+        int count = Math.max((compressed.length + CHUNK_SIZE - 1) / CHUNK_SIZE, 1);
+        int transfer = TRANSFERS.incrementAndGet();
+
+        for (int i = 0; i < count; i++)
+        {
+            byte[] data = Arrays.copyOfRange(compressed, i * CHUNK_SIZE, Math.min((i + 1) * CHUNK_SIZE, compressed.length));
+
+            messages.add(new PacketAcquiredMorphsChunk(transfer, i, count, raw.length, data));
+        }
+
+        return messages;
+    }
+
+    /**
+     * Get maximum count of chunks that a packet of given size could be 
+     * split into (deflated data is never bigger than zlib's compress bound)
+     */
+    public static int getMaxChunks(int size)
+    {
+        long bound = (long) size + (size >> 12) + (size >> 14) + (size >> 25) + 13;
+
+        return (int) ((bound + CHUNK_SIZE - 1) / CHUNK_SIZE);
+    }
+
+    /**
+     * Inflate joined data of all chunks back into a packet
+     */
+    public static PacketAcquiredMorphs join(int size, byte[] data) throws DataFormatException
+    {
+        if (size < 0 || size > MAX_SIZE)
+        {
+            throw new DataFormatException("Invalid size of acquired morphs " + size + "!");
+        }
+
+        PacketAcquiredMorphs packet = new PacketAcquiredMorphs();
+        Inflater inflater = new Inflater();
+        byte[] raw = new byte[size];
+        int offset = 0;
+
+        inflater.setInput(data);
+
+        while (offset < size && !inflater.finished())
+        {
+            int inflated = inflater.inflate(raw, offset, size - offset);
+
+            if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+            {
+                break;
+            }
+
+            offset += inflated;
+        }
+
+        inflater.end();
+
+        if (offset != size)
+        {
+            throw new DataFormatException("Acquired morphs are truncated (" + offset + " out of " + size + " bytes)!");
+        }
+
+        packet.fromBytes(Unpooled.wrappedBuffer(raw));
+
+        return packet;
+    }
+
+    @Override
+    public void fromBytes(ByteBuf buf)
+    {
+        this.transfer = buf.readInt();
+        this.index = buf.readInt();
+        this.count = buf.readInt();
+        this.size = buf.readInt();
+
+        if (this.size < 0 || this.size > MAX_SIZE)
+        {
+            throw new IllegalStateException("Invalid size of acquired morphs " + this.size + "!");
+        }
+
+        if (this.count < 1 || this.count > getMaxChunks(this.size) || this.index < 0 || this.index >= this.count)
+        {
+            throw new IllegalStateException("Invalid chunk " + this.index + " out of " + this.count + " for " + this.size + " bytes!");
+        }
+
+        int length = buf.readInt();
+
+        if (length < 0 || length > CHUNK_SIZE || length > buf.readableBytes())
+        {
+            throw new IllegalStateException("Invalid chunk length " + length + "!");
+        }
+
+        this.data = new byte[length];
+
+        buf.readBytes(this.data);
+    }
+
+    @Override
+    public void toBytes(ByteBuf buf)
+    {
+        buf.writeInt(this.transfer);
+        buf.writeInt(this.index);
+        buf.writeInt(this.count);
+        buf.writeInt(this.size);
+        buf.writeInt(this.data.length);
+        buf.writeBytes(this.data);
+    }
+}
@@ -5,28 +5,30 @@ import net.minecraftforge.fml.common.network.simpleimpl.IMessage;
 
 /**
  * Packet favorite a morph
+ * 
+ * Addresses acquired morph by its ID
  */
 public class PacketFavoriteMorph implements IMessage
 {
-    public int index;
+    public int id;
 
     public PacketFavoriteMorph()
     {}
 
-    public PacketFavoriteMorph(int index)
+    public PacketFavoriteMorph(int id)
     {
-        this.index = index;
+        this.id = id;
     }
 
     @Override
     public void fromBytes(ByteBuf buf)
     {
-        this.index = buf.readInt();
+        this.id = buf.readInt();
     }
 
     @Override
     public void toBytes(ByteBuf buf)
     {
-        buf.writeInt(this.index);
+        buf.writeInt(this.id);
     }
 }
\ No newline at end of file
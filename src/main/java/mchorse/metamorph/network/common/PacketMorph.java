@@ -1,10 +1,8 @@
 package mchorse.metamorph.network.common;
 
 import io.netty.buffer.ByteBuf;
-import mchorse.metamorph.api.MorphManager;
 import mchorse.metamorph.api.morphs.AbstractMorph;
-import net.minecraft.nbt.NBTTagCompound;
-import net.minecraftforge.fml.common.network.ByteBufUtils;
+import mchorse.metamorph.network.MorphCodec;
 import net.minecraftforge.fml.common.network.simpleimpl.IMessage;
 
 public class PacketMorph implements IMessage
@@ -22,25 +20,12 @@ public class PacketMorph implements IMessage
     @Override
     public void fromBytes(ByteBuf buf)
     {
-        if (buf.readBoolean())
-        {
-            NBTTagCompound tag = ByteBufUtils.readTag(buf);
-
-            this.morph = MorphManager.INSTANCE.morphFromNBT(tag);
-        }
+        this.morph = MorphCodec.readMorph(buf);
     }
 
     @Override
     public void toBytes(ByteBuf buf)
     {
-        buf.writeBoolean(this.morph != null);
-
-        if (this.morph != null)
-        {
-            NBTTagCompound tag = new NBTTagCompound();
-
-            this.morph.toNBT(tag);
-            ByteBufUtils.writeTag(buf, tag);
-        }
+        MorphCodec.writeMorph(buf, this.morph);
     }
 }
\ No newline at end of file
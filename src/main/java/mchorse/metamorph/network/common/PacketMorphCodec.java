@@ -0,0 +1,112 @@
+package mchorse.metamorph.network.common;
+
+import io.netty.buffer.ByteBuf;
+import mchorse.metamorph.network.MorphCodec;
+import net.minecraftforge.fml.common.network.ByteBufUtils;
+import net.minecraftforge.fml.common.network.simpleimpl.IMessage;
+
+/**
+ * Morph codec packet
+ * 
+ * Server's codec table, which is sent to the client when it joins the 
+ * server (see {@link MorphCodec}). Client replies with 
+ * {@link PacketMorphCodecAck}.
+ */
+public class PacketMorphCodec implements IMessage
+{
+    public int id;
+    public String[] names;
+    public String[] strings;
+    public int[] templateNames;
+    public long[] templateHashes;
+
+    public PacketMorphCodec()
+    {}
+
+    public PacketMorphCodec(MorphCodec codec)
+    {
+        this.id = codec.id;
+        this.names = codec.names;
+        this.strings = codec.strings;
+        this.templateNames = codec.templateNames;
+        this.templateHashes = codec.templateHashes;
+    }
+
+    @Override
+    public void fromBytes(ByteBuf buf)
+    {
+        this.id = buf.readInt();
+        this.names = new String[readLength(buf, 1)];
+
+        for (int i = 0; i < this.names.length; i++)
+        {
+            this.names[i] = ByteBufUtils.readUTF8String(buf);
+        }
+
+        this.strings = new String[readLength(buf, 1)];
+
+        for (int i = 0; i < this.strings.length; i++)
+        {
+            this.strings[i] = ByteBufUtils.readUTF8String(buf);
+        }
+
+        int count = readLength(buf, 9);
+
+        this.templateNames = new int[count];
+        this.templateHashes = new long[count];
+
+        for (int i = 0; i < count; i++)
+        {
+            this.templateNames[i] = ByteBufUtils.readVarInt(buf, 5);
+            this.templateHashes[i] = buf.readLong();
+
+            if (this.templateNames[i] < 0 || this.templateNames[i] >= this.names.length)
+            {
+                throw new IllegalStateException("Invalid name ID " + this.templateNames[i] + " of morph codec's template!");
+            }
+        }
+    }
+
+    /**
+     * Read a count of elements, which take at least given amount of bytes 
+     * each, so it can't be bigger than what's left in the buffer
+     */
+    private static int readLength(ByteBuf buf, int size)
+    {
+        int length = ByteBufUtils.readVarInt(buf, 5);
+
+        if (length < 0 || length > buf.readableBytes() / size)
+        {
+            throw new IllegalStateException("Invalid count " + length + " in morph codec table!");
+        }
+
+        return length;
+    }
+
+    @Override
+    public void toBytes(ByteBuf buf)
+    {
+        buf.writeInt(this.id);
+        ByteBufUtils.writeVarInt(buf, this.names.length, 5);
+
+        for (String name : this.names)
+        {
+            ByteBufUtils.writeUTF8String(buf, name);
+        }
+
+        ByteBufUtils.writeVarInt(buf, this.strings.length, 5);
+
+        for (String string : this.strings)
+        {
+            ByteBufUtils.writeUTF8String(buf, string);
+        }
+
+        ByteBufUtils.writeVarInt(buf, this.templateNames.length, 5);
+
+        for (int i = 0; i < this.templateNames.length; i++)
+        {
+            ByteBufUtils.writeVarInt(buf, this.templateNames[i], 5);
+            buf.writeLong(this.templateHashes[i]);
+        }
+    }
+}
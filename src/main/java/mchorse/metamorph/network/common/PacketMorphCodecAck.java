@@ -0,0 +1,80 @@
+package mchorse.metamorph.network.common;
+
+import java.util.BitSet;
+
+import io.netty.buffer.ByteBuf;
+import net.minecraftforge.fml.common.network.ByteBufUtils;
+import net.minecraftforge.fml.common.network.simpleimpl.IMessage;
+
+/**
+ * Morph codec acknowledgement packet
+ * 
+ * Sent by the client once it has set up the codec out of 
+ * {@link PacketMorphCodec}. It contains the templates which the client 
+ * has, so the server would encode morphs only against those.
+ */
+public class PacketMorphCodecAck implements IMessage
+{
+    /**
+     * Maximum count of templates, so a client couldn't make the server 
+     * allocate a huge bit set
+     */
+    public static final int MAX_TEMPLATES = 1 << 16;
+
+    public int id;
+    public BitSet templates = new BitSet();
+
+    public PacketMorphCodecAck()
+    {}
+
+    public PacketMorphCodecAck(int id, BitSet templates)
+    {
+        this.id = id;
+        this.templates = templates;
+    }
+
+    @Override
+    public void fromBytes(ByteBuf buf)
+    {
+        this.id = buf.readInt();
+
+        int length = Math.min(ByteBufUtils.readVarInt(buf, 5), MAX_TEMPLATES);
+
+        for (int i = 0; i < length; i += 8)
+        {
+            int bits = buf.readUnsignedByte();
+
+            for (int j = 0; j < 8; j++)
+            {
+                if ((bits & (1 << j)) != 0)
+                {
+                    this.templates.set(i + j);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void toBytes(ByteBuf buf)
+    {
+        int length = this.templates.length();
+
+        buf.writeInt(this.id);
+        ByteBufUtils.writeVarInt(buf, length, 5);
+
+        for (int i = 0; i < length; i += 8)
+        {
+            int bits = 0;
+
+            for (int j = 0; j < 8; j++)
+            {
+                if (this.templates.get(i + j))
+                {
+                    bits |= 1 << j;
+                }
+            }
+
+            buf.writeByte(bits);
+        }
+    }
+}
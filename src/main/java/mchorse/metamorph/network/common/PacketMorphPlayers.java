@@ -0,0 +1,58 @@
+package mchorse.metamorph.network.common;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import io.netty.buffer.ByteBuf;
+import mchorse.metamorph.api.morphs.AbstractMorph;
+import mchorse.metamorph.network.MorphCodec;
+import net.minecraftforge.fml.common.network.simpleimpl.IMessage;
+
+/**
+ * Morph players packet
+ *
+ * Batched version of {@link PacketMorphPlayer}. It contains morphs of all 
+ * tracked players which were changed (or started being tracked) during 
+ * the tick (see {@link mchorse.metamorph.network.Dispatcher#flushMorphs()}). 
+ * Null morph means that the player was demorphed.
+ */
+public class PacketMorphPlayers implements IMessage
+{
+    public List<Integer> ids = new ArrayList<Integer>();
+    public List<AbstractMorph> morphs = new ArrayList<AbstractMorph>();
+
+    public PacketMorphPlayers()
+    {}
+
+    public PacketMorphPlayers(Map<Integer, AbstractMorph> morphs)
+    {
+        for (Map.Entry<Integer, AbstractMorph> entry : morphs.entrySet())
+        {
+            this.ids.add(entry.getKey());
+            this.morphs.add(entry.getValue());
+        }
+    }
+
+    @Override
+    public void fromBytes(ByteBuf buf)
+    {
+        for (int i = 0, c = buf.readInt(); i < c; i++)
+        {
+            this.ids.add(buf.readInt());
+            this.morphs.add(MorphCodec.readMorph(buf));
+        }
+    }
+
+    @Override
+    public void toBytes(ByteBuf buf)
+    {
+        buf.writeInt(this.ids.size());
+
+        for (int i = 0, c = this.ids.size(); i < c; i++)
+        {
+            buf.writeInt(this.ids.get(i));
+            MorphCodec.writeMorph(buf, this.morphs.get(i));
+        }
+    }
+}
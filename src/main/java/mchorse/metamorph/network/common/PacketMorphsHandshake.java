@@ -0,0 +1,67 @@
+package mchorse.metamorph.network.common;
+
+import io.netty.buffer.ByteBuf;
+import net.minecraftforge.fml.common.network.simpleimpl.IMessage;
+
+/**
+ * Morphs handshake packet
+ * 
+ * Server sends an empty handshake when the client doesn't have any synced 
+ * version of acquired morphs (i.e. on login). The client replies with 
+ * content hash of its cached copy of acquired morphs for this server and 
+ * player, and hashes of cached morphs, so the server could answer with 
+ * "up to date" or with only the morphs which client doesn't have (see 
+ * {@link PacketAcquiredMorphs}).
+ */
+public class PacketMorphsHandshake implements IMessage
+{
+    /**
+     * Maximum count of cached morph hashes, so a client couldn't make the 
+     * server allocate a huge array
+     */
+    public static final int MAX_HASHES = 1 << 16;
+
+    public long hash;
+    public long[] hashes = new long[0];
+
+    public PacketMorphsHandshake()
+    {}
+
+    public PacketMorphsHandshake(long hash, long[] hashes)
+    {
+        this.hash = hash;
+        this.hashes = hashes;
+    }
+
+    @Override
+    public void fromBytes(ByteBuf buf)
+    {
+        this.hash = buf.readLong();
+
+        int count = buf.readInt();
+
+        if (count < 0 || count > MAX_HASHES || count > buf.readableBytes() / 8)
+        {
+            throw new IllegalStateException("Invalid count of cached morph hashes " + count + "!");
+        }
+
+        this.hashes = new long[count];
+
+        for (int i = 0; i < this.hashes.length; i++)
+        {
+            this.hashes[i] = buf.readLong();
+        }
+    }
+
+    @Override
+    public void toBytes(ByteBuf buf)
+    {
+        buf.writeLong(this.hash);
+        buf.writeInt(this.hashes.length);
+
+        for (long hash : this.hashes)
+        {
+            buf.writeLong(hash);
+        }
+    }
+}
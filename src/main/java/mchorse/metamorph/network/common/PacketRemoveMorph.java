@@ -3,27 +3,32 @@ package mchorse.metamorph.network.common;
 import io.netty.buffer.ByteBuf;
 import net.minecraftforge.fml.common.network.simpleimpl.IMessage;
 
+/**
+ * Remove morph packet
+ * 
+ * Addresses acquired morph by its ID
+ */
 public class PacketRemoveMorph implements IMessage
 {
-    public int index;
+    public int id;
 
     public PacketRemoveMorph()
     {}
 
-    public PacketRemoveMorph(int index)
+    public PacketRemoveMorph(int id)
     {
-        this.index = index;
+        this.id = id;
     }
 
     @Override
     public void fromBytes(ByteBuf buf)
     {
-        this.index = buf.readInt();
+        this.id = buf.readInt();
     }
 
     @Override
     public void toBytes(ByteBuf buf)
     {
-        buf.writeInt(this.index);
+        buf.writeInt(this.id);
     }
 }
\ No newline at end of file
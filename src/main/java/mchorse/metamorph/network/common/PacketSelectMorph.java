@@ -3,27 +3,32 @@ package mchorse.metamorph.network.common;
 import io.netty.buffer.ByteBuf;
 import net.minecraftforge.fml.common.network.simpleimpl.IMessage;
 
+/**
+ * Select morph packet
+ * 
+ * Addresses acquired morph by its ID, -1 means demorph.
+ */
 public class PacketSelectMorph implements IMessage
 {
-    public int index;
+    public int id;
 
     public PacketSelectMorph()
     {}
 
-    public PacketSelectMorph(int index)
+    public PacketSelectMorph(int id)
     {
-        this.index = index;
+        this.id = id;
     }
 
     @Override
     public void fromBytes(ByteBuf buf)
     {
-        this.index = buf.readInt();
+        this.id = buf.readInt();
     }
 
     @Override
     public void toBytes(ByteBuf buf)
     {
-        buf.writeInt(index);
+        buf.writeInt(this.id);
     }
 }
\ No newline at end of file
@@ -0,0 +1,54 @@
+package mchorse.metamorph.network.server;
+
+import mchorse.metamorph.capabilities.morphing.IMorphing;
+import mchorse.metamorph.capabilities.morphing.Morphing;
+import mchorse.metamorph.network.Dispatcher;
+import mchorse.metamorph.network.common.PacketAcknowledgeMorphs;
+import mchorse.metamorph.network.common.PacketAcquiredMorphs;
+import net.minecraft.entity.player.EntityPlayerMP;
+
+public class ServerHandlerAcknowledgeMorphs extends ServerMessageHandler<PacketAcknowledgeMorphs>
+{
+    @Override
+    public void run(EntityPlayerMP player, PacketAcknowledgeMorphs message)
+    {
+        IMorphing capability = Morphing.get(player);
+
+        if (!(capability instanceof Morphing))
+        {
+            return;
+        }
+
+        Morphing morphing = (Morphing) capability;
+
+        /* Acknowledgement of nothing that was sent */
+        if (!morphing.acknowledgeSync())
+        {
+            return;
+        }
+
+        /* Client is out of sync, so send it everything (but not too often, 
+         * since it's expensive) */
+        if (message.version < 0)
+        {
+            if (!morphing.canResync(player.worldObj.getTotalWorldTime()))
+            {
+                /* Send it once the cooldown passes, unless player respawns 
+                 * before that (then it starts with a handshake) */
+                morphing.setSynced(morphing.getEpoch(), -1);
+                Dispatcher.queueResync(player);
+
+                return;
+            }
+
+            if (Dispatcher.sendAcquiredMorphs(new PacketAcquiredMorphs(morphing), player))
+            {
+                morphing.setSynced(morphing.getEpoch(), morphing.getVersion());
+            }
+
+            return;
+        }
+
+        morphing.setSynced(message.epoch, message.version);
+    }
+}
@@ -10,7 +10,7 @@ public class ServerHandlerFavoriteMorph extends ServerMessageHandler<PacketFavor
     @Override
     public void run(EntityPlayerMP player, PacketFavoriteMorph message)
     {
-        Morphing.get(player).favorite(message.index);
+        Morphing.get(player).favorite(message.id);
         Dispatcher.sendTo(message, player);
     }
 }
\ No newline at end of file
@@ -0,0 +1,14 @@
+package mchorse.metamorph.network.server;
+
+import mchorse.metamorph.network.MorphCodec;
+import mchorse.metamorph.network.common.PacketMorphCodecAck;
+import net.minecraft.entity.player.EntityPlayerMP;
+
+public class ServerHandlerMorphCodecAck extends ServerMessageHandler<PacketMorphCodecAck>
+{
+    @Override
+    public void run(EntityPlayerMP player, PacketMorphCodecAck message)
+    {
+        MorphCodec.acknowledge(player, message.id, message.templates);
+    }
+}
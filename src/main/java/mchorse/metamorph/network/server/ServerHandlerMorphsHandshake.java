@@ -0,0 +1,52 @@
+package mchorse.metamorph.network.server;
+
+import mchorse.metamorph.capabilities.morphing.IMorphing;
+import mchorse.metamorph.capabilities.morphing.Morphing;
+import mchorse.metamorph.network.Dispatcher;
+import mchorse.metamorph.network.common.PacketAcquiredMorphs;
+import mchorse.metamorph.network.common.PacketMorphsHandshake;
+import net.minecraft.entity.player.EntityPlayerMP;
+
+public class ServerHandlerMorphsHandshake extends ServerMessageHandler<PacketMorphsHandshake>
+{
+    @Override
+    public void run(EntityPlayerMP player, PacketMorphsHandshake message)
+    {
+        IMorphing capability = Morphing.get(player);
+
+        /* Handshakes are requested only for default implementation (see 
+         * CapabilityHandler) */
+        if (!(capability instanceof Morphing))
+        {
+            return;
+        }
+
+        Morphing morphing = (Morphing) capability;
+
+        /* Handshake which server didn't ask for */
+        if (!morphing.answerHandshake())
+        {
+            return;
+        }
+
+        /* Answering is expensive, so it's throttled the same way as 
+         * client's requests for a full snapshot */
+        if (!morphing.canResync(player.worldObj.getTotalWorldTime()))
+        {
+            morphing.setSynced(morphing.getEpoch(), -1);
+            Dispatcher.queueResync(player);
+
+            return;
+        }
+
+        boolean cached = message.hash != 0 || message.hashes.length > 0;
+
+        /* Client has no cache, so send it everything */
+        PacketAcquiredMorphs packet = cached ? new PacketAcquiredMorphs(morphing, message.hash, message.hashes) : new PacketAcquiredMorphs(morphing);
+
+        if (Dispatcher.sendAcquiredMorphs(packet, player))
+        {
+            morphing.setSynced(morphing.getEpoch(), morphing.getVersion());
+        }
+    }
+}
@@ -10,7 +10,7 @@ public class ServerHandlerRemoveMorph extends ServerMessageHandler<PacketRemoveM
     @Override
     public void run(EntityPlayerMP player, PacketRemoveMorph message)
     {
-        if (Morphing.get(player).remove(message.index))
+        if (Morphing.get(player).remove(message.id))
         {
             Dispatcher.sendTo(message, player);
         }
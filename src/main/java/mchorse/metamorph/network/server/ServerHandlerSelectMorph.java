@@ -1,7 +1,5 @@
 package mchorse.metamorph.network.server;
 
-import java.util.List;
-
 import mchorse.metamorph.api.MorphAPI;
 import mchorse.metamorph.api.morphs.AbstractMorph;
 import mchorse.metamorph.capabilities.morphing.IMorphing;
@@ -14,15 +12,13 @@ public class ServerHandlerSelectMorph extends ServerMessageHandler<PacketSelectM
     @Override
     public void run(EntityPlayerMP player, PacketSelectMorph message)
     {
-        int index = message.index;
-
         IMorphing capability = Morphing.get(player);
-        List<AbstractMorph> morphs = capability.getAcquiredMorphs();
-        AbstractMorph morph = null;
+        AbstractMorph morph = message.id >= 0 ? capability.getAcquiredMorph(message.id) : null;
 
-        if (!morphs.isEmpty() && index >= 0 && index < morphs.size())
+        /* Unknown ID, probably the morph was just removed */
+        if (message.id >= 0 && morph == null)
         {
-            morph = morphs.get(index);
+            return;
         }
 
         MorphAPI.morph(player, morph, false);
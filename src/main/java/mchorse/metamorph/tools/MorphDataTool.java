@@ -0,0 +1,456 @@
+package mchorse.metamorph.tools;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.google.common.io.Files;
+
+import mchorse.metamorph.api.EntityUtils;
+import mchorse.metamorph.api.ITemplateMorphFactory;
+import mchorse.metamorph.api.MorphList;
+import mchorse.metamorph.api.MorphManager;
+import mchorse.metamorph.api.morphs.AbstractMorph;
+import mchorse.metamorph.capabilities.CapabilityHandler;
+import mchorse.metamorph.capabilities.morphing.Morphing;
+import mchorse.metamorph.capabilities.morphing.MorphingCodec;
+import mchorse.metamorph.capabilities.morphing.MorphingStorage;
+import mchorse.vanilla_pack.MobMorphFactory;
+import net.minecraft.nbt.CompressedStreamTools;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.nbt.NBTTagList;
+
+/**
+ * Morph data tool
+ *
+ * This is an offline tool (it doesn't need a running server or client)
+ * which reads every player file in world's playerdata folder in parallel,
+ * and reports per-player count of acquired morphs and size of morphing
+ * capability. With --write flag, it also rewrites morphing capability in
+ * compact form: entity data is stripped with
+ * {@link EntityUtils#stripEntityNBT(NBTTagCompound)}, duplicate morphs are
+ * merged (favorites are kept) and the data is written with
+ * {@link MorphingStorage}, the same way the game does.
+ *
+ * Usage (with Minecraft, Forge and Metamorph on the class path):
+ *
+ * <pre>
+ * java mchorse.metamorph.tools.MorphDataTool &lt;world folder&gt; [--write] [--cache config/metamorph/cache.dat] [--threads N]
+ * </pre>
+ *
+ * Morph cache (see {@link mchorse.metamorph.api.MorphCache}) provides
+ * entity templates, without it morphs can't be encoded as a difference
+ * against their templates (see {@link MorphingCodec}), and encoded morphs
+ * are kept as is. Original player files are kept with .bak extension.
+ */
+public class MorphDataTool
+{
+    /**
+     * Key of morphing capability in player's ForgeCaps
+     */
+    public static final String CAPABILITY = CapabilityHandler.MORPHING_CAP.toString();
+
+    private File folder;
+    private boolean write;
+    private int threads;
+
+    public static void main(String[] args) throws Exception
+    {
+        if (args.length == 0)
+        {
+            System.out.println("Usage: MorphDataTool <world folder> [--write] [--cache <cache.dat>] [--threads <count>]");
+
+            return;
+        }
+
+        File cache = null;
+        MorphDataTool tool = new MorphDataTool(new File(args[0], "playerdata"));
+
+        for (int i = 1; i < args.length; i++)
+        {
+            if (args[i].equals("--write"))
+            {
+                tool.write = true;
+            }
+            else if (args[i].equals("--cache") && i + 1 < args.length)
+            {
+                cache = new File(args[++i]);
+            }
+            else if (args[i].equals("--threads") && i + 1 < args.length)
+            {
+                tool.threads = Integer.parseInt(args[++i]);
+            }
+        }
+
+        if (cache != null)
+        {
+            loadTemplates(cache);
+        }
+
+        tool.run();
+    }
+
+    /**
+     * Load entity templates from the morph cache, and register them as a
+     * morph factory, so {@link MorphingCodec} could use them
+     */
+    public static void loadTemplates(File file) throws Exception
+    {
+        InputStream input = new FileInputStream(file);
+        NBTTagCompound tag = CompressedStreamTools.readCompressed(input);
+
+        input.close();
+
+        NBTTagCompound data = tag.getCompoundTag("Factories").getCompoundTag(MobMorphFactory.class.getName()).getCompoundTag("Data");
+        TemplateFactory factory = new TemplateFactory();
+
+        for (String name : data.getKeySet())
+        {
+            NBTTagCompound template = new NBTTagCompound();
+
+            template.setString("Name", name);
+            template.setTag("EntityData", data.getCompoundTag(name).getCompoundTag("Data"));
+            factory.templates.put(name, template);
+        }
+
+        MorphManager.INSTANCE.factories.add(factory);
+        System.out.println("Loaded " + factory.templates.size() + " entity templates from '" + file + "'");
+    }
+
+    public MorphDataTool(File folder)
+    {
+        this.folder = folder;
+        this.threads = Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Process all player files in parallel and print the report
+     */
+    public void run() throws Exception
+    {
+        File[] files = this.folder.listFiles(new FilenameFilter()
+        {
+            @Override
+            public boolean accept(File dir, String name)
+            {
+                return name.endsWith(".dat");
+            }
+        });
+
+        if (files == null)
+        {
+            System.out.println("There's no playerdata folder at '" + this.folder + "'!");
+
+            return;
+        }
+
+        Arrays.sort(files);
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(this.threads, 1));
+        List<Future<Report>> futures = new ArrayList<Future<Report>>();
+
+        for (final File file : files)
+        {
+            futures.add(executor.submit(new Callable<Report>()
+            {
+                @Override
+                public Report call() throws Exception
+                {
+                    return process(file);
+                }
+            }));
+        }
+
+        executor.shutdown();
+
+        Report total = new Report("Total");
+
+        for (int i = 0; i < files.length; i++)
+        {
+            try
+            {
+                Report report = futures.get(i).get();
+
+                System.out.println(report);
+                total.add(report);
+            }
+            catch (Exception e)
+            {
+                System.out.println("Failed to process '" + files[i].getName() + "'!");
+                e.printStackTrace();
+            }
+        }
+
+        System.out.println(total);
+    }
+
+    /**
+     * Analyze (and compact) morphing capability of given player file
+     */
+    public Report process(File file) throws Exception
+    {
+        Report report = new Report(file.getName().replace(".dat", ""));
+        InputStream input = new FileInputStream(file);
+        NBTTagCompound player = CompressedStreamTools.readCompressed(input);
+
+        input.close();
+
+        NBTTagCompound caps = player.getCompoundTag("ForgeCaps");
+
+        if (!caps.hasKey(CAPABILITY, 10))
+        {
+            report.note = "no morphing data";
+
+            return report;
+        }
+
+        NBTTagCompound cap = caps.getCompoundTag(CAPABILITY);
+
+        if (cap.getBoolean("Store"))
+        {
+            report.note = "kept in morph store";
+
+            return report;
+        }
+
+        NBTTagList morphs = cap.getTagList("Morphs", 10);
+        NBTTagCompound compact = this.compact(cap);
+
+        report.morphs = morphs.tagCount();
+        report.bytes = sizeOf(cap);
+        report.compactMorphs = compact.getTagList("Morphs", 10).tagCount();
+        report.compactBytes = sizeOf(compact);
+
+        if (this.write && !compact.equals(cap))
+        {
+            caps.setTag(CAPABILITY, compact);
+
+            File temporary = new File(file.getPath() + ".tmp");
+            OutputStream output = new FileOutputStream(temporary);
+
+            CompressedStreamTools.writeCompressed(player, output);
+            output.close();
+
+            Files.copy(file, new File(file.getPath() + ".bak"));
+            Files.move(temporary, file);
+            report.note = "rewritten";
+        }
+
+        return report;
+    }
+
+    /**
+     * Compact given morphing capability tag
+     *
+     * Acquired morphs are decoded, their entity data is stripped, duplicates
+     * (by the same rules as {@link Morphing#acquiredMorph(AbstractMorph)})
+     * are merged, and then the capability is written by
+     * {@link MorphingStorage}. Current morph is kept as is.
+     */
+    public NBTTagCompound compact(NBTTagCompound cap)
+    {
+        NBTTagList morphs = cap.getTagList("Morphs", 10);
+        NBTTagList favorites = cap.getTagList("Favorites", 3);
+        boolean encoded = cap.getInteger("Version") >= 2;
+
+        List<NBTTagCompound> acquired = new ArrayList<NBTTagCompound>();
+        Map<String, List<Integer>> buckets = new HashMap<String, List<Integer>>();
+        int[] remap = new int[morphs.tagCount()];
+
+        for (int i = 0; i < morphs.tagCount(); i++)
+        {
+            NBTTagCompound tag = morphs.getCompoundTagAt(i).copy();
+
+            if (encoded)
+            {
+                tag = MorphingCodec.decode(tag);
+            }
+
+            if (tag.hasKey("EntityData", 10))
+            {
+                tag.setTag("EntityData", EntityUtils.stripEntityNBT(tag.getCompoundTag("EntityData")));
+            }
+
+            String key = getKey(tag);
+            List<Integer> bucket = buckets.get(key);
+            int index = -1;
+
+            if (bucket == null)
+            {
+                buckets.put(key, bucket = new ArrayList<Integer>(1));
+            }
+
+            for (Integer other : bucket)
+            {
+                if (isSame(acquired.get(other), tag))
+                {
+                    index = other;
+                    break;
+                }
+            }
+
+            if (index == -1)
+            {
+                index = acquired.size();
+                acquired.add(tag);
+                bucket.add(index);
+            }
+
+            remap[i] = index;
+        }
+
+        BitSet favorite = new BitSet();
+
+        for (int i = 0; i < favorites.tagCount(); i++)
+        {
+            int index = favorites.getIntAt(i);
+
+            if (index >= 0 && index < remap.length)
+            {
+                favorite.set(remap[index]);
+            }
+        }
+
+        Morphing morphing = new Morphing();
+
+        morphing.setAcquiredData(acquired);
+        morphing.setFavorites(favorite);
+
+        NBTTagCompound compact = new MorphingStorage().write(morphing);
+
+        if (cap.hasKey("Morph", 10))
+        {
+            compact.setTag("Morph", cap.getCompoundTag("Morph"));
+        }
+
+        return compact;
+    }
+
+    /**
+     * Get bucket key of morph's NBT (name and entity data fingerprint)
+     */
+    private static String getKey(NBTTagCompound tag)
+    {
+        if (tag.hasKey("EntityData", 10))
+        {
+            return tag.getString("Name") + "#" + EntityUtils.fingerprintData(tag.getCompoundTag("EntityData"));
+        }
+
+        return tag.hasKey("T", 8) ? "T#" + tag.getString("T") : tag.getString("Name");
+    }
+
+    /**
+     * Whether given morph tags describe the same morph
+     */
+    private static boolean isSame(NBTTagCompound a, NBTTagCompound b)
+    {
+        if (a.hasKey("EntityData", 10) && b.hasKey("EntityData", 10))
+        {
+            return a.getString("Name").equals(b.getString("Name")) && EntityUtils.compareData(a.getCompoundTag("EntityData"), b.getCompoundTag("EntityData"));
+        }
+
+        return a.equals(b);
+    }
+
+    /**
+     * Get size of given tag in bytes (uncompressed)
+     */
+    private static int sizeOf(NBTTagCompound tag) throws Exception
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(bytes);
+
+        CompressedStreamTools.write(tag, output);
+        output.close();
+
+        return bytes.size();
+    }
+
+    /**
+     * Per-player report
+     */
+    public static class Report
+    {
+        public String name;
+        public int morphs;
+        public int bytes;
+        public int compactMorphs;
+        public int compactBytes;
+        public String note = "";
+
+        public Report(String name)
+        {
+            this.name = name;
+        }
+
+        public void add(Report report)
+        {
+            this.morphs += report.morphs;
+            this.bytes += report.bytes;
+            this.compactMorphs += report.compactMorphs;
+            this.compactBytes += report.compactBytes;
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("%s: %d morphs (%d bytes) -> %d morphs (%d bytes) %s", this.name, this.morphs, this.bytes, this.compactMorphs, this.compactBytes, this.note);
+        }
+    }
+
+    /**
+     * Template factory
+     *
+     * Provides entity templates loaded from the morph cache for
+     * {@link MorphingCodec}, it doesn't create any morphs.
+     */
+    public static class TemplateFactory implements ITemplateMorphFactory
+    {
+        public Map<String, NBTTagCompound> templates = new HashMap<String, NBTTagCompound>();
+
+        @Override
+        public void register(MorphManager manager)
+        {}
+
+        @Override
+        public void registerClient(MorphManager manager)
+        {}
+
+        @Override
+        public void getMorphs(MorphList morphs)
+        {}
+
+        @Override
+        public boolean hasMorph(String name)
+        {
+            return this.templates.containsKey(name);
+        }
+
+        @Override
+        public AbstractMorph getMorphFromNBT(NBTTagCompound tag)
+        {
+            return null;
+        }
+
+        @Override
+        public NBTTagCompound getTemplateNBT(String name)
+        {
+            return this.templates.get(name);
+        }
+    }
+}
@@ -1,13 +1,21 @@
 package mchorse.vanilla_pack;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import mchorse.metamorph.Metamorph;
 import mchorse.metamorph.api.EntityUtils;
-import mchorse.metamorph.api.IMorphFactory;
+import mchorse.metamorph.api.ICachedMorphFactory;
+import mchorse.metamorph.api.IMorphDescriptorFactory;
+import mchorse.metamorph.api.ITemplateMorphFactory;
+import mchorse.metamorph.api.MorphDescriptor;
 import mchorse.metamorph.api.MorphList;
 import mchorse.metamorph.api.MorphManager;
 import mchorse.metamorph.api.morphs.AbstractMorph;
 import mchorse.metamorph.api.morphs.EntityMorph;
 import mchorse.vanilla_pack.morphs.IronGolemMorph;
-import net.minecraft.client.Minecraft;
 import net.minecraft.entity.Entity;
 import net.minecraft.entity.EntityList;
 import net.minecraft.entity.EntityLivingBase;
@@ -26,8 +34,21 @@ import net.minecraftforge.fml.relauncher.SideOnly;
  * This is underlying morph factory. It's responsible for generating 
  * {@link EntityMorph} out of 
  */
-public class MobMorphFactory implements IMorphFactory
+public class MobMorphFactory implements IMorphDescriptorFactory, ICachedMorphFactory, ITemplateMorphFactory
 {
+    /**
+     * Cached morphability decisions per entity class 
+     */
+    private Map<Class<? extends Entity>, Boolean> morphable = new ConcurrentHashMap<Class<? extends Entity>, Boolean>();
+
+    /**
+     * Precomputed entity templates (stripped default entity data) per 
+     * entity name. Entity is constructed only once per 
+     * name, and after that morphs are created without any world at all. 
+     * Templates are stored in the morph cache between launches
+     */
+    private Map<String, EntityTemplate> templates = new ConcurrentHashMap<String, EntityTemplate>();
+
     /**
      * Nothing to register here, since all of the morphs are generated on 
      * runtime 
@@ -50,121 +71,139 @@ public class MobMorphFactory implements IMorphFactory
      */
     @Override
     public void getMorphs(MorphList morphs)
+    {
+        List<MorphDescriptor> descriptors = new ArrayList<MorphDescriptor>();
+
+        this.getDescriptors(descriptors);
+        morphs.addDescriptors(descriptors);
+    }
+
+    /**
+     * Describe all available variation of vanilla mobs and default types of 
+     * custom mobs
+     */
+    @Override
+    public void getDescriptors(List<MorphDescriptor> descriptors)
     {
         for (String name : EntityList.getEntityNameList())
         {
-            if (this.hasMorph(name) && !morphs.hasMorph(name))
+            if (this.hasMorph(name))
             {
-                this.addMorph(morphs, name, null);
+                this.addDescriptor(descriptors, name, null);
             }
         }
 
         /* Adding baby animal variants */
-        this.addMorph(morphs, "Pig", "{Age:-1}");
-        this.addMorph(morphs, "Chicken", "{Age:-1}");
-        this.addMorph(morphs, "Cow", "{Age:-1}");
-        this.addMorph(morphs, "MushroomCow", "{Age:-1}");
-        this.addMorph(morphs, "PolarBear", "{Age:-1}");
+        this.addDescriptor(descriptors, "Pig", "{Age:-1}");
+        this.addDescriptor(descriptors, "Chicken", "{Age:-1}");
+        this.addDescriptor(descriptors, "Cow", "{Age:-1}");
+        this.addDescriptor(descriptors, "MushroomCow", "{Age:-1}");
+        this.addDescriptor(descriptors, "PolarBear", "{Age:-1}");
 
         /* Sheep variants */
-        this.addMorph(morphs, "Sheep", "{Sheared:1b}");
-        this.addMorph(morphs, "Sheep", "{Age:-1}");
-        this.addMorph(morphs, "Sheep", "{Age:-1,Sheared:1b}");
+        this.addDescriptor(descriptors, "Sheep", "{Sheared:1b}");
+        this.addDescriptor(descriptors, "Sheep", "{Age:-1}");
+        this.addDescriptor(descriptors, "Sheep", "{Age:-1,Sheared:1b}");
 
         for (int i = 1; i < 16; i++)
         {
-            this.addMorph(morphs, "Sheep", "{Color:" + i + "}");
+            this.addDescriptor(descriptors, "Sheep", "{Color:" + i + "}");
         }
 
-        this.addMorph(morphs, "Sheep", "Jeb", "{CustomName:\"jeb_\"}");
-        this.addMorph(morphs, "Sheep", "Baby Jeb", "{Age:-1,CustomName:\"jeb_\"}");
+        this.addDescriptor(descriptors, "Sheep", "Jeb", "{CustomName:\"jeb_\"}");
+        this.addDescriptor(descriptors, "Sheep", "Baby Jeb", "{Age:-1,CustomName:\"jeb_\"}");
 
         /* Slime and magma cube variants */
-        this.addMorph(morphs, "Slime", "{Size:1}");
-        this.addMorph(morphs, "Slime", "{Size:2}");
+        this.addDescriptor(descriptors, "Slime", "{Size:1}");
+        this.addDescriptor(descriptors, "Slime", "{Size:2}");
 
-        this.addMorph(morphs, "LavaSlime", "{Size:1}");
-        this.addMorph(morphs, "LavaSlime", "{Size:2}");
+        this.addDescriptor(descriptors, "LavaSlime", "{Size:1}");
+        this.addDescriptor(descriptors, "LavaSlime", "{Size:2}");
 
         /* Adding cat variants */
-        this.addMorph(morphs, "Ozelot", "{Age:-1}");
+        this.addDescriptor(descriptors, "Ozelot", "{Age:-1}");
 
         for (int i = 1; i < 4; i++)
         {
-            this.addMorph(morphs, "Ozelot", "{CatType:" + i + "}");
-            this.addMorph(morphs, "Ozelot", "{CatType:" + i + ",Age:-1}");
+            this.addDescriptor(descriptors, "Ozelot", "{CatType:" + i + "}");
+            this.addDescriptor(descriptors, "Ozelot", "{CatType:" + i + ",Age:-1}");
         }
 
         /* Adding horse variants */
-        this.addMorph(morphs, "EntityHorse", "{Type:0,Variant:1}");
-        this.addMorph(morphs, "EntityHorse", "{Type:0,Variant:2}");
-        this.addMorph(morphs, "EntityHorse", "{Type:0,Variant:3}");
-        this.addMorph(morphs, "EntityHorse", "{Type:0,Variant:4}");
-        this.addMorph(morphs, "EntityHorse", "{Type:0,Variant:5}");
-        this.addMorph(morphs, "EntityHorse", "{Type:0,Variant:6}");
-        this.addMorph(morphs, "EntityHorse", "Donkey", "{Type:1,Variant:0}");
-        this.addMorph(morphs, "EntityHorse", "Mule", "{Type:2,Variant:0}");
-        this.addMorph(morphs, "EntityHorse", "Skeleton", "{Type:3,Variant:0}");
-        this.addMorph(morphs, "EntityHorse", "Zombie", "{Type:4,Variant:0}");
+        this.addDescriptor(descriptors, "EntityHorse", "{Type:0,Variant:1}");
+        this.addDescriptor(descriptors, "EntityHorse", "{Type:0,Variant:2}");
+        this.addDescriptor(descriptors, "EntityHorse", "{Type:0,Variant:3}");
+        this.addDescriptor(descriptors, "EntityHorse", "{Type:0,Variant:4}");
+        this.addDescriptor(descriptors, "EntityHorse", "{Type:0,Variant:5}");
+        this.addDescriptor(descriptors, "EntityHorse", "{Type:0,Variant:6}");
+        this.addDescriptor(descriptors, "EntityHorse", "Donkey", "{Type:1,Variant:0}");
+        this.addDescriptor(descriptors, "EntityHorse", "Mule", "{Type:2,Variant:0}");
+        this.addDescriptor(descriptors, "EntityHorse", "Skeleton", "{Type:3,Variant:0}");
+        this.addDescriptor(descriptors, "EntityHorse", "Zombie", "{Type:4,Variant:0}");
 
         /* Adding villager variants */
-        this.addMorph(morphs, "Villager", "{ProfessionName:\"minecraft:librarian\"}");
-        this.addMorph(morphs, "Villager", "{ProfessionName:\"minecraft:priest\"}");
-        this.addMorph(morphs, "Villager", "{ProfessionName:\"minecraft:smith\"}");
-        this.addMorph(morphs, "Villager", "{ProfessionName:\"minecraft:butcher\"}");
+        this.addDescriptor(descriptors, "Villager", "{ProfessionName:\"minecraft:librarian\"}");
+        this.addDescriptor(descriptors, "Villager", "{ProfessionName:\"minecraft:priest\"}");
+        this.addDescriptor(descriptors, "Villager", "{ProfessionName:\"minecraft:smith\"}");
+        this.addDescriptor(descriptors, "Villager", "{ProfessionName:\"minecraft:butcher\"}");
 
         /* Adding normal bat */
-        this.addMorph(morphs, "Bat", "{BatFlags:2}");
+        this.addDescriptor(descriptors, "Bat", "{BatFlags:2}");
 
         /* Skeleton variants */
-        this.addMorph(morphs, "Skeleton", "Wither", "{SkeletonType:1}");
-        this.addMorph(morphs, "Skeleton", "Stray", "{SkeletonType:2}");
+        this.addDescriptor(descriptors, "Skeleton", "Wither", "{SkeletonType:1}");
+        this.addDescriptor(descriptors, "Skeleton", "Stray", "{SkeletonType:2}");
 
         /* Adding Zombie variants */
-        this.addMorph(morphs, "Zombie", "Baby", "{IsBaby:1b}");
+        this.addDescriptor(descriptors, "Zombie", "Baby", "{IsBaby:1b}");
 
         for (int i = 1; i < 7; i++)
         {
-            this.addMorph(morphs, "Zombie", "{ZombieType:" + i + "}");
+            this.addDescriptor(descriptors, "Zombie", "{ZombieType:" + i + "}");
         }
 
         /* Adding elder guardian */
-        this.addMorph(morphs, "Guardian", "Elder", "{Elder:1b}");
+        this.addDescriptor(descriptors, "Guardian", "Elder", "{Elder:1b}");
 
         /* Adding rabbit variants */
         for (int i = 1; i < 6; i++)
         {
-            this.addMorph(morphs, "Rabbit", "{RabbitType:" + i + "}");
+            this.addDescriptor(descriptors, "Rabbit", "{RabbitType:" + i + "}");
         }
 
-        this.addMorph(morphs, "Rabbit", "Toast", "{CustomName:\"Toast\"}");
+        this.addDescriptor(descriptors, "Rabbit", "Toast", "{CustomName:\"Toast\"}");
     }
 
     /**
-     * Add an entity morph to the morph list
+     * Add an entity morph descriptor to the list
      */
-    private void addMorph(MorphList morphs, String name, String json)
+    private void addDescriptor(List<MorphDescriptor> descriptors, String name, String json)
     {
-        this.addMorph(morphs, name, "", json);
+        this.addDescriptor(descriptors, name, "", json);
     }
 
     /**
-     * Add an entity morph to the morph list
+     * Add an entity morph descriptor to the list
+     * 
+     * Descriptor's NBT contains only given JSON data, complete entity data is 
+     * generated when the descriptor is turned into a morph.
      */
-    private void addMorph(MorphList morphs, String name, String variant, String json)
+    private void addDescriptor(List<MorphDescriptor> descriptors, String name, String variant, String json)
     {
-        World world = Minecraft.getMinecraft().theWorld;
-        EntityMorph morph = name.equals("VillagerGolem") ? new IronGolemMorph() : new EntityMorph();
-        EntityLivingBase entity = (EntityLivingBase) EntityList.createEntityByName(name, world);
-        NBTTagCompound data = entity.serializeNBT();
+        if (!this.hasMorph(name))
+        {
+            return;
+        }
 
-        morph.name = name;
+        NBTTagCompound tag = new NBTTagCompound();
+
+        tag.setString("Name", name);
 
         if (json != null)
         {
             try
             {
-                data.merge(JsonToNBT.getTagFromJson(json));
+                tag.setTag("EntityData", JsonToNBT.getTagFromJson(json));
             }
             catch (NBTException e)
             {
@@ -173,27 +212,192 @@ public class MobMorphFactory implements IMorphFactory
             }
         }
 
-        /* Setting up a category */
+        descriptors.add(new MorphDescriptor(this, name, this.getCategory(name), variant, tag));
+    }
+
+    /**
+     * Get category of an entity morph by given name
+     */
+    private String getCategory(String name)
+    {
         int index = name.indexOf(".");
-        String category = "";
 
         if (index >= 0)
         {
             /* Category for third party mod mobs */
-            category = name.substring(0, index);
+            return name.substring(0, index);
         }
-        else if (entity instanceof EntityAnimal)
+
+        Class<? extends Entity> clazz = EntityList.NAME_TO_CLASS.get(name);
+
+        if (clazz != null && EntityAnimal.class.isAssignableFrom(clazz))
         {
-            category = "animal";
+            return "animal";
         }
-        else if (entity instanceof EntityMob)
+        else if (clazz != null && EntityMob.class.isAssignableFrom(clazz))
         {
-            category = "hostile";
+            return "hostile";
+        }
+
+        return "";
+    }
+
+    /**
+     * Create an entity morph out of descriptor
+     * 
+     * This method merges descriptor's entity data onto a copy of entity's 
+     * default data template (see {@link #getTemplate(String)}) and strips 
+     * it. It doesn't depend on the client world, so it works on both sides.
+     * 
+     * If there's no template (it wasn't cached and there's no world to 
+     * construct the entity in), null is returned, so the descriptor would 
+     * try again later instead of keeping a morph without entity data.
+     */
+    @Override
+    public AbstractMorph getMorphFromDescriptor(MorphDescriptor descriptor)
+    {
+        String name = descriptor.name;
+        EntityTemplate template = this.getTemplate(name);
+
+        if (template == null)
+        {
+            return null;
+        }
+
+        EntityMorph morph = name.equals("VillagerGolem") ? new IronGolemMorph() : new EntityMorph();
+        NBTTagCompound data = template.data.copy();
+
+        morph.name = name;
+
+        if (descriptor.tag.hasKey("EntityData", 10))
+        {
+            data.merge(descriptor.tag.getCompoundTag("EntityData"));
         }
 
         EntityUtils.stripEntityNBT(data);
         morph.setEntityData(data);
-        morphs.addMorphVariant(name, category, variant, morph);
+
+        return morph;
+    }
+
+    /**
+     * Get default entity template of an entity by given name
+     * 
+     * Template is generated out of an entity constructed in the world 
+     * provided by the proxy (client world on the client thread, server's 
+     * overworld otherwise). Don't modify returned template's data, copy it 
+     * instead.
+     * 
+     * @return entity template, or null if there's no world to construct 
+     *         the entity in
+     */
+    public EntityTemplate getTemplate(String name)
+    {
+        EntityTemplate template = this.templates.get(name);
+
+        if (template != null)
+        {
+            return template;
+        }
+
+        World world = Metamorph.proxy.getWorld();
+
+        if (world == null)
+        {
+            return null;
+        }
+
+        Entity entity = EntityList.createEntityByName(name, world);
+
+        if (entity == null)
+        {
+            return null;
+        }
+
+        template = new EntityTemplate(EntityUtils.internData(EntityUtils.stripEntityNBT(entity.serializeNBT())));
+        this.templates.put(name, template);
+
+        return template;
+    }
+
+    /**
+     * Get template NBT of an entity morph, it's used for compact encoding 
+     * of acquired morphs in player's data 
+     */
+    @Override
+    public NBTTagCompound getTemplateNBT(String name)
+    {
+        EntityTemplate template = null;
+
+        try
+        {
+            template = this.hasMorph(name) ? this.getTemplate(name) : null;
+        }
+        catch (Exception e)
+        {
+            System.out.println("Failed to generate entity template for '" + name + "' morph!");
+            e.printStackTrace();
+        }
+
+        if (template == null)
+        {
+            return null;
+        }
+
+        NBTTagCompound tag = new NBTTagCompound();
+
+        tag.setString("Name", name);
+        tag.setTag("EntityData", template.data);
+
+        return tag;
+    }
+
+    /**
+     * Generate templates of all morphable entities and write them to the 
+     * cache 
+     */
+    @Override
+    public void writeCache(NBTTagCompound tag)
+    {
+        for (String name : EntityList.getEntityNameList())
+        {
+            EntityTemplate template = null;
+
+            if (this.hasMorph(name))
+            {
+                try
+                {
+                    template = this.getTemplate(name);
+                }
+                catch (Exception e)
+                {
+                    System.out.println("Failed to generate entity template for '" + name + "' morph!");
+                    e.printStackTrace();
+                }
+            }
+
+            if (template != null)
+            {
+                NBTTagCompound entry = new NBTTagCompound();
+
+                entry.setTag("Data", template.data);
+                tag.setTag(name, entry);
+            }
+        }
+    }
+
+    /**
+     * Read templates from the cache 
+     */
+    @Override
+    public void readCache(NBTTagCompound tag)
+    {
+        for (String name : tag.getKeySet())
+        {
+            NBTTagCompound entry = tag.getCompoundTag(name);
+
+            this.templates.put(name, new EntityTemplate(EntityUtils.internData(entry.getCompoundTag("Data"))));
+        }
     }
 
     /**
@@ -211,12 +415,20 @@ public class MobMorphFactory implements IMorphFactory
 
         Class<? extends Entity> clazz = EntityList.NAME_TO_CLASS.get(name);
 
-        if (clazz != null)
+        if (clazz == null)
         {
-            return EntityLivingBase.class.isAssignableFrom(clazz);
+            return false;
         }
 
-        return false;
+        Boolean result = this.morphable.get(clazz);
+
+        if (result == null)
+        {
+            result = EntityLivingBase.class.isAssignableFrom(clazz);
+            this.morphable.put(clazz, result);
+        }
+
+        return result.booleanValue();
     }
 
     /**
@@ -238,4 +450,19 @@ public class MobMorphFactory implements IMorphFactory
 
         return null;
     }
-}
\ No newline at end of file
+
+    /**
+     * Entity template
+     * 
+     * Stripped default entity data of an entity 
+     */
+    public static class EntityTemplate
+    {
+        public final NBTTagCompound data;
+
+        public EntityTemplate(NBTTagCompound data)
+        {
+            this.data = data;
+        }
+    }
+}
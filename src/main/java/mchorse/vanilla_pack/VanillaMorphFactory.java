@@ -1,23 +1,23 @@
 package mchorse.vanilla_pack;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import mchorse.metamorph.ClientProxy;
-import mchorse.metamorph.Metamorph;
-import mchorse.metamorph.api.IMorphFactory;
+import mchorse.metamorph.api.IMorphDescriptorFactory;
+import mchorse.metamorph.api.LoadProfiler;
+import mchorse.metamorph.api.MorphDescriptor;
 import mchorse.metamorph.api.MorphList;
 import mchorse.metamorph.api.MorphManager;
 import mchorse.metamorph.api.MorphUtils;
 import mchorse.metamorph.api.abilities.IAbility;
 import mchorse.metamorph.api.abilities.IAction;
 import mchorse.metamorph.api.abilities.IAttackAbility;
-import mchorse.metamorph.api.models.Model;
+import mchorse.metamorph.api.models.ModelHandle;
 import mchorse.metamorph.api.models.ModelManager;
 import mchorse.metamorph.api.morphs.AbstractMorph;
 import mchorse.metamorph.api.morphs.CustomMorph;
-import mchorse.metamorph.client.model.ModelCustom;
-import mchorse.metamorph.client.model.parsing.ModelParser;
 import mchorse.vanilla_pack.abilities.Climb;
 import mchorse.vanilla_pack.abilities.FireProof;
 import mchorse.vanilla_pack.abilities.Fly;
@@ -41,7 +41,6 @@ import mchorse.vanilla_pack.attacks.KnockbackAttack;
 import mchorse.vanilla_pack.attacks.PoisonAttack;
 import mchorse.vanilla_pack.attacks.WitherAttack;
 import mchorse.vanilla_pack.morphs.BlazeMorph;
-import net.minecraft.client.model.ModelBase;
 import net.minecraft.nbt.NBTTagCompound;
 import net.minecraftforge.fml.relauncher.Side;
 import net.minecraftforge.fml.relauncher.SideOnly;
@@ -52,7 +51,7 @@ import net.minecraftforge.fml.relauncher.SideOnly;
  * This morph factory is responsible for registering vanilla-based abilities, 
  * attacks and actions.
  */
-public class VanillaMorphFactory implements IMorphFactory
+public class VanillaMorphFactory implements IMorphDescriptorFactory
 {
     /**
      * Factory'r registered morphs 
@@ -113,8 +112,6 @@ public class VanillaMorphFactory implements IMorphFactory
         {
             morph.renderer = ClientProxy.modelRenderer;
         }
-
-        this.registerClientModels(manager.models);
     }
 
     @Override
@@ -126,6 +123,24 @@ public class VanillaMorphFactory implements IMorphFactory
         }
     }
 
+    @Override
+    public void getDescriptors(List<MorphDescriptor> descriptors)
+    {
+        for (CustomMorph morph : this.morphs.values())
+        {
+            NBTTagCompound tag = new NBTTagCompound();
+
+            tag.setString("Name", morph.name);
+            descriptors.add(new MorphDescriptor(this, morph.name, "patched_vanilla", "", tag));
+        }
+    }
+
+    @Override
+    public AbstractMorph getMorphFromDescriptor(MorphDescriptor descriptor)
+    {
+        return this.getMorphFromNBT(descriptor.tag);
+    }
+
     @Override
     public boolean hasMorph(String name)
     {
@@ -150,11 +165,17 @@ public class VanillaMorphFactory implements IMorphFactory
      */
     protected void registerMorphsSettings(MorphManager manager)
     {
-        MorphUtils.loadMorphSettings(manager, this.getClass().getClassLoader().getResourceAsStream("assets/metamorph/morphs.json"));
+        String path = "assets/metamorph/morphs.json";
+        LoadProfiler.Section section = LoadProfiler.INSTANCE.start("settings", path);
+
+        MorphUtils.loadMorphSettings(manager, this.getClass().getClassLoader().getResourceAsStream(path));
+        section.stop();
     }
 
     /**
-     * Load served based custom models
+     * Register served based custom models. Models are registered as lazy 
+     * handles, they're parsed (and baked on the client) only when they're 
+     * used for the first time
      */
     private void registerModels(ModelManager models)
     {
@@ -172,82 +193,25 @@ public class VanillaMorphFactory implements IMorphFactory
     }
 
     /**
-     * Load model with name and filename
+     * Load model with name and filename. Morph isn't registered if model's 
+     * resource is missing
      */
     private void loadModel(ModelManager models, String model, String filename)
     {
-        try
-        {
-            models.load(model, filename);
-
-            CustomMorph morph = model.equals("Blaze") ? new BlazeMorph() : new CustomMorph();
-
-            morph.name = model;
-            morph.model = models.models.get(model);
+        ModelHandle handle = models.register(model, filename, "metamorph");
 
-            this.morphs.put(model, morph);
-        }
-        catch (Exception e)
+        if (!handle.exists())
         {
-            System.out.println("An exception was raised when loading '" + model + "' model!");
-            e.printStackTrace();
-        }
-    }
+            System.out.println("Model resource '" + handle.path + "' for '" + model + "' morph doesn't exist!");
 
-    /**
-     * Turn all registered custom models into client {@link ModelBase}d models. 
-     */
-    @SideOnly(Side.CLIENT)
-    private void registerClientModels(ModelManager models)
-    {
-        for (String model : this.morphs.keySet())
-        {
-            this.loadClientModel(models, model);
+            return;
         }
-    }
-
-    /**
-     * Load a client model with given name and given data custom model from 
-     * models registry 
-     */
-    @SideOnly(Side.CLIENT)
-    private void loadClientModel(ModelManager models, String name)
-    {
-        loadClientModel(name, models.models.get(name));
-    }
 
-    /**
-     * Load a client model for given name with given data custom model
-     */
-    @SideOnly(Side.CLIENT)
-    private void loadClientModel(String name, Model data)
-    {
-        if (data == null)
-        {
-            Metamorph.log("Client custom model by name " + name + " couldn't be loaded!");
+        CustomMorph morph = model.equals("Blaze") ? new BlazeMorph() : new CustomMorph();
 
-            return;
-        }
+        morph.name = model;
+        morph.handle = handle;
 
-        if (data.model.isEmpty())
-        {
-            /* Parse default type of model */
-            ModelParser.parse(name, data);
-        }
-        else
-        {
-            try
-            {
-                @SuppressWarnings("unchecked")
-                Class<? extends ModelCustom> clazz = (Class<? extends ModelCustom>) Class.forName(data.model);
-
-                /* Parse custom custom (overcustomized) model */
-                ModelParser.parse(name, data, clazz);
-            }
-            catch (ClassNotFoundException e)
-            {
-                e.printStackTrace();
-            }
-        }
+        this.morphs.put(model, morph);
     }
-}
\ No newline at end of file
+}
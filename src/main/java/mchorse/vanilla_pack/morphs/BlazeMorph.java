@@ -50,7 +50,12 @@ public class BlazeMorph extends CustomMorph
         morph.attack = this.attack;
         morph.action = this.action;
 
+        morph.health = this.health;
+        morph.speed = this.speed;
+        morph.hostile = this.hostile;
+
         morph.model = this.model;
+        morph.handle = this.handle;
         morph.renderer = this.renderer;
 
         return morph;
@@ -56,7 +56,11 @@ public class IronGolemMorph extends EntityMorph
         morph.attack = this.attack;
         morph.action = this.action;
 
-        morph.entityData = this.entityData.copy();
+        morph.health = this.health;
+        morph.speed = this.speed;
+        morph.hostile = this.hostile;
+
+        morph.entityData = this.entityData;
 
         return morph;
     }